@@ -0,0 +1,60 @@
+package com.ail.optile.jobservice.benchmark;
+
+import com.ail.optile.jobservice.JobServiceApplication;
+import com.ail.optile.jobservice.domain.JavaJobRequest;
+import com.ail.optile.jobservice.domain.exception.ExecutionException;
+import com.ail.optile.jobservice.domain.exception.RollbackException;
+import org.quartz.JobExecutionContext;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the application without web layer for benchmarks.
+ */
+final class BenchmarkApplication {
+
+    static final String FAR_FUTURE_CRON = "0 0 0 1 JAN ? 2099-2099";
+
+    private BenchmarkApplication() {
+    }
+
+    /**
+     * @param jobStoreType {@code memory} or {@code jdbc}
+     */
+    static ConfigurableApplicationContext start(String jobStoreType) {
+        return new SpringApplicationBuilder(JobServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                // command line arguments override application.properties
+                .run(
+                        "--logging.level.root=WARN",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "--spring.quartz.job-store-type=" + jobStoreType,
+                        "--spring.quartz.properties.org.quartz.threadPool.threadCount=5",
+                        "--job-service.output.dir=target/benchmark-output",
+                        "--job-service.delay.log-file=target/benchmark-delayed-executions.log");
+    }
+
+    /**
+     * Java job which does nothing, so benchmarks measure the service itself.
+     */
+    public static class NoopJob extends JavaJobRequest {
+
+        public NoopJob() {
+        }
+
+        NoopJob(String name) {
+            super(name, FAR_FUTURE_CRON, null);
+        }
+
+        @Override
+        public void executeJob(JobExecutionContext jobExecutionContext) throws ExecutionException {
+        }
+
+        @Override
+        public void rollbackJob(JobExecutionContext jobExecutionContext) throws RollbackException {
+        }
+    }
+}
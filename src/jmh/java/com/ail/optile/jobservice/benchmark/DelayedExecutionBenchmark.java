@@ -0,0 +1,46 @@
+package com.ail.optile.jobservice.benchmark;
+
+import com.ail.optile.jobservice.api.JobService;
+import com.ail.optile.jobservice.domain.DelayedExecution;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks scheduling and cancelling of delayed executions by concurrent producers. Every scheduled execution is
+ * cancelled right away, so the benchmark doesn't run out of memory while the log is still written.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DelayedExecutionBenchmark {
+
+    private static final String JOB_NAME = "delayed";
+    private static final long DELAY_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private ConfigurableApplicationContext context;
+    private JobService jobService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start("memory");
+        jobService = context.getBean("jobService", JobService.class);
+        jobService.create(new BenchmarkApplication.NoopJob(JOB_NAME));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void executeLaterAndCancel() throws Exception {
+        DelayedExecution execution = jobService.executeLater(JOB_NAME, DELAY_MILLIS);
+        jobService.cancelDelayedExecution(execution.getId());
+    }
+}
@@ -0,0 +1,106 @@
+package com.ail.optile.jobservice.benchmark;
+
+import com.ail.optile.jobservice.api.JobInfo;
+import com.ail.optile.jobservice.domain.NativeJobInfo;
+import com.ail.optile.jobservice.domain.NativeJobRequest;
+import com.ail.optile.jobservice.rest.JobServiceRestController;
+import com.ail.optile.jobservice.rest.dto.NativeJobInfoDto;
+import com.ail.optile.jobservice.rest.dto.NativeJobRequestDto;
+import com.ail.optile.jobservice.rest.mapper.JobDtoMapper;
+import com.ail.optile.jobservice.rest.mapper.JobDtoMapperImpl;
+import org.dozer.DozerBeanMapper;
+import org.dozer.Mapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmarks the DTO mapping done by {@link JobServiceRestController} for single jobs and for the list of all jobs,
+ * generated {@link JobDtoMapper} against reflective Dozer mapping it replaced. Run with {@code -prof gc} to compare
+ * allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    @Param({"100", "10000"})
+    private int jobCount;
+
+    private Mapper dozerMapper;
+    private JobDtoMapper jobDtoMapper;
+    private NativeJobRequestDto jobRequestDto;
+    private NativeJobInfo jobInfo;
+    private List<JobInfo> allJobs;
+
+    @Setup
+    public void setUp() {
+        dozerMapper = new DozerBeanMapper();
+        jobDtoMapper = new JobDtoMapperImpl();
+
+        jobRequestDto = NativeJobRequestDto.builder()
+                .name("job")
+                .argv(Arrays.asList("/usr/bin/rsync", "-a", "/data/", "backup:/data/"))
+                .cron(BenchmarkApplication.FAR_FUTURE_CRON)
+                .priority(5)
+                .timeoutSeconds(60L)
+                .build();
+        jobInfo = jobInfo("job");
+
+        allJobs = new ArrayList<>();
+        for (int i = 0; i < jobCount; i++) {
+            allJobs.add(jobInfo("job-" + i));
+        }
+    }
+
+    @Benchmark
+    public NativeJobRequest mapJobRequest() {
+        return jobDtoMapper.toJobRequest(jobRequestDto);
+    }
+
+    @Benchmark
+    public NativeJobInfoDto mapJobInfo() {
+        return jobDtoMapper.toJobInfoDto(jobInfo);
+    }
+
+    @Benchmark
+    public List<NativeJobInfoDto> mapAllJobs() {
+        return allJobs.stream()
+                .map(jobDtoMapper::toJobInfoDto)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public NativeJobRequest dozerMapJobRequest() {
+        return dozerMapper.map(jobRequestDto, NativeJobRequest.class);
+    }
+
+    @Benchmark
+    public NativeJobInfoDto dozerMapJobInfo() {
+        return dozerMapper.map(jobInfo, NativeJobInfoDto.class);
+    }
+
+    @Benchmark
+    public List<NativeJobInfoDto> dozerMapAllJobs() {
+        return allJobs.stream()
+                .map(job -> dozerMapper.map(job, NativeJobInfoDto.class))
+                .collect(Collectors.toList());
+    }
+
+    private static NativeJobInfo jobInfo(String name) {
+        return NativeJobInfo.builder()
+                .name(name)
+                .command("echo hello")
+                .cron(BenchmarkApplication.FAR_FUTURE_CRON)
+                .priority(5)
+                .state(JobInfo.State.SUCCESS)
+                .build();
+    }
+}
@@ -0,0 +1,81 @@
+package com.ail.optile.jobservice.benchmark;
+
+import com.ail.optile.jobservice.listener.JobExecutionListener;
+import org.openjdk.jmh.annotations.*;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.Trigger;
+import org.quartz.impl.JobExecutionContextImpl;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredBundle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+/**
+ * Benchmarks recording of completed executions by {@link JobExecutionListener}, including the history written to H2
+ * once the writer's queue is full.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobExecutionListenerBenchmark {
+
+    private static final int JOB_COUNT = 100;
+
+    private ConfigurableApplicationContext context;
+    private JobExecutionListener listener;
+    private JobExecutionContext[] executionContexts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("memory");
+        listener = context.getBean(JobExecutionListener.class);
+
+        executionContexts = new JobExecutionContext[JOB_COUNT];
+        for (int i = 0; i < JOB_COUNT; i++) {
+            executionContexts[i] = executionContext("job-" + i, i % 10 == 0 ? 1 : 0);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void jobWasExecuted(Cursor cursor) {
+        JobExecutionContext executionContext = executionContexts[cursor.next++ % JOB_COUNT];
+        listener.jobToBeExecuted(executionContext);
+        listener.jobWasExecuted(executionContext, null);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+    }
+
+    private static JobExecutionContext executionContext(String jobName, int result) {
+        JobDetail jobDetail = newJob(BenchmarkApplication.NoopJob.class)
+                .withIdentity(jobName)
+                .build();
+        Trigger trigger = newTrigger()
+                .forJob(jobDetail)
+                .build();
+        Date now = new Date();
+        JobExecutionContextImpl executionContext = new JobExecutionContextImpl(null,
+                new TriggerFiredBundle(jobDetail, (OperableTrigger) trigger, null, false, now, now, null, null),
+                new BenchmarkApplication.NoopJob());
+        executionContext.setResult(result);
+        return executionContext;
+    }
+}
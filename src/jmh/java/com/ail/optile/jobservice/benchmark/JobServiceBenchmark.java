@@ -0,0 +1,97 @@
+package com.ail.optile.jobservice.benchmark;
+
+import com.ail.optile.jobservice.api.JobInfo;
+import com.ail.optile.jobservice.api.JobService;
+import com.ail.optile.jobservice.api.exception.JobIsCurrentlyRunningException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link JobService} operations with RAM and JDBC Quartz job stores holding the given number of jobs.
+ * <p>
+ * Filling the JDBC store with 100k jobs takes a while, so select parameters for a quick run, e.g.
+ * {@code -Djmh.args="JobServiceBenchmark -p jobCount=100"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobServiceBenchmark {
+
+    @Param({"memory", "jdbc"})
+    private String jobStoreType;
+
+    @Param({"100", "10000", "100000"})
+    private int jobCount;
+
+    private ConfigurableApplicationContext context;
+    private JobService jobService;
+
+    private final List<String> createdJobs = new ArrayList<>();
+    private int nextExecutedJob;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start(jobStoreType);
+        jobService = context.getBean("jobService", JobService.class);
+
+        for (int i = 0; i < jobCount; i++) {
+            jobService.create(new BenchmarkApplication.NoopJob(jobName(i)));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteCreatedJobs() throws Exception {
+        for (String jobName : createdJobs) {
+            jobService.delete(jobName);
+        }
+        createdJobs.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void create() throws Exception {
+        String jobName = "created-" + createdJobs.size();
+        jobService.create(new BenchmarkApplication.NoopJob(jobName));
+        createdJobs.add(jobName);
+    }
+
+    @Benchmark
+    public JobInfo getJobInfo() throws Exception {
+        return jobService.getJobInfo(jobName(ThreadLocalRandom.current().nextInt(jobCount)));
+    }
+
+    @Benchmark
+    public List<JobInfo> getAllJobs() {
+        return jobService.getAllJobs();
+    }
+
+    /**
+     * Jobs are executed round-robin, a job which is still running when its turn comes is rejected by the service.
+     */
+    @Benchmark
+    public void execute(Blackhole blackhole) throws Exception {
+        try {
+            jobService.execute(jobName(nextExecutedJob));
+        } catch (JobIsCurrentlyRunningException e) {
+            blackhole.consume(e);
+        }
+        nextExecutedJob = (nextExecutedJob + 1) % jobCount;
+    }
+
+    private static String jobName(int index) {
+        return "job-" + index;
+    }
+}
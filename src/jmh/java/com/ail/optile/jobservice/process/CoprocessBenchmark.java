@@ -0,0 +1,55 @@
+package com.ail.optile.jobservice.process;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the latency of a short shell command launched as a new process, like {@code NativeJob} does by default,
+ * with the same command run by a warm {@link CoprocessPool} worker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoprocessBenchmark {
+
+    @Param({"echo hello"})
+    private String command;
+
+    private CoprocessPool pool;
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() {
+        pool = new CoprocessPool("/bin/sh", 1);
+        buffer = new byte[8192];
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.stop();
+    }
+
+    @Benchmark
+    public int runtimeExec() throws Exception {
+        Process process = Runtime.getRuntime().exec(new String[]{"/bin/sh", "-c", command});
+        try (InputStream stdout = process.getInputStream(); InputStream stderr = process.getErrorStream()) {
+            while (stdout.read(buffer) >= 0) {
+                // drain
+            }
+            while (stderr.read(buffer) >= 0) {
+                // drain
+            }
+        }
+        return process.waitFor();
+    }
+
+    @Benchmark
+    public int coprocess() throws Exception {
+        return pool.execute(command, OutputSink.DISCARD);
+    }
+}
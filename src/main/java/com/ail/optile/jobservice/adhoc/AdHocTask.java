@@ -0,0 +1,54 @@
+package com.ail.optile.jobservice.adhoc;
+
+import com.ail.optile.jobservice.domain.TaskResult;
+import lombok.Getter;
+import org.quartz.JobDetail;
+
+import java.util.Date;
+
+/**
+ * Ad-hoc task tracked by {@link AdHocTaskExecutor} from submission until its result is written to the execution
+ * history.
+ */
+@Getter
+class AdHocTask {
+
+    private final long ticketId;
+    private final JobDetail jobDetail;
+    private final Date submitDate;
+
+    private volatile Date startDate;
+    private volatile TaskResult result;
+
+    AdHocTask(long ticketId, JobDetail jobDetail, Date submitDate) {
+        this.ticketId = ticketId;
+        this.jobDetail = jobDetail;
+        this.submitDate = submitDate;
+    }
+
+    void started(Date startDate) {
+        this.startDate = startDate;
+    }
+
+    void completed(TaskResult result) {
+        this.result = result;
+    }
+
+    /**
+     * @return the result of the completed task or the current status of the pending one
+     */
+    TaskResult toTaskResult() {
+        TaskResult completedResult = result;
+        if (completedResult != null) {
+            return completedResult;
+        }
+        Date taskStartDate = startDate;
+        return TaskResult.builder()
+                .ticketId(ticketId)
+                .status(taskStartDate != null ? TaskResult.Status.RUNNING : TaskResult.Status.PENDING)
+                .name(jobDetail.getKey().getName())
+                .submitDate(submitDate)
+                .startDate(taskStartDate)
+                .build();
+    }
+}
@@ -0,0 +1,284 @@
+package com.ail.optile.jobservice.adhoc;
+
+import com.ail.optile.jobservice.api.exception.TaskQueueIsFullException;
+import com.ail.optile.jobservice.domain.TaskResult;
+import com.ail.optile.jobservice.history.JobExecutionHistoryWriter;
+import com.ail.optile.jobservice.pdo.JobExecutionHistory;
+import com.ail.optile.jobservice.quartz.NativeJob;
+import com.ail.optile.jobservice.repository.JobExecutionHistoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.*;
+import org.quartz.impl.JobExecutionContextImpl;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredBundle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.scheduling.quartz.SpringBeanJobFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs ad-hoc tasks, i.e. jobs which aren't registered in the job store, once as soon as possible.
+ * <p>
+ * Submitted tasks wait in a bounded queue shared by any number of producers, submitting never blocks: a task is
+ * rejected when the queue is full. Worker threads take the tasks from the queue in batches of up to
+ * {@code batchSize} and run them one by one, so a busy queue is drained with a single lock acquisition per batch.
+ * The tasks are instantiated and executed the same way Quartz does it, and their results are recorded in the
+ * execution history with the ticket of the task.
+ * <p>
+ * The tasks are tracked in memory from submission, so their status is known while they're pending or running. A
+ * completed task is kept for {@value #COMPLETED_RETENTION_MILLIS} ms more, until its result is surely written to the
+ * execution history.
+ * <p>
+ * The queue is kept in memory only, the tasks which are still queued at shutdown are dropped, the rest of the
+ * batches taken by the workers included.
+ */
+@Component
+@Slf4j
+public class AdHocTaskExecutor {
+
+    private static final String TRIGGER_GROUP = "adhoc";
+    private static final long POLL_MILLIS = 100;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+    private static final int EXECUTION_SUCCESS_CODE = 0;
+    private static final long COMPLETED_RETENTION_MILLIS = 60_000;
+
+    private final Scheduler scheduler;
+    private final JobExecutionHistoryWriter historyWriter;
+    private final JobExecutionHistoryRepository historyRepository;
+    private final SpringBeanJobFactory jobFactory;
+    private final BlockingQueue<AdHocTask> queue;
+    // pending, running and recently completed tasks
+    private final ConcurrentMap<Long, AdHocTask> tasks = new ConcurrentHashMap<>();
+    // in the order of completion
+    private final Queue<AdHocTask> completedTasks = new ConcurrentLinkedQueue<>();
+    private final int workerThreads;
+    private final int batchSize;
+    // tickets stay unique across restarts unless a million tasks per second are submitted on average
+    private final AtomicLong lastTicketId = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final String node;
+
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    @Autowired
+    public AdHocTaskExecutor(
+            Scheduler scheduler,
+            JobExecutionHistoryWriter historyWriter,
+            JobExecutionHistoryRepository historyRepository,
+            ApplicationContext applicationContext,
+            @Value("${job-service.adhoc.queue-capacity:100000}") int queueCapacity,
+            @Value("${job-service.adhoc.worker-threads:4}") int workerThreads,
+            @Value("${job-service.adhoc.batch-size:32}") int batchSize) {
+        this.scheduler = scheduler;
+        this.historyWriter = historyWriter;
+        this.historyRepository = historyRepository;
+        this.jobFactory = new SpringBeanJobFactory();
+        this.jobFactory.setApplicationContext(applicationContext);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workerThreads = workerThreads;
+        this.batchSize = batchSize;
+        this.node = resolveNode();
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 1; i <= workerThreads; i++) {
+            Thread worker = new Thread(this::workLoop, "adhoc-task-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Waits for the running tasks, the queued ones are dropped.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MILLIS;
+        try {
+            for (Thread worker : workers) {
+                worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.clear();
+        log.info("Ad-hoc task executor is stopped, {} queued tasks are dropped", queue.size());
+        queue.clear();
+    }
+
+    /**
+     * Enqueues a single execution of the job.
+     *
+     * @return ticket of the task
+     * @throws TaskQueueIsFullException is thrown when the queue is full
+     */
+    public long submit(JobDetail jobDetail) throws TaskQueueIsFullException {
+        AdHocTask task = new AdHocTask(lastTicketId.incrementAndGet(), jobDetail, new Date());
+        tasks.put(task.getTicketId(), task);
+        if (!queue.offer(task)) {
+            tasks.remove(task.getTicketId());
+            throw new TaskQueueIsFullException();
+        }
+        return task.getTicketId();
+    }
+
+    /**
+     * Finds the status of the tracked task or the result of the task written to the execution history.
+     */
+    public Optional<TaskResult> findResult(long ticketId) {
+        evictCompletedTasks();
+        AdHocTask task = tasks.get(ticketId);
+        if (task != null) {
+            return Optional.of(task.toTaskResult());
+        }
+        return historyRepository.findByTicketId(ticketId)
+                .map(AdHocTaskExecutor::toTaskResult);
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void workLoop() {
+        List<AdHocTask> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                AdHocTask first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                for (AdHocTask task : batch) {
+                    if (!running) {
+                        break;
+                    }
+                    run(task);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void run(AdHocTask task) {
+        JobDetail jobDetail = task.getJobDetail();
+        Date startDate = new Date();
+        task.started(startDate);
+        JobExecutionContext context = null;
+        try {
+            OperableTrigger trigger = (OperableTrigger) TriggerBuilder.newTrigger()
+                    .withIdentity(String.valueOf(task.getTicketId()), TRIGGER_GROUP)
+                    .forJob(jobDetail)
+                    .startAt(task.getSubmitDate())
+                    .build();
+            TriggerFiredBundle bundle = new TriggerFiredBundle(
+                    jobDetail, trigger, null, false, startDate, task.getSubmitDate(), null, null);
+            Job job = jobFactory.newJob(bundle, scheduler);
+            context = new JobExecutionContextImpl(scheduler, bundle, job);
+            job.execute(context);
+        } catch (JobExecutionException e) {
+            // the job reports its own failures
+            log.debug(e.getMessage(), e);
+        } catch (SchedulerException | RuntimeException e) {
+            log.error("Task " + task.getTicketId() + " '" + jobDetail.getKey().getName() + "' failed", e);
+        }
+
+        JobExecutionHistory jobExecutionHistory = JobExecutionHistory.builder()
+                .jobName(jobDetail.getKey().getName())
+                .ticketId(task.getTicketId())
+                .scheduledFireTime(task.getSubmitDate())
+                .startDate(startDate)
+                .completionDate(new Date())
+                .result(getResult(context))
+                .exitCode(context != null && context.getResult() instanceof Integer
+                        ? (Integer) context.getResult()
+                        : null)
+                .outputFile(context != null ? (String) context.get(NativeJob.CONTEXT_OUTPUT_FILE) : null)
+                .node(node)
+                .thread(Thread.currentThread().getName())
+                .build();
+        task.completed(toTaskResult(jobExecutionHistory));
+        completedTasks.offer(task);
+        historyWriter.submit(jobExecutionHistory);
+        evictCompletedTasks();
+        log.debug("Task {} '{}' result: {}", task.getTicketId(), jobDetail.getKey().getName(),
+                context != null ? context.getResult() : null);
+    }
+
+    private void evictCompletedTasks() {
+        long evictBefore = System.currentTimeMillis() - COMPLETED_RETENTION_MILLIS;
+        AdHocTask task;
+        while ((task = completedTasks.peek()) != null
+                && task.getResult().getCompletionDate().getTime() < evictBefore
+                && completedTasks.remove(task)) {
+            tasks.remove(task.getTicketId());
+        }
+    }
+
+    private static TaskResult toTaskResult(JobExecutionHistory jobExecutionHistory) {
+        return TaskResult.builder()
+                .ticketId(jobExecutionHistory.getTicketId())
+                .status(TaskResult.Status.COMPLETED)
+                .name(jobExecutionHistory.getJobName())
+                .submitDate(jobExecutionHistory.getScheduledFireTime())
+                .startDate(jobExecutionHistory.getStartDate())
+                .completionDate(jobExecutionHistory.getCompletionDate())
+                .result(jobExecutionHistory.getResult().name())
+                .exitCode(jobExecutionHistory.getExitCode())
+                .build();
+    }
+
+    private static JobExecutionHistory.Result getResult(JobExecutionContext context) {
+        if (context == null) {
+            return JobExecutionHistory.Result.FAILED;
+        }
+        if (NativeJob.isTimedOut(context)) {
+            return JobExecutionHistory.Result.TIMED_OUT;
+        }
+        return Objects.equals(context.getResult(), EXECUTION_SUCCESS_CODE)
+                ? JobExecutionHistory.Result.SUCCESS
+                : JobExecutionHistory.Result.FAILED;
+    }
+
+    private static String resolveNode() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            log.warn("Unable to resolve host name: {}", e.getMessage());
+            return "unknown";
+        }
+    }
+}
@@ -33,6 +33,7 @@ public interface JobInfo {
      * <p>{@link State#RUNNING} - job is currently running.
      * <p>{@link State#SUCCESS} - last job execution was successful.
      * <p>{@link State#FAILED} - last job execution was failed.
+     * <p>{@link State#TIMED_OUT} - last job execution was terminated after its timeout.
      *
      * @return state of a job
      */
@@ -45,6 +46,7 @@ public interface JobInfo {
         QUEUED,
         RUNNING,
         SUCCESS,
-        FAILED
+        FAILED,
+        TIMED_OUT
     }
 }
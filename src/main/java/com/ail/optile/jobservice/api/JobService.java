@@ -1,11 +1,22 @@
 package com.ail.optile.jobservice.api;
 
+import com.ail.optile.jobservice.api.exception.DelayedExecutionIsNotFoundException;
 import com.ail.optile.jobservice.api.exception.IncorrectJobRequestException;
 import com.ail.optile.jobservice.api.exception.JobAlreadyExistsException;
 import com.ail.optile.jobservice.api.exception.JobIsCurrentlyRunningException;
 import com.ail.optile.jobservice.api.exception.JobIsNotFoundException;
+import com.ail.optile.jobservice.api.exception.TaskQueueIsFullException;
+import com.ail.optile.jobservice.api.exception.TaskResultIsNotFoundException;
+import com.ail.optile.jobservice.domain.BulkJobResult;
+import com.ail.optile.jobservice.domain.DelayedExecution;
+import com.ail.optile.jobservice.domain.JobFilter;
+import com.ail.optile.jobservice.domain.JobPage;
+import com.ail.optile.jobservice.domain.JobStatistics;
+import com.ail.optile.jobservice.domain.JobVersion;
+import com.ail.optile.jobservice.domain.TaskResult;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface JobService {
 
@@ -28,9 +39,53 @@ public interface JobService {
      */
     void execute(String jobName) throws JobIsNotFoundException, JobIsCurrentlyRunningException;
 
+    /**
+     * Schedules a single execution of the job registered in this Job Service after the delay. The pending
+     * executions are kept out of the job store, so they're cheap to schedule in large numbers. The execution is
+     * dropped if the job is deleted or currently running when it's due.
+     *
+     * @param jobName     the name of the job to be executed
+     * @param delayMillis delay of the execution in milliseconds
+     * @return scheduled execution, its id is used to cancel it
+     * @throws JobIsNotFoundException       is thrown when the job with name {@link JobRequest#getName()}
+     *                                      isn't registered in the Job Service
+     * @throws IncorrectJobRequestException is thrown when the delay is negative or the fire time overflows
+     */
+    DelayedExecution executeLater(String jobName, long delayMillis) throws JobIsNotFoundException, IncorrectJobRequestException;
+
+    /**
+     * Cancels the delayed execution scheduled by {@link #executeLater(String, long)}.
+     *
+     * @param executionId id of the delayed execution
+     * @throws DelayedExecutionIsNotFoundException is thrown when the execution is unknown, already fired or cancelled
+     */
+    void cancelDelayedExecution(long executionId) throws DelayedExecutionIsNotFoundException;
+
+    /**
+     * Enqueues a single execution of a job which isn't registered in this Job Service and returns without waiting for
+     * it. The tasks are run in the order of submission by a separate worker pool, regardless of any registered job
+     * with the same name. Cron and priority of the request are ignored.
+     *
+     * @param taskRequest request object of the task, either native command or {@link JobRequest} implementation
+     * @return ticket of the task to find its result
+     * @throws IncorrectJobRequestException is thrown when the request is in incorrect format
+     * @throws TaskQueueIsFullException     is thrown when too many tasks are waiting to be run
+     */
+    long submit(JobRequest taskRequest) throws IncorrectJobRequestException, TaskQueueIsFullException;
+
+    /**
+     * Fetches the result of the task submitted by {@link #submit(JobRequest)}.
+     *
+     * @param ticketId ticket of the task
+     * @return result object, which only has the status while the task is pending or running
+     * @throws TaskResultIsNotFoundException is thrown when the ticket is unknown or its result is already removed
+     */
+    TaskResult getTaskResult(long ticketId) throws TaskResultIsNotFoundException;
+
     /**
      * Updates the job with incoming job name.
      * The {@link JobRequest#getName()} in jobRequest should return the name of the job registered in Job Service.
+     * The job is updated in place, nothing is stored when the request matches the job.
      *
      * @param jobRequest request object to update existing job
      * @throws JobIsNotFoundException         is thrown when the job with name {@link JobRequest#getName()}
@@ -49,6 +104,41 @@ public interface JobService {
      */
     void delete(String jobName) throws JobIsNotFoundException, JobIsCurrentlyRunningException;
 
+    /**
+     * Registers new jobs in this Job Service. All requests are validated before any job is created, then the valid
+     * ones are created in one transaction.
+     *
+     * @param jobRequests request objects to register as jobs
+     * @return result of every request in the order of the requests
+     */
+    List<BulkJobResult> createAll(List<? extends JobRequest> jobRequests);
+
+    /**
+     * Updates the jobs with incoming job names. All requests are validated before any job is updated, then the valid
+     * ones are updated in one transaction. The jobs which match their requests are reported as
+     * {@link BulkJobResult.Status#UNCHANGED}.
+     *
+     * @param jobRequests request objects to update existing jobs
+     * @return result of every request in the order of the requests
+     */
+    List<BulkJobResult> updateAll(List<? extends JobRequest> jobRequests);
+
+    /**
+     * Deletes the jobs registered in Job Service in one transaction.
+     *
+     * @param jobNames names of the jobs to remove
+     * @return result of every job in the order of the names
+     */
+    List<BulkJobResult> deleteAll(List<String> jobNames);
+
+    /**
+     * Executes the jobs registered in this Job Service immediately.
+     *
+     * @param jobNames names of the jobs to be executed
+     * @return result of every job in the order of the names
+     */
+    List<BulkJobResult> executeAll(List<String> jobNames);
+
     /**
      * Fetches info for the job registered in Job Service.
      *
@@ -58,10 +148,54 @@ public interface JobService {
      */
     JobInfo getJobInfo(String jobName) throws JobIsNotFoundException;
 
+    /**
+     * Fetches the version of the job info without loading the job. The version changes whenever the job info may
+     * change, so it should be fetched before the job info.
+     *
+     * @param jobName the name of the job to get version
+     * @return version of the job info or null if it's not known, e.g. the job doesn't exist
+     */
+    JobVersion getJobVersion(String jobName);
+
+    /**
+     * Fetches the version of all jobs, which changes whenever info of any job may change.
+     *
+     * @return version of all jobs
+     */
+    JobVersion getJobsVersion();
+
     /**
      * Fetches all jobs registered in Job Service.
      *
      * @return list of job info objects
      */
     List<JobInfo> getAllJobs();
+
+    /**
+     * Fetches a page of jobs registered in Job Service which match the filter, ordered by name.
+     *
+     * @param filter criteria of the jobs
+     * @param after  name of the last job of the previous page, null for the first page
+     * @param limit  max number of jobs in the page, should be positive
+     * @return page of job info objects
+     */
+    JobPage getJobs(JobFilter filter, String after, int limit);
+
+    /**
+     * Lazily fetches jobs registered in Job Service which match the filter, ordered by name. Every job is loaded when
+     * the stream reaches it, so the jobs are never held in memory all together.
+     *
+     * @param filter criteria of the jobs
+     * @return stream of job info objects
+     */
+    Stream<JobInfo> streamJobs(JobFilter filter);
+
+    /**
+     * Fetches execution statistics of the job for the last hour, day and week.
+     *
+     * @param jobName the name of the job to get statistics
+     * @return statistics object
+     * @throws JobIsNotFoundException is thrown when the job with incoming jobName isn't registered in the Job Service
+     */
+    JobStatistics getJobStatistics(String jobName) throws JobIsNotFoundException;
 }
@@ -0,0 +1,5 @@
+package com.ail.optile.jobservice.api.exception;
+
+public class TaskResultIsNotFoundException extends JobServiceException {
+
+}
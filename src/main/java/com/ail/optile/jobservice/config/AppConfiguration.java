@@ -1,20 +1,34 @@
 package com.ail.optile.jobservice.config;
 
+import com.ail.optile.jobservice.adhoc.AdHocTaskExecutor;
 import com.ail.optile.jobservice.api.JobService;
+import com.ail.optile.jobservice.delay.DelayedExecutionEngine;
+import com.ail.optile.jobservice.journal.JobChangeJournal;
+import com.ail.optile.jobservice.listener.JobDefinitionListener;
 import com.ail.optile.jobservice.listener.JobExecutionListener;
 import com.ail.optile.jobservice.listener.JobTriggerListener;
-import com.ail.optile.jobservice.repository.JobExecutionHistoryRepository;
+import com.ail.optile.jobservice.metrics.JobMetrics;
+import com.ail.optile.jobservice.quartz.JobStateAwareJobFactory;
+import com.ail.optile.jobservice.registry.JobDefinitionRegistry;
+import com.ail.optile.jobservice.repository.JobTombstoneRepository;
 import com.ail.optile.jobservice.service.JobServiceImpl;
+import com.ail.optile.jobservice.state.JobStateIndex;
+import com.ail.optile.jobservice.statistics.JobStatisticsIndex;
 import lombok.extern.slf4j.Slf4j;
-import org.dozer.DozerBeanMapper;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.quartz.SchedulerFactoryBeanCustomizer;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextException;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import javax.sql.DataSource;
 
 @Configuration
+@EnableScheduling
 @Slf4j
 public class AppConfiguration {
 
@@ -22,24 +36,55 @@ public class AppConfiguration {
     public void registerJobListener(
             Scheduler scheduler,
             JobExecutionListener jobExecutionListener,
-            JobTriggerListener jobTriggerListener) {
+            JobTriggerListener jobTriggerListener,
+            JobDefinitionListener jobDefinitionListener) {
         try {
             scheduler.getListenerManager().addJobListener(jobExecutionListener);
             scheduler.getListenerManager().addTriggerListener(jobTriggerListener);
+            scheduler.getListenerManager().addSchedulerListener(jobDefinitionListener);
         } catch (SchedulerException e) {
             log.error(e.getMessage(), e);
             throw new ApplicationContextException("Unable to configure Quartz Scheduler", e);
         }
     }
 
+    /**
+     * Static, so the scheduler doesn't depend on this configuration, which depends on the scheduler.
+     */
     @Bean
-    @Autowired
-    public JobService jobService(Scheduler scheduler, JobExecutionHistoryRepository historyRepository) {
-        return new JobServiceImpl(scheduler, historyRepository);
+    public static SchedulerFactoryBeanCustomizer jobFactoryCustomizer(
+            ApplicationContext applicationContext,
+            JobStateIndex jobStateIndex) {
+        return schedulerFactoryBean -> {
+            JobStateAwareJobFactory jobFactory = new JobStateAwareJobFactory(jobStateIndex);
+            jobFactory.setApplicationContext(applicationContext);
+            schedulerFactoryBean.setJobFactory(jobFactory);
+        };
     }
 
     @Bean
-    public DozerBeanMapper mapper() {
-        return new DozerBeanMapper();
+    @Autowired
+    public JobService jobService(
+            Scheduler scheduler,
+            JobTombstoneRepository tombstoneRepository,
+            JobStateIndex jobStateIndex,
+            JobStatisticsIndex jobStatisticsIndex,
+            JobChangeJournal jobChangeJournal,
+            JobDefinitionRegistry jobDefinitionRegistry,
+            DelayedExecutionEngine delayedExecutionEngine,
+            AdHocTaskExecutor adHocTaskExecutor,
+            JobMetrics jobMetrics,
+            DataSource dataSource) {
+        return new JobServiceImpl(
+                scheduler,
+                tombstoneRepository,
+                jobStateIndex,
+                jobStatisticsIndex,
+                jobChangeJournal,
+                jobDefinitionRegistry,
+                delayedExecutionEngine,
+                adHocTaskExecutor,
+                jobMetrics,
+                dataSource);
     }
 }
@@ -0,0 +1,312 @@
+package com.ail.optile.jobservice.delay;
+
+import com.ail.optile.jobservice.api.exception.UnexpectedException;
+import com.ail.optile.jobservice.domain.DelayedExecution;
+import com.ail.optile.jobservice.listener.JobTriggerListener;
+import com.ail.optile.jobservice.registry.JobDefinitionRegistry;
+import com.ail.optile.jobservice.state.JobStateIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.JobDataMap;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.utils.Key;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fires one-shot delayed executions of the jobs without touching the Quartz job store until they're due.
+ * <p>
+ * The pending executions are kept in a {@link TimingWheel} owned by a single ticker thread; scheduling and
+ * cancelling only enqueue the execution for the ticker and append a record to {@link DelayedExecutionLog}, so both
+ * are O(1) and don't block each other. The due executions are handed over to the dispatcher threads which trigger
+ * the jobs the same way as {@link com.ail.optile.jobservice.api.JobService#execute(String)}. An execution of a job
+ * which is deleted or currently running by then is dropped and counted.
+ */
+@Component
+@Slf4j
+public class DelayedExecutionEngine {
+
+    private static final int WHEEL_BITS = 8;
+    private static final int WHEEL_LEVELS = 5;
+
+    private final Scheduler scheduler;
+    private final JobStateIndex jobStateIndex;
+    private final JobDefinitionRegistry jobDefinitionRegistry;
+    private final long tickMillis;
+    private final int dispatcherThreads;
+
+    private final DelayedExecutionLog executionLog;
+    // scheduled and not yet dispatched executions
+    private final ConcurrentMap<Long, DelayedTask> tasks = new ConcurrentHashMap<>();
+    // ids of the tasks per job, changed together with the tasks
+    private final ConcurrentMap<String, Set<Long>> jobTaskIds = new ConcurrentHashMap<>();
+    private final Queue<DelayedTask> addedTasks = new ConcurrentLinkedQueue<>();
+    private final Queue<DelayedTask> cancelledTasks = new ConcurrentLinkedQueue<>();
+    private final AtomicLong lastId = new AtomicLong();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private TimingWheel wheel;
+    private ExecutorService dispatcher;
+    private volatile boolean running;
+    private Thread tickerThread;
+
+    @Autowired
+    public DelayedExecutionEngine(
+            Scheduler scheduler,
+            JobStateIndex jobStateIndex,
+            JobDefinitionRegistry jobDefinitionRegistry,
+            @Value("${job-service.delay.tick-ms:10}") long tickMillis,
+            @Value("${job-service.delay.dispatcher-threads:2}") int dispatcherThreads,
+            @Value("${job-service.delay.log-file:./db/delayed-executions.log}") String logFile,
+            @Value("${job-service.delay.log-sync:false}") boolean logSync,
+            @Value("${job-service.delay.log-compaction-threshold:1000000}") long compactionThreshold,
+            @Value("${job-service.delay.log-queue-capacity:100000}") int logQueueCapacity,
+            @Value("${job-service.delay.log-batch-size:1000}") int logBatchSize,
+            @Value("${job-service.delay.log-linger-ms:10}") long logLingerMillis) {
+        this.scheduler = scheduler;
+        this.jobStateIndex = jobStateIndex;
+        this.jobDefinitionRegistry = jobDefinitionRegistry;
+        this.tickMillis = tickMillis;
+        this.dispatcherThreads = dispatcherThreads;
+        this.executionLog = new DelayedExecutionLog(
+                Paths.get(logFile),
+                logSync,
+                compactionThreshold,
+                tasks::values,
+                logQueueCapacity,
+                logBatchSize,
+                logLingerMillis);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        DelayedExecutionLog.Recovery recovery;
+        try {
+            recovery = executionLog.recover();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to recover delayed executions", e);
+        }
+        lastId.set(recovery.getLastId());
+        wheel = new TimingWheel(tickMillis, WHEEL_BITS, WHEEL_LEVELS, System.currentTimeMillis());
+        for (DelayedTask task : recovery.getPendingTasks()) {
+            track(task);
+            pendingCount.incrementAndGet();
+            // the overdue ones are fired by the first tick
+            wheel.add(task);
+        }
+        executionLog.start();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        dispatcher = Executors.newFixedThreadPool(dispatcherThreads, runnable -> {
+            Thread thread = new Thread(runnable, "delayed-execution-dispatcher-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        running = true;
+        tickerThread = new Thread(this::tickLoop, "delayed-execution-ticker");
+        tickerThread.setDaemon(true);
+        tickerThread.start();
+    }
+
+    /**
+     * Pending executions are kept in the log and recovered on the next start.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(tickerThread);
+        try {
+            tickerThread.join();
+            dispatcher.shutdown();
+            dispatcher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executionLog.shutdown();
+        log.info("Delayed execution engine is stopped with {} pending executions", pendingCount.get());
+    }
+
+    /**
+     * Schedules a single execution of the job.
+     *
+     * @param fireTime time in millis when the job should be executed
+     */
+    public DelayedExecution schedule(String jobName, long fireTime) {
+        if (!running) {
+            throw new UnexpectedException(new IllegalStateException("Delayed execution engine isn't running"));
+        }
+        DelayedTask task = new DelayedTask(lastId.incrementAndGet(), jobName, fireTime);
+        track(task);
+        pendingCount.incrementAndGet();
+        executionLog.submit(DelayedExecutionLog.scheduled(task));
+        addedTasks.offer(task);
+        return task.toDelayedExecution();
+    }
+
+    /**
+     * @return false if the execution isn't pending, i.e. it's unknown, already fired or cancelled
+     */
+    public boolean cancel(long id) {
+        DelayedTask task = tasks.get(id);
+        return task != null && cancel(task);
+    }
+
+    /**
+     * Cancels all pending executions of the jobs, so they don't fire a job created later with the same name.
+     *
+     * @return number of the cancelled executions
+     */
+    public int cancelAll(Collection<String> jobNames) {
+        int cancelled = 0;
+        for (String jobName : new HashSet<>(jobNames)) {
+            Set<Long> ids = jobTaskIds.get(jobName);
+            if (ids == null) {
+                continue;
+            }
+            for (Long id : new ArrayList<>(ids)) {
+                if (cancel(id)) {
+                    cancelled++;
+                }
+            }
+        }
+        return cancelled;
+    }
+
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * @return number of the due executions dropped because the job was deleted or currently running
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private void track(DelayedTask task) {
+        tasks.put(task.getId(), task);
+        jobTaskIds.compute(task.getJobName(), (jobName, ids) -> {
+            Set<Long> taskIds = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            taskIds.add(task.getId());
+            return taskIds;
+        });
+    }
+
+    private void untrack(DelayedTask task) {
+        tasks.remove(task.getId());
+        jobTaskIds.computeIfPresent(task.getJobName(), (jobName, ids) -> {
+            ids.remove(task.getId());
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private boolean cancel(DelayedTask task) {
+        if (!task.cancel()) {
+            return false;
+        }
+        untrack(task);
+        pendingCount.decrementAndGet();
+        executionLog.submit(DelayedExecutionLog.cancelled(task));
+        cancelledTasks.offer(task);
+        return true;
+    }
+
+    private void tickLoop() {
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        List<DelayedTask> dueTasks = new ArrayList<>();
+        while (running) {
+            try {
+                tick(dueTasks);
+            } catch (Exception e) {
+                log.error("Delayed execution tick failed", e);
+            }
+            LockSupport.parkNanos(this, tickNanos);
+        }
+    }
+
+    private void tick(List<DelayedTask> dueTasks) {
+        DelayedTask task;
+        while ((task = addedTasks.poll()) != null) {
+            // may be cancelled before it got here
+            if (task.isPending()) {
+                wheel.add(task);
+            }
+        }
+        while ((task = cancelledTasks.poll()) != null) {
+            wheel.remove(task);
+        }
+
+        wheel.advance(System.currentTimeMillis(), dueTask -> {
+            if (dueTask.fire()) {
+                pendingCount.decrementAndGet();
+                dueTasks.add(dueTask);
+            }
+        });
+        for (DelayedTask dueTask : dueTasks) {
+            dispatcher.execute(() -> dispatch(dueTask));
+        }
+        dueTasks.clear();
+    }
+
+    private void dispatch(DelayedTask task) {
+        try {
+            executeJob(task);
+        } catch (Exception e) {
+            log.error("Delayed execution " + task.getId() + " of job '" + task.getJobName() + "' failed", e);
+        } finally {
+            untrack(task);
+            executionLog.submit(DelayedExecutionLog.fired(task));
+        }
+    }
+
+    private void executeJob(DelayedTask task) throws SchedulerException {
+        String jobName = task.getJobName();
+        if (!jobDefinitionRegistry.contains(jobName)) {
+            droppedCount.incrementAndGet();
+            log.warn("Delayed execution {} is dropped, job '{}' is not found", task.getId(), jobName);
+            return;
+        }
+        if (!jobStateIndex.tryFire(jobName)) {
+            droppedCount.incrementAndGet();
+            log.warn("Delayed execution {} is dropped, job '{}' is currently running", task.getId(), jobName);
+            return;
+        }
+
+        try {
+            JobDataMap triggerDataMap = new JobDataMap();
+            triggerDataMap.put(JobTriggerListener.PROP_MANUAL_TRIGGER, true);
+            scheduler.triggerJob(JobKey.jobKey(jobName, Key.DEFAULT_GROUP), triggerDataMap);
+            log.info("Job '{}' executed by delayed execution {}", jobName, task.getId());
+        } catch (SchedulerException e) {
+            jobStateIndex.fireFailed(jobName);
+            throw e;
+        }
+    }
+}
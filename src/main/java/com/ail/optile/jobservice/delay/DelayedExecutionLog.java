@@ -0,0 +1,251 @@
+package com.ail.optile.jobservice.delay;
+
+import com.ail.optile.jobservice.support.AsyncBatchWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Append-only binary log of the delayed executions, replayed at startup to recover the pending ones.
+ * <p>
+ * Every record is a type byte followed by the execution id; a scheduled record adds the fire time and the job
+ * name. The records are appended in batches off the calling threads. Once the log holds more than
+ * {@code compactionThreshold} records and less than half of them are pending executions, it's rewritten with the
+ * pending executions only.
+ * <p>
+ * An execution fired right before a crash may be logged as pending and then fired again after recovery.
+ */
+@Slf4j
+class DelayedExecutionLog extends AsyncBatchWriter<DelayedExecutionLog.Record> {
+
+    private static final byte SCHEDULED = 1;
+    private static final byte CANCELLED = 2;
+    private static final byte FIRED = 3;
+    // keeps the issued ids after compaction, so they're never reused
+    private static final byte LAST_ID = 4;
+
+    private final Path file;
+    private final boolean sync;
+    private final long compactionThreshold;
+    private final Supplier<Collection<DelayedTask>> pendingTasks;
+
+    // guards the file state, which is written by the writer thread or by the caller's thread after shutdown
+    private final Object fileLock = new Object();
+    private FileOutputStream fileStream;
+    private DataOutputStream out;
+    private long recordCount;
+    private long lastId;
+
+    /**
+     * @param pendingTasks pending executions to rewrite the log with, they must be registered before their
+     *                     scheduled record is submitted
+     */
+    DelayedExecutionLog(
+            Path file,
+            boolean sync,
+            long compactionThreshold,
+            Supplier<Collection<DelayedTask>> pendingTasks,
+            int queueCapacity,
+            int batchSize,
+            long lingerMillis) {
+        super("delayed-execution-log-writer", queueCapacity, batchSize, lingerMillis);
+        this.file = file;
+        this.sync = sync;
+        this.compactionThreshold = compactionThreshold;
+        this.pendingTasks = pendingTasks;
+    }
+
+    static Record scheduled(DelayedTask task) {
+        return new Record(SCHEDULED, task);
+    }
+
+    static Record cancelled(DelayedTask task) {
+        return new Record(CANCELLED, task);
+    }
+
+    static Record fired(DelayedTask task) {
+        return new Record(FIRED, task);
+    }
+
+    /**
+     * Replays the log, must be called before {@link #start()}.
+     *
+     * @return pending executions in the order they were scheduled
+     */
+    Recovery recover() throws IOException {
+        synchronized (fileLock) {
+            Map<Long, DelayedTask> pending = new LinkedHashMap<>();
+            lastId = 0;
+            if (Files.exists(file)) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    readRecords(in, pending);
+                }
+            } else if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            rewrite(pending.values());
+            log.info("Recovered {} pending delayed executions from {}", pending.size(), file);
+            return new Recovery(new ArrayList<>(pending.values()), lastId);
+        }
+    }
+
+    @Override
+    protected void write(List<Record> batch) {
+        synchronized (fileLock) {
+            try {
+                if (out == null) {
+                    open();
+                }
+                for (Record record : batch) {
+                    writeRecord(record.type, record.task);
+                    lastId = Math.max(lastId, record.task.getId());
+                }
+                flush();
+                recordCount += batch.size();
+                if (recordCount > compactionThreshold) {
+                    Collection<DelayedTask> tasks = pendingTasks.get();
+                    if (recordCount > 2L * tasks.size()) {
+                        rewrite(tasks);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        // the file lock isn't held while the writer thread is joined, it may be waiting for the lock
+        super.shutdown();
+        synchronized (fileLock) {
+            close();
+        }
+    }
+
+    private void readRecords(DataInputStream in, Map<Long, DelayedTask> pending) throws IOException {
+        while (true) {
+            int type = in.read();
+            if (type == -1) {
+                return;
+            }
+            try {
+                long id = in.readLong();
+                lastId = Math.max(lastId, id);
+                if (type == SCHEDULED) {
+                    long fireTime = in.readLong();
+                    String jobName = in.readUTF();
+                    pending.put(id, new DelayedTask(id, jobName, fireTime));
+                } else if (type == CANCELLED || type == FIRED) {
+                    pending.remove(id);
+                } else if (type != LAST_ID) {
+                    log.warn("Unknown record type {} in {}, the rest of the log is skipped", type, file);
+                    return;
+                }
+            } catch (EOFException e) {
+                log.warn("Incomplete last record in {} is skipped", file);
+                return;
+            }
+        }
+    }
+
+    private void rewrite(Collection<DelayedTask> tasks) throws IOException {
+        close();
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        long count = 0;
+        try (FileOutputStream tempStream = new FileOutputStream(tempFile.toFile());
+             DataOutputStream tempOut = new DataOutputStream(new BufferedOutputStream(tempStream))) {
+            tempOut.writeByte(LAST_ID);
+            tempOut.writeLong(lastId);
+            for (DelayedTask task : tasks) {
+                // a fired task is kept until it's logged as fired, so it's fired again if that never happens
+                if (!task.isCancelled()) {
+                    writeRecord(tempOut, SCHEDULED, task);
+                    count++;
+                }
+            }
+            tempOut.flush();
+            tempStream.getFD().sync();
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        recordCount = count;
+        open();
+    }
+
+    private void writeRecord(byte type, DelayedTask task) throws IOException {
+        writeRecord(out, type, task);
+    }
+
+    private static void writeRecord(DataOutputStream out, byte type, DelayedTask task) throws IOException {
+        out.writeByte(type);
+        out.writeLong(task.getId());
+        if (type == SCHEDULED) {
+            out.writeLong(task.getFireTime());
+            out.writeUTF(task.getJobName());
+        }
+    }
+
+    private void open() throws IOException {
+        fileStream = new FileOutputStream(file.toFile(), true);
+        out = new DataOutputStream(new BufferedOutputStream(fileStream));
+    }
+
+    private void flush() throws IOException {
+        out.flush();
+        if (sync) {
+            fileStream.getFD().sync();
+        }
+    }
+
+    private void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.error("Failed to close " + file, e);
+        }
+        out = null;
+        fileStream = null;
+    }
+
+    static final class Record {
+
+        private final byte type;
+        private final DelayedTask task;
+
+        private Record(byte type, DelayedTask task) {
+            this.type = type;
+            this.task = task;
+        }
+    }
+
+    static final class Recovery {
+
+        private final List<DelayedTask> pendingTasks;
+        private final long lastId;
+
+        private Recovery(List<DelayedTask> pendingTasks, long lastId) {
+            this.pendingTasks = pendingTasks;
+            this.lastId = lastId;
+        }
+
+        List<DelayedTask> getPendingTasks() {
+            return pendingTasks;
+        }
+
+        long getLastId() {
+            return lastId;
+        }
+    }
+}
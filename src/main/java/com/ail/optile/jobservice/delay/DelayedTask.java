@@ -0,0 +1,69 @@
+package com.ail.optile.jobservice.delay;
+
+import com.ail.optile.jobservice.domain.DelayedExecution;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Pending delayed execution of a job. The task is linked into a bucket of {@link TimingWheel} by the ticker thread,
+ * its state is switched exactly once: either to fired by the ticker thread or to cancelled by any thread.
+ */
+final class DelayedTask {
+
+    private static final int PENDING = 0;
+    private static final int FIRED = 1;
+    private static final int CANCELLED = 2;
+
+    private static final AtomicIntegerFieldUpdater<DelayedTask> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(DelayedTask.class, "state");
+
+    private final long id;
+    private final String jobName;
+    private final long fireTime;
+
+    private volatile int state = PENDING;
+
+    // owned by the ticker thread
+    DelayedTask prev;
+    DelayedTask next;
+    TimingWheel.Bucket bucket;
+
+    DelayedTask(long id, String jobName, long fireTime) {
+        this.id = id;
+        this.jobName = jobName;
+        this.fireTime = fireTime;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    String getJobName() {
+        return jobName;
+    }
+
+    long getFireTime() {
+        return fireTime;
+    }
+
+    boolean isPending() {
+        return state == PENDING;
+    }
+
+    boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    boolean fire() {
+        return STATE.compareAndSet(this, PENDING, FIRED);
+    }
+
+    boolean cancel() {
+        return STATE.compareAndSet(this, PENDING, CANCELLED);
+    }
+
+    DelayedExecution toDelayedExecution() {
+        return new DelayedExecution(id, jobName, new Date(fireTime));
+    }
+}
@@ -0,0 +1,178 @@
+package com.ail.optile.jobservice.delay;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel of {@link DelayedTask}s, adding and removing a task is O(1) regardless of the number of
+ * pending tasks.
+ * <p>
+ * Time is divided into ticks of {@code tickMillis}. Every level is a ring of {@code 2^wheelBits} buckets: a bucket
+ * of the first level holds the tasks of a single tick, a bucket of every next level covers the whole ring of the
+ * previous one. A task is linked into the lowest level which reaches its fire time. When the first level wraps
+ * around, the current bucket of the next level is cascaded, i.e. its tasks are added again and so move down to
+ * the lower levels. The tasks beyond the last level are parked in its farthest bucket until they come closer.
+ * <p>
+ * Not thread-safe, the wheel is owned by the ticker thread of {@link DelayedExecutionEngine}.
+ */
+final class TimingWheel {
+
+    private final long tickMillis;
+    private final int wheelBits;
+    private final long mask;
+    private final Bucket[][] levels;
+    private final long maxDelayTicks;
+
+    // next tick to expire
+    private long currentTick;
+    private int size;
+
+    TimingWheel(long tickMillis, int wheelBits, int levelCount, long startTime) {
+        if (tickMillis <= 0 || wheelBits <= 0 || levelCount <= 0 || wheelBits * levelCount >= Long.SIZE - 1) {
+            throw new IllegalArgumentException("Incorrect timing wheel configuration");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelBits = wheelBits;
+        this.mask = (1L << wheelBits) - 1;
+        this.levels = new Bucket[levelCount][1 << wheelBits];
+        for (Bucket[] level : levels) {
+            for (int i = 0; i < level.length; i++) {
+                level[i] = new Bucket();
+            }
+        }
+        this.maxDelayTicks = (1L << (wheelBits * levelCount)) - 1;
+        this.currentTick = startTime / tickMillis;
+    }
+
+    /**
+     * Links the task into the bucket of its fire time. A task which is due is expired by the next
+     * {@link #advance(long, Consumer)}.
+     */
+    void add(DelayedTask task) {
+        // rounded up to never fire early
+        long expirationTick = Math.max((task.getFireTime() + tickMillis - 1) / tickMillis, currentTick);
+        long delay = Math.min(expirationTick - currentTick, maxDelayTicks);
+        expirationTick = currentTick + delay;
+
+        int level = 0;
+        while ((delay >>> (wheelBits * (level + 1))) != 0) {
+            level++;
+        }
+        int index = (int) ((expirationTick >>> (wheelBits * level)) & mask);
+        levels[level][index].append(task);
+        size++;
+    }
+
+    /**
+     * Unlinks the task, does nothing if the task isn't in the wheel.
+     */
+    void remove(DelayedTask task) {
+        if (task.bucket != null) {
+            task.bucket.unlink(task);
+            size--;
+        }
+    }
+
+    /**
+     * Expires all ticks up to the current time.
+     *
+     * @param now     current time in millis
+     * @param expired receives every expired task, cancelled tasks included
+     */
+    void advance(long now, Consumer<DelayedTask> expired) {
+        long nowTick = now / tickMillis;
+        if (size == 0) {
+            // nothing to cascade or expire in the skipped ticks
+            currentTick = Math.max(currentTick, nowTick + 1);
+            return;
+        }
+        while (currentTick <= nowTick) {
+            if ((currentTick & mask) == 0) {
+                cascade();
+            }
+            Bucket bucket = levels[0][(int) (currentTick & mask)];
+            DelayedTask task = bucket.clear();
+            while (task != null) {
+                DelayedTask next = task.next;
+                task.next = null;
+                size--;
+                expired.accept(task);
+                task = next;
+            }
+            currentTick++;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void cascade() {
+        for (int level = 1; level < levels.length; level++) {
+            int index = (int) ((currentTick >>> (wheelBits * level)) & mask);
+            DelayedTask task = levels[level][index].clear();
+            while (task != null) {
+                DelayedTask next = task.next;
+                task.next = null;
+                size--;
+                add(task);
+                task = next;
+            }
+            if (index != 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Doubly-linked list of the tasks, the links are kept in the tasks themselves.
+     */
+    static final class Bucket {
+
+        private DelayedTask head;
+        private DelayedTask tail;
+
+        void append(DelayedTask task) {
+            task.bucket = this;
+            task.prev = tail;
+            task.next = null;
+            if (tail == null) {
+                head = task;
+            } else {
+                tail.next = task;
+            }
+            tail = task;
+        }
+
+        void unlink(DelayedTask task) {
+            if (task.prev == null) {
+                head = task.next;
+            } else {
+                task.prev.next = task.next;
+            }
+            if (task.next == null) {
+                tail = task.prev;
+            } else {
+                task.next.prev = task.prev;
+            }
+            task.prev = null;
+            task.next = null;
+            task.bucket = null;
+        }
+
+        /**
+         * Detaches all tasks from the bucket.
+         *
+         * @return the first task, the rest are reachable through {@link DelayedTask#next}
+         */
+        DelayedTask clear() {
+            DelayedTask first = head;
+            for (DelayedTask task = first; task != null; task = task.next) {
+                task.prev = null;
+                task.bucket = null;
+            }
+            head = null;
+            tail = null;
+            return first;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.ail.optile.jobservice.domain;
+
+import lombok.*;
+
+/**
+ * Result of a single job of a bulk operation. The jobs which aren't {@link Status#DONE} are left untouched.
+ * An {@link Status#UNCHANGED} job already matches the request, so nothing was stored.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkJobResult {
+
+    private String name;
+    private Status status;
+    private String message;
+
+    public enum Status {
+        DONE,
+        UNCHANGED,
+        INCORRECT_REQUEST,
+        ALREADY_EXISTS,
+        NOT_FOUND,
+        CURRENTLY_RUNNING
+    }
+
+    public static BulkJobResult done(String name) {
+        return new BulkJobResult(name, Status.DONE, null);
+    }
+
+    public static BulkJobResult unchanged(String name) {
+        return new BulkJobResult(name, Status.UNCHANGED, null);
+    }
+
+    public static BulkJobResult failed(String name, Status status, String message) {
+        return new BulkJobResult(name, status, message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.ail.optile.jobservice.domain;
+
+import lombok.*;
+
+import java.util.Date;
+
+/**
+ * Single execution of a job scheduled to happen after a delay.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DelayedExecution {
+
+    private long id;
+    private String jobName;
+    private Date fireDate;
+}
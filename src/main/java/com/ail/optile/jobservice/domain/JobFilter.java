@@ -0,0 +1,20 @@
+package com.ail.optile.jobservice.domain;
+
+import com.ail.optile.jobservice.api.JobInfo;
+import lombok.*;
+
+/**
+ * Criteria of listed jobs, every criterion which is null matches all jobs.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JobFilter {
+
+    private JobInfo.State state;
+    private Integer priority;
+    private String namePrefix;
+    private String cron;
+}
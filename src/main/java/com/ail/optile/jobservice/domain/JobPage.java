@@ -0,0 +1,21 @@
+package com.ail.optile.jobservice.domain;
+
+import com.ail.optile.jobservice.api.JobInfo;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Jobs ordered by name. {@link #next} is the name of the last job of the page when there are more jobs, it should be
+ * passed as {@code after} to fetch the next page.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JobPage {
+
+    private List<JobInfo> jobs;
+    private String next;
+}
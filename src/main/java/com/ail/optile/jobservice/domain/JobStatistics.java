@@ -0,0 +1,16 @@
+package com.ail.optile.jobservice.domain;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JobStatistics {
+
+    private String name;
+    private List<WindowStatistics> windows;
+}
@@ -0,0 +1,21 @@
+package com.ail.optile.jobservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Version of a job or of all jobs which changes whenever the job info may change. Versions are unique within
+ * {@link #epoch} (start of the application), so {@link #getTag()} is unique across restarts.
+ */
+@Getter
+@AllArgsConstructor
+public class JobVersion {
+
+    private final long epoch;
+    private final long version;
+    private final long lastModified;
+
+    public String getTag() {
+        return epoch + "-" + version;
+    }
+}
@@ -3,6 +3,8 @@ package com.ail.optile.jobservice.domain;
 import com.ail.optile.jobservice.api.JobInfo;
 import lombok.*;
 
+import java.util.List;
+
 @Getter
 @Setter
 @NoArgsConstructor
@@ -12,6 +14,7 @@ public class NativeJobInfo implements JobInfo {
 
     private String name;
     private String command;
+    private List<String> argv;
     private String cron;
     private Integer priority;
     private JobInfo.State state;
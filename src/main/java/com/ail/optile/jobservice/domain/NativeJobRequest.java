@@ -4,6 +4,8 @@ import com.ail.optile.jobservice.api.JobRequest;
 import com.ail.optile.jobservice.quartz.NativeJob;
 import lombok.*;
 
+import java.util.List;
+
 @Getter
 @Setter
 @NoArgsConstructor
@@ -13,6 +15,10 @@ public class NativeJobRequest extends NativeJob implements JobRequest {
 
     private String name;
     private String command;
+    private List<String> argv;
     private String cron;
     private Integer priority;
+    private Boolean releaseWorker;
+    private Boolean coprocess;
+    private Long timeoutSeconds;
 }
@@ -0,0 +1,31 @@
+package com.ail.optile.jobservice.domain;
+
+import lombok.*;
+
+import java.util.Date;
+
+/**
+ * Status of an ad-hoc task, the result fields are set once it's {@link Status#COMPLETED}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaskResult {
+
+    private long ticketId;
+    private Status status;
+    private String name;
+    private Date submitDate;
+    private Date startDate;
+    private Date completionDate;
+    private String result;
+    private Integer exitCode;
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        COMPLETED
+    }
+}
@@ -0,0 +1,25 @@
+package com.ail.optile.jobservice.domain;
+
+import lombok.*;
+
+/**
+ * Statistics of job executions completed within a sliding window. Durations are in milliseconds and are null when
+ * there were no executions with known duration.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WindowStatistics {
+
+    private String window;
+    private long executions;
+    private long successes;
+    private long failures;
+    private long timeouts;
+    private Double successRate;
+    private Long p50;
+    private Long p95;
+    private Long p99;
+}
@@ -0,0 +1,28 @@
+package com.ail.optile.jobservice.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * Change of a job state published by {@link JobEventBroker}. Ids grow in the order the events are published.
+ */
+@Getter
+@AllArgsConstructor
+public class JobEvent {
+
+    private final long id;
+    private final Type type;
+    private final String jobName;
+    private final Date date;
+
+    public enum Type {
+        FIRED,
+        MISFIRED,
+        STARTED,
+        SUCCEEDED,
+        FAILED,
+        TIMED_OUT
+    }
+}
@@ -0,0 +1,263 @@
+package com.ail.optile.jobservice.events;
+
+import com.ail.optile.jobservice.support.AsyncBatchWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans job events out to the subscribers.
+ * <p>
+ * Publishing only enqueues the event (and does nothing without subscribers). It never blocks the publisher, which may
+ * be a Quartz thread: when the queue is full the event is dropped and counted, and every subscriber of the event is
+ * overflowed, so it learns about the gap and reconnects. A single dispatcher thread looks up the subscribers of the job
+ * and puts the event into the bounded buffer of every matching subscriber. Buffers are drained to the sinks by a small
+ * pool of sender threads, a subscriber which overflows its buffer is disconnected. Idle subscribers hold neither
+ * threads nor timers.
+ */
+@Component
+@Slf4j
+public class JobEventBroker extends AsyncBatchWriter<JobEvent> {
+
+    private final int bufferSize;
+    private final int senderThreads;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger subscriptionCount = new AtomicInteger();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final Set<Subscription> allJobsSubscriptions = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, Set<Subscription>> jobSubscriptions = new ConcurrentHashMap<>();
+
+    // the lifecycle has a lock of its own to not share the monitor of the broker
+    private final Object lifecycleLock = new Object();
+    private volatile ExecutorService senders;
+
+    @Autowired
+    public JobEventBroker(
+            @Value("${job-service.events.queue-capacity:10000}") int queueCapacity,
+            @Value("${job-service.events.batch-size:100}") int batchSize,
+            @Value("${job-service.events.linger-ms:10}") long lingerMillis,
+            @Value("${job-service.events.subscriber-buffer-size:256}") int bufferSize,
+            @Value("${job-service.events.sender-threads:2}") int senderThreads) {
+        super("job-event-dispatcher", queueCapacity, batchSize, lingerMillis);
+        this.bufferSize = bufferSize;
+        this.senderThreads = senderThreads;
+    }
+
+    @PostConstruct
+    @Override
+    public void start() {
+        synchronized (lifecycleLock) {
+            if (senders != null) {
+                return;
+            }
+            AtomicInteger threadNumber = new AtomicInteger();
+            senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+                Thread thread = new Thread(runnable, "job-event-sender-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            super.start();
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void shutdown() {
+        synchronized (lifecycleLock) {
+            super.shutdown();
+            if (senders != null) {
+                senders.shutdownNow();
+            }
+        }
+
+        List<Subscription> subscriptions = new ArrayList<>(allJobsSubscriptions);
+        jobSubscriptions.values().forEach(subscriptions::addAll);
+        subscriptions.forEach(Subscription::close);
+    }
+
+    public void publish(JobEvent.Type type, String jobName) {
+        if (subscriptionCount.get() == 0) {
+            return;
+        }
+        JobEvent event = new JobEvent(sequence.incrementAndGet(), type, jobName, new Date());
+        if (!offer(event)) {
+            droppedCount.incrementAndGet();
+            log.debug("Event {} of job '{}' is dropped, the queue is full", type, jobName);
+            overflow(event, allJobsSubscriptions);
+            Set<Subscription> subscriptions = jobSubscriptions.get(jobName);
+            if (subscriptions != null) {
+                overflow(event, subscriptions);
+            }
+        }
+    }
+
+    /**
+     * Subscribes the sink to the events of the jobs.
+     *
+     * @param jobNames names of the jobs, empty for all jobs
+     * @param types    types of the events, empty for all types
+     */
+    public Subscription subscribe(Set<String> jobNames, Set<JobEvent.Type> types, JobEventSink sink) {
+        Subscription subscription = new Subscription(jobNames, types, sink);
+        if (jobNames.isEmpty()) {
+            allJobsSubscriptions.add(subscription);
+        } else {
+            jobNames.forEach(jobName -> jobSubscriptions
+                    .computeIfAbsent(jobName, name -> ConcurrentHashMap.newKeySet())
+                    .add(subscription));
+        }
+        subscriptionCount.incrementAndGet();
+        return subscription;
+    }
+
+    public int getSubscriptionCount() {
+        return subscriptionCount.get();
+    }
+
+    /**
+     * @return number of events dropped because the queue was full
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @Override
+    protected void write(List<JobEvent> batch) {
+        for (JobEvent event : batch) {
+            deliver(event, allJobsSubscriptions);
+            Set<Subscription> subscriptions = jobSubscriptions.get(event.getJobName());
+            if (subscriptions != null) {
+                deliver(event, subscriptions);
+            }
+        }
+    }
+
+    private void deliver(JobEvent event, Set<Subscription> subscriptions) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.accepts(event)) {
+                subscription.offer(event);
+                scheduleDrain(subscription);
+            }
+        }
+    }
+
+    /**
+     * Marks the subscribers of the dropped event as overflowed. They get the events which are already buffered and
+     * are disconnected instead of getting the events after the gap.
+     */
+    private void overflow(JobEvent event, Set<Subscription> subscriptions) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.accepts(event)) {
+                subscription.overflowed = true;
+                scheduleDrain(subscription);
+            }
+        }
+    }
+
+    private void scheduleDrain(Subscription subscription) {
+        if (!subscription.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            senders.execute(subscription::drain);
+        } catch (RejectedExecutionException e) {
+            subscription.draining.set(false);
+            subscription.close();
+        }
+    }
+
+    public final class Subscription {
+
+        private final Set<String> jobNames;
+        private final Set<JobEvent.Type> types;
+        private final JobEventSink sink;
+        private final BlockingQueue<JobEvent> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile boolean overflowed;
+
+        private Subscription(Set<String> jobNames, Set<JobEvent.Type> types, JobEventSink sink) {
+            this.jobNames = new HashSet<>(jobNames);
+            this.types = types.isEmpty() ? EnumSet.allOf(JobEvent.Type.class) : EnumSet.copyOf(types);
+            this.sink = sink;
+        }
+
+        /**
+         * Stops delivery of the events, the sink isn't closed.
+         */
+        public void cancel() {
+            unsubscribe();
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        private boolean unsubscribe() {
+            if (!cancelled.compareAndSet(false, true)) {
+                return false;
+            }
+            if (jobNames.isEmpty()) {
+                allJobsSubscriptions.remove(this);
+            } else {
+                jobNames.forEach(jobName -> jobSubscriptions.computeIfPresent(jobName, (name, subscriptions) -> {
+                    subscriptions.remove(this);
+                    return subscriptions.isEmpty() ? null : subscriptions;
+                }));
+            }
+            subscriptionCount.decrementAndGet();
+            return true;
+        }
+
+        private boolean accepts(JobEvent event) {
+            return !overflowed && types.contains(event.getType());
+        }
+
+        private void offer(JobEvent event) {
+            if (!buffer.offer(event)) {
+                overflowed = true;
+            }
+        }
+
+        private void drain() {
+            try {
+                JobEvent event;
+                while (!isCancelled() && (event = buffer.poll()) != null) {
+                    sink.send(event);
+                }
+                if (overflowed && !isCancelled()) {
+                    log.warn("Job event subscriber has missed events, it's too slow or the dispatch queue is full");
+                    sink.overflow();
+                    close();
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Job event subscriber is disconnected: {}", e.getMessage());
+                close();
+            } finally {
+                draining.set(false);
+            }
+
+            // the publisher may have overflowed the subscription after the check above
+            if ((!buffer.isEmpty() || overflowed) && !isCancelled()) {
+                scheduleDrain(this);
+            }
+        }
+
+        private void close() {
+            buffer.clear();
+            if (unsubscribe()) {
+                sink.close();
+            }
+        }
+    }
+}
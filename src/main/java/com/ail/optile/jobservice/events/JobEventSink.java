@@ -0,0 +1,22 @@
+package com.ail.optile.jobservice.events;
+
+import java.io.IOException;
+
+/**
+ * Receiver of the events of a {@link JobEventBroker.Subscription}. Methods are called by one sender thread at a
+ * time, so a slow sink never delays other subscribers.
+ */
+public interface JobEventSink {
+
+    void send(JobEvent event) throws IOException;
+
+    /**
+     * Called when the subscriber didn't keep up and events were dropped, {@link #close()} follows.
+     */
+    void overflow() throws IOException;
+
+    /**
+     * Called when the subscription is over because of an overflow, a failed {@link #send(JobEvent)} or shutdown.
+     */
+    void close();
+}
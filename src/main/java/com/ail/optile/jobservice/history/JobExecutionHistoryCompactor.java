@@ -0,0 +1,258 @@
+package com.ail.optile.jobservice.history;
+
+import com.ail.optile.jobservice.output.ExecutionOutputStore;
+import com.ail.optile.jobservice.pdo.JobExecutionHistory;
+import com.ail.optile.jobservice.pdo.JobExecutionRollup;
+import com.ail.optile.jobservice.repository.JobExecutionHistoryRepository;
+import com.ail.optile.jobservice.repository.JobExecutionRollupRepository;
+import com.ail.optile.jobservice.statistics.DurationSketch;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Applies the retention policy of the execution history in the background:
+ * <ul>
+ * <li>raw {@link JobExecutionHistory} rows older than {@code job-service.history.raw-retention-hours} are compacted
+ * into hourly {@link JobExecutionRollup}s and their output files are removed. The latest row of every job is kept
+ * regardless of its age, the state of the job is warmed up from it at startup</li>
+ * <li>hourly rollups older than {@code job-service.history.hourly-retention-days} are compacted into daily ones</li>
+ * <li>daily rollups older than {@code job-service.history.daily-retention-days} are removed</li>
+ * <li>results of ad-hoc tasks older than {@code job-service.adhoc.result-retention-hours} are removed together with
+ * their output files, they're never compacted into the rollups of the jobs</li>
+ * </ul>
+ * Every step works in batches of {@code job-service.history.compaction-batch-size} rows, each in its own transaction,
+ * and a single run processes at most {@code job-service.history.compaction-max-batches} batches per step.
+ */
+@Component
+@Slf4j
+public class JobExecutionHistoryCompactor {
+
+    private final JobExecutionHistoryRepository historyRepository;
+    private final JobExecutionRollupRepository rollupRepository;
+    private final ExecutionOutputStore outputStore;
+    private final TransactionTemplate transactionTemplate;
+    private final long rawRetentionMillis;
+    private final long hourlyRetentionMillis;
+    private final long dailyRetentionMillis;
+    private final long taskResultRetentionMillis;
+    private final int batchSize;
+    private final int maxBatches;
+
+    @Autowired
+    public JobExecutionHistoryCompactor(
+            JobExecutionHistoryRepository historyRepository,
+            JobExecutionRollupRepository rollupRepository,
+            ExecutionOutputStore outputStore,
+            TransactionTemplate transactionTemplate,
+            @Value("${job-service.history.raw-retention-hours:168}") long rawRetentionHours,
+            @Value("${job-service.history.hourly-retention-days:30}") long hourlyRetentionDays,
+            @Value("${job-service.history.daily-retention-days:365}") long dailyRetentionDays,
+            @Value("${job-service.adhoc.result-retention-hours:24}") long taskResultRetentionHours,
+            @Value("${job-service.history.compaction-batch-size:1000}") int batchSize,
+            @Value("${job-service.history.compaction-max-batches:10}") int maxBatches) {
+        this.historyRepository = historyRepository;
+        this.rollupRepository = rollupRepository;
+        this.outputStore = outputStore;
+        this.transactionTemplate = transactionTemplate;
+        this.rawRetentionMillis = TimeUnit.HOURS.toMillis(rawRetentionHours);
+        this.hourlyRetentionMillis = TimeUnit.DAYS.toMillis(hourlyRetentionDays);
+        this.dailyRetentionMillis = TimeUnit.DAYS.toMillis(dailyRetentionDays);
+        this.taskResultRetentionMillis = TimeUnit.HOURS.toMillis(taskResultRetentionHours);
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    @Scheduled(
+            initialDelayString = "${job-service.history.compaction-interval-ms:60000}",
+            fixedDelayString = "${job-service.history.compaction-interval-ms:60000}")
+    public void compact() {
+        long now = System.currentTimeMillis();
+        try {
+            int history = repeat(this::compactHistoryBatch,
+                    JobExecutionRollup.Granularity.HOUR.getPeriodStart(new Date(now - rawRetentionMillis)));
+            int hourly = repeat(this::compactHourlyBatch,
+                    JobExecutionRollup.Granularity.DAY.getPeriodStart(new Date(now - hourlyRetentionMillis)));
+            int daily = repeat(this::purgeDailyBatch, new Date(now - dailyRetentionMillis));
+            int tasks = repeat(this::purgeTaskResultBatch, new Date(now - taskResultRetentionMillis));
+
+            if (history + hourly + daily + tasks > 0) {
+                log.info("Execution history compacted: {} executions, {} hourly rollups, {} daily rollups, "
+                        + "{} task results purged", history, hourly, daily, tasks);
+            }
+        } catch (RuntimeException e) {
+            log.error("Unable to compact execution history: " + e.getMessage(), e);
+        }
+    }
+
+    private int repeat(BatchStep step, Date before) {
+        int total = 0;
+        for (int i = 0; i < maxBatches; i++) {
+            int processed = step.process(before);
+            total += processed;
+            if (processed < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private int compactHistoryBatch(Date before) {
+        List<JobExecutionHistory> batch = transactionTemplate.execute(status -> {
+            List<JobExecutionHistory> histories = historyRepository
+                    .findSupersededBefore(before, PageRequest.of(0, batchSize));
+            if (histories.isEmpty()) {
+                return histories;
+            }
+
+            Map<RollupKey, Aggregate> aggregates = new HashMap<>();
+            for (JobExecutionHistory jobExecutionHistory : histories) {
+                aggregates.computeIfAbsent(
+                        new RollupKey(
+                                jobExecutionHistory.getJobName(),
+                                JobExecutionRollup.Granularity.HOUR.getPeriodStart(
+                                        jobExecutionHistory.getCompletionDate())),
+                        key -> new Aggregate())
+                        .add(jobExecutionHistory);
+            }
+            mergeInto(JobExecutionRollup.Granularity.HOUR, aggregates);
+            historyRepository.deleteByIds(histories.stream()
+                    .map(JobExecutionHistory::getId)
+                    .collect(Collectors.toList()));
+            return histories;
+        });
+
+        batch.stream()
+                .map(JobExecutionHistory::getOutputFile)
+                .filter(Objects::nonNull)
+                .forEach(outputStore::deleteOutput);
+        return batch.size();
+    }
+
+    private int compactHourlyBatch(Date before) {
+        return transactionTemplate.execute(status -> {
+            List<JobExecutionRollup> rollups = rollupRepository.findByGranularityAndPeriodStartBeforeOrderByIdAsc(
+                    JobExecutionRollup.Granularity.HOUR, before, PageRequest.of(0, batchSize));
+            if (rollups.isEmpty()) {
+                return 0;
+            }
+
+            Map<RollupKey, Aggregate> aggregates = new HashMap<>();
+            for (JobExecutionRollup rollup : rollups) {
+                aggregates.computeIfAbsent(
+                        new RollupKey(
+                                rollup.getJobName(),
+                                JobExecutionRollup.Granularity.DAY.getPeriodStart(rollup.getPeriodStart())),
+                        key -> new Aggregate())
+                        .add(rollup);
+            }
+            mergeInto(JobExecutionRollup.Granularity.DAY, aggregates);
+            rollupRepository.deleteByIds(rollups.stream()
+                    .map(JobExecutionRollup::getId)
+                    .collect(Collectors.toList()));
+            return rollups.size();
+        });
+    }
+
+    private int purgeDailyBatch(Date before) {
+        return transactionTemplate.execute(status -> {
+            List<Long> ids = rollupRepository.findByGranularityAndPeriodStartBeforeOrderByIdAsc(
+                    JobExecutionRollup.Granularity.DAY, before, PageRequest.of(0, batchSize))
+                    .stream()
+                    .map(JobExecutionRollup::getId)
+                    .collect(Collectors.toList());
+            if (!ids.isEmpty()) {
+                rollupRepository.deleteByIds(ids);
+            }
+            return ids.size();
+        });
+    }
+
+    private int purgeTaskResultBatch(Date before) {
+        List<JobExecutionHistory> batch = transactionTemplate.execute(status -> {
+            List<JobExecutionHistory> histories = historyRepository
+                    .findByTicketIdIsNotNullAndCompletionDateBeforeOrderByCompletionDateAsc(
+                            before, PageRequest.of(0, batchSize));
+            if (!histories.isEmpty()) {
+                historyRepository.deleteByIds(histories.stream()
+                        .map(JobExecutionHistory::getId)
+                        .collect(Collectors.toList()));
+            }
+            return histories;
+        });
+
+        batch.stream()
+                .map(JobExecutionHistory::getOutputFile)
+                .filter(Objects::nonNull)
+                .forEach(outputStore::deleteOutput);
+        return batch.size();
+    }
+
+    private void mergeInto(JobExecutionRollup.Granularity granularity, Map<RollupKey, Aggregate> aggregates) {
+        aggregates.forEach((key, aggregate) -> {
+            JobExecutionRollup rollup = rollupRepository
+                    .findByJobNameAndGranularityAndPeriodStart(key.jobName, granularity, key.periodStart)
+                    .orElseGet(() -> new JobExecutionRollup(key.jobName, granularity, key.periodStart));
+            rollup.merge(aggregate.successes, aggregate.failures, aggregate.timeouts, aggregate.durations);
+            rollupRepository.save(rollup);
+        });
+    }
+
+    private interface BatchStep {
+
+        /**
+         * @return number of processed rows
+         */
+        int process(Date before);
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static final class RollupKey {
+
+        private final String jobName;
+        private final Date periodStart;
+    }
+
+    private static final class Aggregate {
+
+        private final DurationSketch durations = new DurationSketch();
+        private long successes;
+        private long failures;
+        private long timeouts;
+
+        private void add(JobExecutionHistory jobExecutionHistory) {
+            switch (jobExecutionHistory.getResult()) {
+                case SUCCESS:
+                    successes++;
+                    break;
+                case FAILED:
+                    failures++;
+                    break;
+                case TIMED_OUT:
+                    timeouts++;
+                    break;
+            }
+            if (jobExecutionHistory.getDuration() != null) {
+                durations.record(jobExecutionHistory.getDuration());
+            }
+        }
+
+        private void add(JobExecutionRollup rollup) {
+            successes += rollup.getSuccesses();
+            failures += rollup.getFailures();
+            timeouts += rollup.getTimeouts();
+            durations.merge(rollup.getDurations());
+        }
+    }
+}
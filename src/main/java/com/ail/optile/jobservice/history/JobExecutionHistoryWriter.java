@@ -0,0 +1,48 @@
+package com.ail.optile.jobservice.history;
+
+import com.ail.optile.jobservice.pdo.JobExecutionHistory;
+import com.ail.optile.jobservice.repository.JobExecutionHistoryRepository;
+import com.ail.optile.jobservice.support.AsyncBatchWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+
+/**
+ * Writes {@link JobExecutionHistory} records in JDBC batches off the Quartz worker threads.
+ */
+@Component
+public class JobExecutionHistoryWriter extends AsyncBatchWriter<JobExecutionHistory> {
+
+    private final JobExecutionHistoryRepository historyRepository;
+
+    @Autowired
+    public JobExecutionHistoryWriter(
+            JobExecutionHistoryRepository historyRepository,
+            @Value("${job-service.history.queue-capacity:10000}") int queueCapacity,
+            @Value("${job-service.history.batch-size:100}") int batchSize,
+            @Value("${job-service.history.linger-ms:200}") long lingerMillis) {
+        super("job-execution-history-writer", queueCapacity, batchSize, lingerMillis);
+        this.historyRepository = historyRepository;
+    }
+
+    @PostConstruct
+    @Override
+    public void start() {
+        super.start();
+    }
+
+    @PreDestroy
+    @Override
+    public void shutdown() {
+        super.shutdown();
+    }
+
+    @Override
+    protected void write(List<JobExecutionHistory> batch) {
+        historyRepository.saveAll(batch);
+    }
+}
@@ -0,0 +1,153 @@
+package com.ail.optile.jobservice.history;
+
+import com.ail.optile.jobservice.output.ExecutionOutputStore;
+import com.ail.optile.jobservice.pdo.JobExecutionHistory;
+import com.ail.optile.jobservice.pdo.JobExecutionRollup;
+import com.ail.optile.jobservice.pdo.JobTombstone;
+import com.ail.optile.jobservice.registry.JobDefinitionRegistry;
+import com.ail.optile.jobservice.repository.JobExecutionHistoryRepository;
+import com.ail.optile.jobservice.repository.JobExecutionRollupRepository;
+import com.ail.optile.jobservice.repository.JobTombstoneRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Purges the execution history, rollups and output files of deleted jobs in the background, so deleting a job only
+ * stores a {@link JobTombstone}. Results of ad-hoc tasks named as the job are kept, they have a retention of their
+ * own. The jobs are purged in the order of deletion, in batches of {@code job-service.purge.batch-size} rows, each in
+ * its own transaction. A single run processes at most {@code job-service.purge.max-batches} batches and pauses
+ * {@code job-service.purge.batch-pause-ms} between them, so the purge doesn't hold the database. The pauses hold a
+ * thread of the scheduling pool, which is sized by {@code spring.task.scheduling.pool.size} to not delay the other
+ * background tasks.
+ */
+@Component
+@Slf4j
+public class JobHistoryPurger {
+
+    private final JobTombstoneRepository tombstoneRepository;
+    private final JobExecutionHistoryRepository historyRepository;
+    private final JobExecutionRollupRepository rollupRepository;
+    private final ExecutionOutputStore outputStore;
+    private final JobDefinitionRegistry jobDefinitionRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatches;
+    private final long batchPauseMillis;
+
+    @Autowired
+    public JobHistoryPurger(
+            JobTombstoneRepository tombstoneRepository,
+            JobExecutionHistoryRepository historyRepository,
+            JobExecutionRollupRepository rollupRepository,
+            ExecutionOutputStore outputStore,
+            JobDefinitionRegistry jobDefinitionRegistry,
+            TransactionTemplate transactionTemplate,
+            @Value("${job-service.purge.batch-size:1000}") int batchSize,
+            @Value("${job-service.purge.max-batches:100}") int maxBatches,
+            @Value("${job-service.purge.batch-pause-ms:100}") long batchPauseMillis) {
+        this.tombstoneRepository = tombstoneRepository;
+        this.historyRepository = historyRepository;
+        this.rollupRepository = rollupRepository;
+        this.outputStore = outputStore;
+        this.jobDefinitionRegistry = jobDefinitionRegistry;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.batchPauseMillis = batchPauseMillis;
+    }
+
+    @Scheduled(
+            initialDelayString = "${job-service.purge.interval-ms:10000}",
+            fixedDelayString = "${job-service.purge.interval-ms:10000}")
+    public void purge() {
+        try {
+            for (int i = 0; i < maxBatches && purgeBatch(); i++) {
+                Thread.sleep(batchPauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Unable to purge data of deleted jobs: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Purges a batch of the earliest deleted job: its execution history first, then its rollups. Once both are
+     * purged, the output directory of the job is removed unless the job is created again, then the tombstone.
+     *
+     * @return false if there are no deleted jobs to purge
+     */
+    private boolean purgeBatch() {
+        JobTombstone tombstone = tombstoneRepository.findFirstByOrderByIdAsc().orElse(null);
+        if (tombstone == null) {
+            return false;
+        }
+
+        if (purgeHistoryBatch(tombstone) > 0 || purgeRollupBatch(tombstone) > 0) {
+            return true;
+        }
+
+        // the output files which aren't referenced by the history any more, ad-hoc tasks of the same name share them
+        if (!jobDefinitionRegistry.contains(tombstone.getJobName())
+                && !historyRepository.existsByJobNameAndTicketIdIsNotNull(tombstone.getJobName())) {
+            outputStore.deleteJobOutput(tombstone.getJobName());
+        }
+        tombstoneRepository.delete(tombstone);
+        log.info("Data of deleted job '{}' purged", tombstone.getJobName());
+        return true;
+    }
+
+    private int purgeHistoryBatch(JobTombstone tombstone) {
+        List<JobExecutionHistory> batch = transactionTemplate.execute(status -> {
+            List<JobExecutionHistory> histories = historyRepository
+                    .findByJobNameAndTicketIdIsNullAndCompletionDateLessThanEqualOrderByCompletionDateAsc(
+                            tombstone.getJobName(), tombstone.getDeletionDate(), PageRequest.of(0, batchSize));
+            if (!histories.isEmpty()) {
+                historyRepository.deleteByIds(histories.stream()
+                        .map(JobExecutionHistory::getId)
+                        .collect(Collectors.toList()));
+            }
+            return histories;
+        });
+
+        batch.stream()
+                .map(JobExecutionHistory::getOutputFile)
+                .filter(Objects::nonNull)
+                .forEach(outputStore::deleteOutput);
+        return batch.size();
+    }
+
+    /**
+     * Purges the rollups of the periods which started before the deletion. The period of the deletion may hold the
+     * executions of the job created again too, it's kept if the job exists.
+     */
+    private int purgeRollupBatch(JobTombstone tombstone) {
+        boolean created = jobDefinitionRegistry.contains(tombstone.getJobName());
+        return transactionTemplate.execute(status -> {
+            List<Long> ids = new ArrayList<>();
+            for (JobExecutionRollup.Granularity granularity : JobExecutionRollup.Granularity.values()) {
+                Date before = created
+                        ? granularity.getPeriodStart(tombstone.getDeletionDate())
+                        : tombstone.getDeletionDate();
+                rollupRepository.findByJobNameAndGranularityAndPeriodStartBeforeOrderByIdAsc(
+                        tombstone.getJobName(), granularity, before, PageRequest.of(0, batchSize))
+                        .forEach(rollup -> ids.add(rollup.getId()));
+            }
+            if (!ids.isEmpty()) {
+                rollupRepository.deleteByIds(ids);
+            }
+            return ids.size();
+        });
+    }
+}
@@ -0,0 +1,186 @@
+package com.ail.optile.jobservice.journal;
+
+import com.ail.optile.jobservice.pdo.JobChange;
+import com.ail.optile.jobservice.repository.JobChangeRepository;
+import com.ail.optile.jobservice.support.AsyncBatchWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only journal of job definition changes and execution results for incremental sync of job mirrors.
+ * <p>
+ * Changes are written by the single writer thread of {@link AsyncBatchWriter}, so sequence numbers are assigned and
+ * committed in the same order and a reader which asks for the changes after the last seen number never skips one.
+ * Changes older than {@code job-service.journal.retention-days} are purged every
+ * {@code job-service.journal.purge-interval-ms}.
+ * <p>
+ * A reader can't continue from a position below the purged changes, not even from the beginning, nor after a change
+ * written before changes which failed all attempts to be written, see {@link #isContinuousSince(long)}. A reader which
+ * starts from scratch reads the {@link #getHead() head} before it loads the jobs and continues after it. The latest
+ * change is never purged, so the oldest retained change tells after a restart where the purged changes end. Lost
+ * changes are only known until restart.
+ */
+@Component
+@Slf4j
+public class JobChangeJournal extends AsyncBatchWriter<JobChange> {
+
+    private final JobChangeRepository changeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long retentionMillis;
+    private final int purgeBatchSize;
+
+    // set by the writer thread: a reader which has seen a change written before lost ones has to reload the jobs
+    private volatile boolean changesLost;
+    private volatile long continuousFrom;
+    // changes up to this sequence number may be purged, it's raised before they're deleted
+    private volatile long purgedThrough;
+
+    @Autowired
+    public JobChangeJournal(
+            JobChangeRepository changeRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${job-service.journal.queue-capacity:10000}") int queueCapacity,
+            @Value("${job-service.journal.batch-size:100}") int batchSize,
+            @Value("${job-service.journal.linger-ms:200}") long lingerMillis,
+            @Value("${job-service.journal.retention-days:30}") long retentionDays,
+            @Value("${job-service.journal.purge-batch-size:1000}") int purgeBatchSize) {
+        super("job-change-journal-writer", queueCapacity, batchSize, lingerMillis);
+        this.changeRepository = changeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.retentionMillis = TimeUnit.DAYS.toMillis(retentionDays);
+        this.purgeBatchSize = purgeBatchSize;
+    }
+
+    @PostConstruct
+    @Override
+    public void start() {
+        JobChange oldest = changeRepository.findTopByOrderByIdAsc();
+        if (oldest != null) {
+            purgedThrough = oldest.getId() - 1;
+        }
+        super.start();
+    }
+
+    @PreDestroy
+    @Override
+    public void shutdown() {
+        super.shutdown();
+    }
+
+    /**
+     * Appends the change to the journal. Within a transaction the change is appended only after the commit.
+     */
+    public void record(JobChange change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(change);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit(change);
+            }
+        });
+    }
+
+    /**
+     * @param since sequence number of the last seen change, 0 to read from the beginning
+     * @return changes ordered by sequence number
+     */
+    public List<JobChange> getChanges(long since, int limit) {
+        return changeRepository.findByIdGreaterThanOrderByIdAsc(since, PageRequest.of(0, limit));
+    }
+
+    /**
+     * @return sequence number of the latest written change to continue after, once the current state of the jobs is
+     * loaded. Changes committed before and written after are read again, which is harmless because every change
+     * carries the whole definition or result.
+     */
+    public long getHead() {
+        JobChange latest = changeRepository.findTopByOrderByIdDesc();
+        return latest != null ? latest.getId() : purgedThrough;
+    }
+
+    /**
+     * Should be checked after the changes are read, so changes purged in the meantime aren't missed.
+     *
+     * @param since sequence number of the last seen change or the {@link #getHead() head}, 0 to read from the
+     *              beginning
+     * @return false if changes after it are purged or lost, so a reader can't continue after it
+     */
+    public boolean isContinuousSince(long since) {
+        long purged = purgedThrough;
+        if (since < purged || since < continuousFrom) {
+            return false;
+        }
+        return since == purged || changeRepository.existsById(since);
+    }
+
+    @Scheduled(
+            initialDelayString = "${job-service.journal.purge-interval-ms:3600000}",
+            fixedDelayString = "${job-service.journal.purge-interval-ms:3600000}")
+    public void purge() {
+        Date before = new Date(System.currentTimeMillis() - retentionMillis);
+        try {
+            int purged = 0;
+            int batch;
+            do {
+                batch = transactionTemplate.execute(status -> {
+                    List<Long> ids = changeRepository
+                            .findByDateBeforeOrderByDateAsc(before, PageRequest.of(0, purgeBatchSize))
+                            .stream()
+                            .map(JobChange::getId)
+                            .collect(Collectors.toList());
+                    JobChange latest = changeRepository.findTopByOrderByIdDesc();
+                    if (latest != null) {
+                        ids.remove(latest.getId());
+                    }
+                    if (!ids.isEmpty()) {
+                        purgedThrough = Math.max(purgedThrough, Collections.max(ids));
+                        changeRepository.deleteByIds(ids);
+                    }
+                    return ids.size();
+                });
+                purged += batch;
+            } while (batch == purgeBatchSize);
+
+            if (purged > 0) {
+                log.info("{} job changes older than {} purged", purged, before);
+            }
+        } catch (RuntimeException e) {
+            log.error("Unable to purge job changes: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected void write(List<JobChange> batch) {
+        changeRepository.saveAll(batch);
+        if (changesLost) {
+            continuousFrom = batch.get(0).getId();
+            changesLost = false;
+        }
+    }
+
+    @Override
+    protected void writeFailed(List<JobChange> batch, Exception e) {
+        super.writeFailed(batch, e);
+        changesLost = true;
+        log.error("{} job changes are lost, readers of the journal will have to reload the jobs", batch.size());
+    }
+}
@@ -0,0 +1,87 @@
+package com.ail.optile.jobservice.listener;
+
+import com.ail.optile.jobservice.registry.JobDefinitionRegistry;
+import org.quartz.*;
+import org.quartz.listeners.SchedulerListenerSupport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Keeps {@link JobDefinitionRegistry} coherent with the job store. Quartz doesn't notify about the triggers of jobs
+ * stored with {@link Scheduler#scheduleJobs}, so a changed job is reloaded from the job store rather than taken from
+ * the notification. The jobs changed within a transaction are reloaded together once it's committed, so rolled back
+ * changes never reach the registry and a bulk change doesn't read the jobs one by one.
+ */
+@Component
+public class JobDefinitionListener extends SchedulerListenerSupport {
+
+    private final JobDefinitionRegistry registry;
+
+    @Autowired
+    public JobDefinitionListener(JobDefinitionRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void jobAdded(JobDetail jobDetail) {
+        reloadAfterCommit(jobDetail.getKey().getName());
+    }
+
+    @Override
+    public void jobDeleted(JobKey jobKey) {
+        reloadAfterCommit(jobKey.getName());
+    }
+
+    @Override
+    public void jobScheduled(Trigger trigger) {
+        // manually fired triggers don't change the job
+        if (trigger instanceof CronTrigger) {
+            reloadAfterCommit(trigger.getJobKey().getName());
+        }
+    }
+
+    @Override
+    public void jobUnscheduled(TriggerKey triggerKey) {
+        String jobName = triggerKey != null ? registry.findJobName(triggerKey) : null;
+        if (jobName != null) {
+            reloadAfterCommit(jobName);
+        }
+    }
+
+    @Override
+    public void triggerFinalized(Trigger trigger) {
+        registry.scheduleFinalized(trigger.getKey());
+    }
+
+    private void reloadAfterCommit(String jobName) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            registry.reload(jobName);
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<String> jobNames = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (jobNames == null) {
+            Set<String> changedJobNames = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, changedJobNames);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    registry.reloadAll(changedJobNames);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(JobDefinitionListener.this);
+                }
+            });
+            jobNames = changedJobNames;
+        }
+        jobNames.add(jobName);
+    }
+}
@@ -1,29 +1,59 @@
 package com.ail.optile.jobservice.listener;
 
+import com.ail.optile.jobservice.events.JobEvent;
+import com.ail.optile.jobservice.events.JobEventBroker;
+import com.ail.optile.jobservice.history.JobExecutionHistoryWriter;
+import com.ail.optile.jobservice.journal.JobChangeJournal;
+import com.ail.optile.jobservice.metrics.JobMetrics;
+import com.ail.optile.jobservice.pdo.JobChange;
 import com.ail.optile.jobservice.pdo.JobExecutionHistory;
-import com.ail.optile.jobservice.repository.JobExecutionHistoryRepository;
+import com.ail.optile.jobservice.quartz.DetachedJobListener;
+import com.ail.optile.jobservice.quartz.NativeJob;
+import com.ail.optile.jobservice.state.JobStateIndex;
+import com.ail.optile.jobservice.statistics.JobStatisticsIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
-import org.quartz.JobListener;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.Date;
 import java.util.Objects;
 
 @Component
 @Slf4j
-public class JobExecutionListener implements JobListener {
+public class JobExecutionListener implements DetachedJobListener {
 
     private static final String LISTENER_NAME = "jobExecutionListener";
     private static final int EXECUTION_SUCCESS_CODE = 0;
+    private static final String CONTEXT_START_DATE = "jobExecutionListener.startDate";
+    private static final String CONTEXT_THREAD = "jobExecutionListener.thread";
 
-    private final JobExecutionHistoryRepository historyRepository;
+    private final JobExecutionHistoryWriter historyWriter;
+    private final JobStateIndex jobStateIndex;
+    private final JobMetrics jobMetrics;
+    private final JobStatisticsIndex jobStatisticsIndex;
+    private final JobEventBroker jobEventBroker;
+    private final JobChangeJournal jobChangeJournal;
+    private final String node;
 
     @Autowired
-    public JobExecutionListener(JobExecutionHistoryRepository historyRepository) {
-        this.historyRepository = historyRepository;
+    public JobExecutionListener(
+            JobExecutionHistoryWriter historyWriter,
+            JobStateIndex jobStateIndex,
+            JobMetrics jobMetrics,
+            JobStatisticsIndex jobStatisticsIndex,
+            JobEventBroker jobEventBroker,
+            JobChangeJournal jobChangeJournal) {
+        this.historyWriter = historyWriter;
+        this.jobStateIndex = jobStateIndex;
+        this.jobMetrics = jobMetrics;
+        this.jobStatisticsIndex = jobStatisticsIndex;
+        this.jobEventBroker = jobEventBroker;
+        this.jobChangeJournal = jobChangeJournal;
+        this.node = resolveNode();
     }
 
     @Override
@@ -33,22 +63,91 @@ public class JobExecutionListener implements JobListener {
 
     @Override
     public void jobToBeExecuted(JobExecutionContext context) {
+        // detached executions are completed by another thread, so the worker thread is remembered here
+        context.put(CONTEXT_START_DATE, new Date());
+        context.put(CONTEXT_THREAD, Thread.currentThread().getName());
+        String jobName = context.getJobDetail().getKey().getName();
+        jobStateIndex.jobStarted(jobName);
+        jobEventBroker.publish(JobEvent.Type.STARTED, jobName);
     }
 
     @Override
     public void jobExecutionVetoed(JobExecutionContext context) {
+        // the job was moved to firing if the execution was accepted before another listener vetoed it
+        if (context.get(JobTriggerListener.CONTEXT_ACCEPTED) != null) {
+            jobStateIndex.fireFailed(context.getJobDetail().getKey().getName());
+        }
     }
 
     @Override
     public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        if (NativeJob.isDetached(context)) {
+            // will be recorded in detachedJobWasExecuted() when the native process exits
+            return;
+        }
+        recordExecution(context);
+    }
+
+    @Override
+    public void detachedJobWasExecuted(JobExecutionContext context) {
+        recordExecution(context);
+    }
+
+    private void recordExecution(JobExecutionContext context) {
         JobExecutionHistory jobExecutionHistory = JobExecutionHistory.builder()
                 .jobName(context.getJobDetail().getKey().getName())
+                .scheduledFireTime(context.getScheduledFireTime())
+                .startDate((Date) context.get(CONTEXT_START_DATE))
                 .completionDate(new Date())
-                .result(Objects.equals(context.getResult(), EXECUTION_SUCCESS_CODE)
-                        ? JobExecutionHistory.Result.SUCCESS
-                        : JobExecutionHistory.Result.FAILED)
+                .result(getResult(context))
+                .exitCode(context.getResult() instanceof Integer ? (Integer) context.getResult() : null)
+                .outputFile((String) context.get(NativeJob.CONTEXT_OUTPUT_FILE))
+                .node(node)
+                .thread((String) context.get(CONTEXT_THREAD))
                 .build();
-        historyRepository.save(jobExecutionHistory);
+        jobStateIndex.jobCompleted(
+                jobExecutionHistory.getJobName(),
+                jobExecutionHistory.getResult(),
+                jobExecutionHistory.getCompletionDate());
+        jobStatisticsIndex.record(jobExecutionHistory);
+        jobMetrics.recordExecution(context, jobExecutionHistory);
+        jobEventBroker.publish(getEventType(jobExecutionHistory.getResult()), jobExecutionHistory.getJobName());
+        historyWriter.submit(jobExecutionHistory);
+        jobChangeJournal.record(JobChange.builder()
+                .type(JobChange.Type.EXECUTED)
+                .jobName(jobExecutionHistory.getJobName())
+                .date(jobExecutionHistory.getCompletionDate())
+                .result(jobExecutionHistory.getResult())
+                .build());
         log.info("Job '{}' result: {}", context.getJobDetail().getKey(), context.getResult());
     }
+
+    private static String resolveNode() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            log.warn("Unable to resolve host name: {}", e.getMessage());
+            return "unknown";
+        }
+    }
+
+    private static JobEvent.Type getEventType(JobExecutionHistory.Result result) {
+        switch (result) {
+            case SUCCESS:
+                return JobEvent.Type.SUCCEEDED;
+            case TIMED_OUT:
+                return JobEvent.Type.TIMED_OUT;
+            default:
+                return JobEvent.Type.FAILED;
+        }
+    }
+
+    private JobExecutionHistory.Result getResult(JobExecutionContext context) {
+        if (NativeJob.isTimedOut(context)) {
+            return JobExecutionHistory.Result.TIMED_OUT;
+        }
+        return Objects.equals(context.getResult(), EXECUTION_SUCCESS_CODE)
+                ? JobExecutionHistory.Result.SUCCESS
+                : JobExecutionHistory.Result.FAILED;
+    }
 }
@@ -1,17 +1,44 @@
 package com.ail.optile.jobservice.listener;
 
+import com.ail.optile.jobservice.events.JobEvent;
+import com.ail.optile.jobservice.events.JobEventBroker;
+import com.ail.optile.jobservice.metrics.JobMetrics;
+import com.ail.optile.jobservice.state.JobStateIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.quartz.JobExecutionContext;
 import org.quartz.Trigger;
 import org.quartz.TriggerListener;
+import org.quartz.spi.OperableTrigger;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 @Component
 @Slf4j
 public class JobTriggerListener implements TriggerListener {
 
+    /**
+     * Trigger data property which marks triggers fired manually by {@link JobStateIndex#tryFire(String)}
+     */
+    public static final String PROP_MANUAL_TRIGGER = "manualTrigger";
+
+    /**
+     * Context property which marks executions accepted by {@link JobStateIndex#tryAcceptTrigger(String, boolean)}
+     */
+    public static final String CONTEXT_ACCEPTED = "jobTriggerListener.accepted";
+
     private static final String LISTENER_NAME = "jobTriggerListener";
 
+    private final JobStateIndex jobStateIndex;
+    private final JobMetrics jobMetrics;
+    private final JobEventBroker jobEventBroker;
+
+    @Autowired
+    public JobTriggerListener(JobStateIndex jobStateIndex, JobMetrics jobMetrics, JobEventBroker jobEventBroker) {
+        this.jobStateIndex = jobStateIndex;
+        this.jobMetrics = jobMetrics;
+        this.jobEventBroker = jobEventBroker;
+    }
+
     @Override
     public String getName() {
         return LISTENER_NAME;
@@ -19,15 +46,31 @@ public class JobTriggerListener implements TriggerListener {
 
     @Override
     public void triggerFired(Trigger trigger, JobExecutionContext context) {
+        jobMetrics.recordTriggerLag(trigger, context, isManual(trigger));
     }
 
     @Override
     public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context) {
-        return false;
+        String jobName = trigger.getJobKey().getName();
+        if (jobStateIndex.tryAcceptTrigger(jobName, isManual(trigger))) {
+            // the job is returned to idle if another listener vetoes the execution
+            context.put(CONTEXT_ACCEPTED, true);
+            jobEventBroker.publish(JobEvent.Type.FIRED, jobName);
+            return false;
+        }
+
+        log.warn("Job '{}' execution is vetoed, job is {}", jobName, jobStateIndex.getRunState(jobName));
+        return true;
     }
 
     @Override
     public void triggerMisfired(Trigger trigger) {
+        if (isManual(trigger) && !firesAfterMisfire(trigger)) {
+            log.warn("Manual trigger of job '{}' misfired and is dropped", trigger.getJobKey().getName());
+            jobStateIndex.fireFailed(trigger.getJobKey().getName());
+        }
+        jobMetrics.recordMisfire(trigger);
+        jobEventBroker.publish(JobEvent.Type.MISFIRED, trigger.getJobKey().getName());
     }
 
     @Override
@@ -36,4 +79,21 @@ public class JobTriggerListener implements TriggerListener {
             JobExecutionContext context,
             Trigger.CompletedExecutionInstruction triggerInstructionCode) {
     }
+
+    public static boolean isManual(Trigger trigger) {
+        return trigger.getJobDataMap().containsKey(PROP_MANUAL_TRIGGER);
+    }
+
+    /**
+     * Listeners are notified before the misfire instruction is applied, so it's applied to a copy of the trigger.
+     */
+    private static boolean firesAfterMisfire(Trigger trigger) {
+        if (!(trigger instanceof OperableTrigger)) {
+            return true;
+        }
+        OperableTrigger copy = (OperableTrigger) ((OperableTrigger) trigger).clone();
+        // manual triggers don't have calendars
+        copy.updateAfterMisfire(null);
+        return copy.getNextFireTime() != null;
+    }
 }
@@ -0,0 +1,89 @@
+package com.ail.optile.jobservice.metrics;
+
+import com.ail.optile.jobservice.pdo.JobExecutionHistory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.quartz.JobExecutionContext;
+import org.quartz.Trigger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records trigger and execution metrics reported by the Quartz listeners.
+ * <p>
+ * Timers publish percentile histograms, so they aren't tagged by job: every job would add a full set of histogram
+ * buckets. Statistics of a single job are served by {@link com.ail.optile.jobservice.statistics.JobStatisticsIndex}.
+ */
+@Component
+public class JobMetrics {
+
+    public static final String TRIGGER_LAG = "job.trigger.lag";
+    public static final String EXECUTION_DURATION = "job.execution.duration";
+    public static final String MISFIRES = "job.misfires";
+
+    private final MeterRegistry registry;
+    private final Timer manualTriggerLag;
+    private final Timer scheduledTriggerLag;
+
+    @Autowired
+    public JobMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.manualTriggerLag = triggerLagTimer("manual");
+        this.scheduledTriggerLag = triggerLagTimer("scheduled");
+    }
+
+    /**
+     * Records how late the trigger was fired, i.e. how long it waited for a worker thread.
+     */
+    public void recordTriggerLag(Trigger trigger, JobExecutionContext context, boolean manual) {
+        Date scheduledFireTime = context.getScheduledFireTime();
+        if (scheduledFireTime == null) {
+            return;
+        }
+
+        (manual ? manualTriggerLag : scheduledTriggerLag).record(
+                Math.max(0, context.getFireTime().getTime() - scheduledFireTime.getTime()), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records the duration of the completed execution.
+     */
+    public void recordExecution(JobExecutionContext context, JobExecutionHistory jobExecutionHistory) {
+        if (jobExecutionHistory.getDuration() == null) {
+            return;
+        }
+
+        Timer.builder(EXECUTION_DURATION)
+                .tag("priority", String.valueOf(context.getTrigger().getPriority()))
+                .tag("result", jobExecutionHistory.getResult().name())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofDays(1))
+                .register(registry)
+                .record(Math.max(0, jobExecutionHistory.getDuration()), TimeUnit.MILLISECONDS);
+    }
+
+    public void recordMisfire(Trigger trigger) {
+        registry.counter(MISFIRES, "job", trigger.getJobKey().getName()).increment();
+    }
+
+    /**
+     * Removes the meters of the deleted job, so they aren't published forever.
+     */
+    public void removeJob(String jobName) {
+        registry.find(MISFIRES).tag("job", jobName).meters().forEach(registry::remove);
+    }
+
+    private Timer triggerLagTimer(String trigger) {
+        return Timer.builder(TRIGGER_LAG)
+                .tag("trigger", trigger)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofHours(1))
+                .register(registry);
+    }
+}
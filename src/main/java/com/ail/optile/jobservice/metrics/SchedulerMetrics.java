@@ -0,0 +1,117 @@
+package com.ail.optile.jobservice.metrics;
+
+import com.ail.optile.jobservice.adhoc.AdHocTaskExecutor;
+import com.ail.optile.jobservice.delay.DelayedExecutionEngine;
+import com.ail.optile.jobservice.events.JobEventBroker;
+import com.ail.optile.jobservice.history.JobExecutionHistoryWriter;
+import com.ail.optile.jobservice.journal.JobChangeJournal;
+import com.ail.optile.jobservice.process.NativeProcessReaper;
+import com.ail.optile.jobservice.state.JobStateIndex;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges of the worker thread pool and of the queues in front of and behind it, and counters of the items they've
+ * dropped. Values are read on demand when the metrics are published.
+ */
+@Component
+@Slf4j
+public class SchedulerMetrics implements MeterBinder {
+
+    private final Scheduler scheduler;
+    private final JobStateIndex jobStateIndex;
+    private final JobExecutionHistoryWriter historyWriter;
+    private final NativeProcessReaper processReaper;
+    private final JobEventBroker jobEventBroker;
+    private final DelayedExecutionEngine delayedExecutionEngine;
+    private final AdHocTaskExecutor adHocTaskExecutor;
+    private final JobChangeJournal jobChangeJournal;
+
+    @Autowired
+    public SchedulerMetrics(
+            Scheduler scheduler,
+            JobStateIndex jobStateIndex,
+            JobExecutionHistoryWriter historyWriter,
+            NativeProcessReaper processReaper,
+            JobEventBroker jobEventBroker,
+            DelayedExecutionEngine delayedExecutionEngine,
+            AdHocTaskExecutor adHocTaskExecutor,
+            JobChangeJournal jobChangeJournal) {
+        this.scheduler = scheduler;
+        this.jobStateIndex = jobStateIndex;
+        this.historyWriter = historyWriter;
+        this.processReaper = processReaper;
+        this.jobEventBroker = jobEventBroker;
+        this.delayedExecutionEngine = delayedExecutionEngine;
+        this.adHocTaskExecutor = adHocTaskExecutor;
+        this.jobChangeJournal = jobChangeJournal;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("job.workers.size", this, SchedulerMetrics::getPoolSize)
+                .description("Size of the Quartz worker thread pool")
+                .register(registry);
+        Gauge.builder("job.workers.active", this, SchedulerMetrics::getActiveWorkers)
+                .description("Worker threads currently executing jobs")
+                .register(registry);
+        Gauge.builder("job.workers.saturation", this, metrics -> metrics.getActiveWorkers() / metrics.getPoolSize())
+                .description("Share of busy worker threads")
+                .register(registry);
+        Gauge.builder("job.triggers.pending", jobStateIndex, JobStateIndex::getFiringCount)
+                .description("Fired jobs which aren't started yet, mostly manual fires waiting for a worker thread")
+                .register(registry);
+        Gauge.builder("job.native.detached", processReaper, NativeProcessReaper::getWatchedCount)
+                .description("Native processes running without a worker thread")
+                .register(registry);
+        Gauge.builder("job.history.queue", historyWriter, JobExecutionHistoryWriter::getQueueSize)
+                .description("Execution history records waiting to be written")
+                .register(registry);
+        Gauge.builder("job.events.subscribers", jobEventBroker, JobEventBroker::getSubscriptionCount)
+                .description("Subscribers of the job events")
+                .register(registry);
+        Gauge.builder("job.events.queue", jobEventBroker, JobEventBroker::getQueueSize)
+                .description("Job events waiting to be dispatched to the subscribers")
+                .register(registry);
+        FunctionCounter.builder("job.events.dropped", jobEventBroker, JobEventBroker::getDroppedCount)
+                .description("Job events dropped because the dispatch queue was full")
+                .register(registry);
+        Gauge.builder("job.delayed.pending", delayedExecutionEngine, DelayedExecutionEngine::getPendingCount)
+                .description("Delayed executions waiting to be fired")
+                .register(registry);
+        FunctionCounter.builder("job.delayed.dropped", delayedExecutionEngine, DelayedExecutionEngine::getDroppedCount)
+                .description("Due delayed executions dropped because the job was deleted or currently running")
+                .register(registry);
+        Gauge.builder("job.adhoc.queue", adHocTaskExecutor, AdHocTaskExecutor::getQueueSize)
+                .description("Ad-hoc tasks waiting for a worker thread")
+                .register(registry);
+        FunctionCounter.builder("job.journal.lost", jobChangeJournal, JobChangeJournal::getFailedCount)
+                .description("Job changes which failed to be written to the journal")
+                .register(registry);
+    }
+
+    private double getPoolSize() {
+        try {
+            return scheduler.getMetaData().getThreadPoolSize();
+        } catch (SchedulerException e) {
+            log.debug(e.getMessage(), e);
+            return Double.NaN;
+        }
+    }
+
+    private double getActiveWorkers() {
+        try {
+            return scheduler.getCurrentlyExecutingJobs().size();
+        } catch (SchedulerException e) {
+            log.debug(e.getMessage(), e);
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.ail.optile.jobservice.output;
+
+import com.ail.optile.jobservice.process.OutputSink;
+import lombok.Getter;
+
+/**
+ * Output files of a single job execution, one per captured stream.
+ */
+public class ExecutionOutput {
+
+    @Getter
+    private final String outputFile;
+    @Getter
+    private final OutputSink stdoutSink;
+    @Getter
+    private final OutputSink stderrSink;
+
+    ExecutionOutput(String outputFile, OutputSink stdoutSink, OutputSink stderrSink) {
+        this.outputFile = outputFile;
+        this.stdoutSink = stdoutSink;
+        this.stderrSink = stderrSink;
+    }
+
+    /**
+     * Captured stream of a native process
+     */
+    public enum Stream {
+        STDOUT,
+        STDERR;
+
+        String getExtension() {
+            return "." + name().toLowerCase();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.ail.optile.jobservice.output;
+
+import com.ail.optile.jobservice.api.exception.ExecutionOutputIsNotFoundException;
+import com.ail.optile.jobservice.api.exception.UnexpectedException;
+import com.ail.optile.jobservice.pdo.JobExecutionHistory;
+import com.ail.optile.jobservice.repository.JobExecutionHistoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores the output of every native job execution in its own append-only files under
+ * {@code job-service.output.dir}, one directory per job.
+ * <p>
+ * Each file is limited to {@code job-service.output.max-size} bytes. With {@code job-service.output.compress}
+ * the files are gzipped in background as soon as the process closes its stream.
+ */
+@Component
+@Slf4j
+public class ExecutionOutputStore {
+
+    public static final String GZIP_EXTENSION = ".gz";
+
+    private final JobExecutionHistoryRepository historyRepository;
+    private final Path outputDir;
+    private final long maxSize;
+    private final boolean compress;
+    private final ExecutorService compressor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "execution-output-compressor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public ExecutionOutputStore(
+            JobExecutionHistoryRepository historyRepository,
+            @Value("${job-service.output.dir:./db/output}") String outputDir,
+            @Value("${job-service.output.max-size:10485760}") long maxSize,
+            @Value("${job-service.output.compress:false}") boolean compress) {
+        this.historyRepository = historyRepository;
+        this.outputDir = Paths.get(outputDir).toAbsolutePath();
+        this.maxSize = maxSize;
+        this.compress = compress;
+    }
+
+    @PreDestroy
+    public void stop() {
+        compressor.shutdown();
+    }
+
+    /**
+     * Creates the output files of a new execution of the job.
+     */
+    public ExecutionOutput create(String jobName) {
+        String outputFile = encode(jobName) + "/" + UUID.randomUUID();
+        Path basePath = outputDir.resolve(outputFile);
+
+        try {
+            Files.createDirectories(basePath.getParent());
+        } catch (IOException e) {
+            throw new UnexpectedException("Unable to create output directory for job '" + jobName + "'", e);
+        }
+
+        return new ExecutionOutput(
+                outputFile,
+                new FileOutputSink(resolve(outputFile, ExecutionOutput.Stream.STDOUT), maxSize, this::onClose),
+                new FileOutputSink(resolve(outputFile, ExecutionOutput.Stream.STDERR), maxSize, this::onClose));
+    }
+
+    /**
+     * Finds the captured output of the execution.
+     *
+     * @param executionId id of {@link JobExecutionHistory}
+     * @param stream      captured stream
+     * @return path of the output file, it ends with {@link #GZIP_EXTENSION} if the output is compressed
+     * @throws ExecutionOutputIsNotFoundException if the execution is unknown or has no captured output
+     */
+    public Path getOutputPath(long executionId, ExecutionOutput.Stream stream)
+            throws ExecutionOutputIsNotFoundException {
+        JobExecutionHistory jobExecutionHistory = historyRepository.findById(executionId)
+                .orElseThrow(ExecutionOutputIsNotFoundException::new);
+        if (jobExecutionHistory.getOutputFile() == null) {
+            throw new ExecutionOutputIsNotFoundException();
+        }
+
+        Path path = resolve(jobExecutionHistory.getOutputFile(), stream);
+        if (Files.exists(path)) {
+            return path;
+        }
+        Path compressedPath = path.resolveSibling(path.getFileName() + GZIP_EXTENSION);
+        if (Files.exists(compressedPath)) {
+            return compressedPath;
+        }
+        throw new ExecutionOutputIsNotFoundException();
+    }
+
+    /**
+     * Removes the output files of a single execution.
+     *
+     * @param outputFile {@link JobExecutionHistory#getOutputFile()} of the execution
+     */
+    public void deleteOutput(String outputFile) {
+        for (ExecutionOutput.Stream stream : ExecutionOutput.Stream.values()) {
+            Path path = resolve(outputFile, stream);
+            try {
+                Files.deleteIfExists(path);
+                Files.deleteIfExists(path.resolveSibling(path.getFileName() + GZIP_EXTENSION));
+            } catch (IOException e) {
+                log.error("Unable to delete output file " + path, e);
+            }
+        }
+    }
+
+    /**
+     * Removes the output files of all executions of the job.
+     */
+    public void deleteJobOutput(String jobName) {
+        Path jobDir = outputDir.resolve(encode(jobName));
+        if (!Files.exists(jobDir)) {
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(jobDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            log.error("Unable to delete output of job '" + jobName + "'", e);
+        }
+    }
+
+    private Path resolve(String outputFile, ExecutionOutput.Stream stream) {
+        return outputDir.resolve(outputFile + stream.getExtension());
+    }
+
+    private void onClose(Path path) {
+        if (compress) {
+            compressor.execute(() -> compress(path));
+        }
+    }
+
+    private void compress(Path path) {
+        Path compressedPath = path.resolveSibling(path.getFileName() + GZIP_EXTENSION);
+        try (InputStream in = Files.newInputStream(path);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressedPath))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            log.error("Unable to compress output file " + path, e);
+            return;
+        }
+
+        try {
+            Files.delete(path);
+        } catch (IOException e) {
+            log.error("Unable to delete compressed output file " + path, e);
+        }
+    }
+
+    private static String encode(String jobName) {
+        try {
+            // dots are encoded to never produce '.' or '..' directories
+            return URLEncoder.encode(jobName, "UTF-8").replace(".", "%2E").replace("*", "%2A");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
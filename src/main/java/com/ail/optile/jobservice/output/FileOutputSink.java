@@ -0,0 +1,72 @@
+package com.ail.optile.jobservice.output;
+
+import com.ail.optile.jobservice.process.OutputSink;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Appends process output to a file until the size limit is reached. The rest of the output is discarded.
+ */
+@Slf4j
+class FileOutputSink implements OutputSink {
+
+    private static final byte[] TRUNCATED_MARKER = "\n[output truncated]\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final Path path;
+    private final long maxSize;
+    private final Consumer<Path> onClose;
+
+    private FileOutputStream stream;
+    private long size;
+    private boolean truncated;
+
+    FileOutputSink(Path path, long maxSize, Consumer<Path> onClose) {
+        this.path = path;
+        this.maxSize = maxSize;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) {
+        if (truncated) {
+            return;
+        }
+
+        try {
+            if (stream == null) {
+                stream = new FileOutputStream(path.toFile(), true);
+            }
+
+            int allowed = (int) Math.min(length, maxSize - size);
+            stream.write(buffer, offset, allowed);
+            size += allowed;
+
+            if (allowed < length) {
+                stream.write(TRUNCATED_MARKER);
+                truncated = true;
+            }
+        } catch (IOException e) {
+            log.error("Unable to write output to " + path, e);
+            truncated = true;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (stream == null) {
+            return;
+        }
+
+        try {
+            stream.close();
+        } catch (IOException e) {
+            log.error("Unable to close output file " + path, e);
+        }
+        onClose.accept(path);
+    }
+}
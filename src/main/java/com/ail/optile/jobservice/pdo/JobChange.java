@@ -0,0 +1,95 @@
+package com.ail.optile.jobservice.pdo;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Entry of the append-only journal of job changes. Definition of the job is recorded when it's created or updated,
+ * the result when it's executed.
+ */
+@NoArgsConstructor
+@Entity
+@Table(
+        indexes = {
+                @Index(name = "jobchange_date_idx", columnList = "date")
+        }
+)
+public class JobChange {
+
+    /**
+     * Sequence number of the change
+     */
+    @Getter
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "job_change_seq")
+    @SequenceGenerator(
+            name = "job_change_seq",
+            sequenceName = "job_change_seq",
+            allocationSize = 100)
+    private Long id;
+
+    @Getter
+    @Column(nullable = false, updatable = false)
+    private Type type;
+
+    @Getter
+    @Column(nullable = false, updatable = false)
+    private String jobName;
+
+    @Getter
+    @Column(nullable = false, updatable = false)
+    private Date date;
+
+    @Getter
+    @Column(updatable = false)
+    private String cron;
+
+    @Getter
+    @Column(updatable = false)
+    private Integer priority;
+
+    @Getter
+    @Column(updatable = false)
+    private String command;
+
+    @Getter
+    @Column(updatable = false, length = 4096)
+    @Convert(converter = StringListConverter.class)
+    private List<String> argv;
+
+    @Getter
+    @Column(updatable = false)
+    private JobExecutionHistory.Result result;
+
+    @Builder
+    public JobChange(
+            Type type,
+            String jobName,
+            Date date,
+            String cron,
+            Integer priority,
+            String command,
+            List<String> argv,
+            JobExecutionHistory.Result result) {
+        this.type = type;
+        this.jobName = jobName;
+        this.date = date;
+        this.cron = cron;
+        this.priority = priority;
+        this.command = command;
+        this.argv = argv;
+        this.result = result;
+    }
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        EXECUTED
+    }
+}
@@ -11,37 +11,106 @@ import java.util.Date;
 @Entity
 @Table(
         indexes = {
-                @Index(name = "jobexecutionhistory_jobname_idx", columnList = "jobname")
+                @Index(name = "jobexecutionhistory_jobname_completiondate_idx", columnList = "jobname, completiondate"),
+                @Index(name = "jobexecutionhistory_completiondate_idx", columnList = "completiondate"),
+                @Index(name = "jobexecutionhistory_ticketid_idx", columnList = "ticketid")
         }
 )
 public class JobExecutionHistory {
 
     @Getter
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "job_execution_history_seq")
+    @SequenceGenerator(
+            name = "job_execution_history_seq",
+            sequenceName = "job_execution_history_seq",
+            allocationSize = 100)
     private Long id;
 
     @Getter
     @Column(nullable = false, updatable = false)
     private String jobName;
 
+    /**
+     * Ticket of the ad-hoc task, null for the executions of the registered jobs
+     */
+    @Getter
+    @Column(updatable = false)
+    private Long ticketId;
+
+    @Getter
+    @Column(updatable = false)
+    private Date scheduledFireTime;
+
+    @Getter
+    @Column(updatable = false)
+    private Date startDate;
+
     @Getter
     @Column(nullable = false, updatable = false)
     private Date completionDate;
 
+    /**
+     * Milliseconds from {@link #startDate} to {@link #completionDate}
+     */
+    @Getter
+    @Column(updatable = false)
+    private Long duration;
+
     @Getter
     @Column(nullable = false, updatable = false)
     private Result result;
 
+    @Getter
+    @Column(updatable = false)
+    private Integer exitCode;
+
+    @Getter
+    @Column(updatable = false)
+    private String outputFile;
+
+    /**
+     * Host which executed the job
+     */
+    @Getter
+    @Column(updatable = false)
+    private String node;
+
+    /**
+     * Worker thread which started the job
+     */
+    @Getter
+    @Column(updatable = false)
+    private String thread;
+
     @Builder
-    public JobExecutionHistory(String jobName, Date completionDate, Result result) {
+    public JobExecutionHistory(
+            String jobName,
+            Long ticketId,
+            Date scheduledFireTime,
+            Date startDate,
+            Date completionDate,
+            Result result,
+            Integer exitCode,
+            String outputFile,
+            String node,
+            String thread) {
         this.jobName = jobName;
+        this.ticketId = ticketId;
+        this.scheduledFireTime = scheduledFireTime;
+        this.startDate = startDate;
         this.completionDate = completionDate;
+        this.duration = startDate != null ? completionDate.getTime() - startDate.getTime() : null;
         this.result = result;
+        this.exitCode = exitCode;
+        this.outputFile = outputFile;
+        this.node = node;
+        this.thread = thread;
     }
 
     public enum Result {
         SUCCESS,
-        FAILED
+        FAILED,
+        TIMED_OUT
     }
 }
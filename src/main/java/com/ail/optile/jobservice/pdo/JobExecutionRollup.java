@@ -0,0 +1,103 @@
+package com.ail.optile.jobservice.pdo;
+
+import com.ail.optile.jobservice.statistics.DurationSketch;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregated executions of a job completed within an hour or a day, which replace the compacted
+ * {@link JobExecutionHistory} rows.
+ */
+@NoArgsConstructor
+@Entity
+@Table(
+        uniqueConstraints = {
+                @UniqueConstraint(
+                        name = "jobexecutionrollup_period_uk",
+                        columnNames = {"jobname", "granularity", "periodstart"})
+        }
+)
+public class JobExecutionRollup {
+
+    @Getter
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "job_execution_rollup_seq")
+    @SequenceGenerator(
+            name = "job_execution_rollup_seq",
+            sequenceName = "job_execution_rollup_seq",
+            allocationSize = 100)
+    private Long id;
+
+    @Getter
+    @Column(nullable = false, updatable = false)
+    private String jobName;
+
+    @Getter
+    @Column(nullable = false, updatable = false)
+    private Granularity granularity;
+
+    @Getter
+    @Column(nullable = false, updatable = false)
+    private Date periodStart;
+
+    @Getter
+    @Column(nullable = false)
+    private long successes;
+
+    @Getter
+    @Column(nullable = false)
+    private long failures;
+
+    @Getter
+    @Column(nullable = false)
+    private long timeouts;
+
+    /**
+     * Serialized {@link DurationSketch} of the executions with known duration
+     */
+    @Lob
+    @Column(nullable = false)
+    private byte[] durations;
+
+    public JobExecutionRollup(String jobName, Granularity granularity, Date periodStart) {
+        this.jobName = jobName;
+        this.granularity = granularity;
+        this.periodStart = periodStart;
+        this.durations = new DurationSketch().toByteArray();
+    }
+
+    public DurationSketch getDurations() {
+        return DurationSketch.fromByteArray(durations);
+    }
+
+    public void merge(long successes, long failures, long timeouts, DurationSketch durations) {
+        this.successes += successes;
+        this.failures += failures;
+        this.timeouts += timeouts;
+        DurationSketch sketch = getDurations();
+        sketch.merge(durations);
+        this.durations = sketch.toByteArray();
+    }
+
+    public enum Granularity {
+        HOUR(TimeUnit.HOURS.toMillis(1)),
+        DAY(TimeUnit.DAYS.toMillis(1));
+
+        private final long millis;
+
+        Granularity(long millis) {
+            this.millis = millis;
+        }
+
+        /**
+         * @return start of the period which contains the date
+         */
+        public Date getPeriodStart(Date date) {
+            return new Date(date.getTime() - date.getTime() % millis);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.ail.optile.jobservice.pdo;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Marks the data of a deleted job to be purged in the background. Only the data created before {@link #deletionDate}
+ * belongs to the deleted job, so a job created again with the same name keeps its own data.
+ */
+@NoArgsConstructor
+@Entity
+public class JobTombstone {
+
+    @Getter
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "job_tombstone_seq")
+    @SequenceGenerator(
+            name = "job_tombstone_seq",
+            sequenceName = "job_tombstone_seq",
+            allocationSize = 1)
+    private Long id;
+
+    @Getter
+    @Column(nullable = false, updatable = false)
+    private String jobName;
+
+    @Getter
+    @Column(nullable = false, updatable = false)
+    private Date deletionDate;
+
+    public JobTombstone(String jobName, Date deletionDate) {
+        this.jobName = jobName;
+        this.deletionDate = deletionDate;
+    }
+}
@@ -0,0 +1,39 @@
+package com.ail.optile.jobservice.pdo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Stores a list of strings in a single column as JSON array.
+ */
+@Converter
+public class StringListConverter implements AttributeConverter<List<String>, String> {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<List<String>> STRING_LIST = new TypeReference<List<String>>() {
+    };
+
+    @Override
+    public String convertToDatabaseColumn(List<String> attribute) {
+        try {
+            return attribute != null ? OBJECT_MAPPER.writeValueAsString(attribute) : null;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public List<String> convertToEntityAttribute(String dbData) {
+        try {
+            return dbData != null ? OBJECT_MAPPER.readValue(dbData, STRING_LIST) : null;
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
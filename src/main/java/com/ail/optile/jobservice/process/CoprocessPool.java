@@ -0,0 +1,133 @@
+package com.ail.optile.jobservice.process;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Pool of warm shell processes which run short native commands without launching a new process from the JVM for
+ * every execution.
+ * <p>
+ * Workers are started lazily up to {@code job-service.native.coprocess-pool-size}. A caller waits while all workers
+ * are busy. A worker which died or was killed is replaced by a new one on the next execution.
+ */
+@Component
+@Slf4j
+public class CoprocessPool {
+
+    private final String shell;
+    private final Semaphore permits;
+    private final BlockingQueue<CoprocessWorker> idleWorkers = new LinkedBlockingQueue<>();
+
+    private volatile boolean stopped;
+
+    public CoprocessPool(
+            @Value("${job-service.native.coprocess-shell:/bin/sh}") String shell,
+            @Value("${job-service.native.coprocess-pool-size:2}") int poolSize) {
+        this.shell = shell;
+        this.permits = new Semaphore(poolSize);
+    }
+
+    /**
+     * Coprocesses rely on a POSIX shell, so they are supported on non-Windows systems only.
+     */
+    public boolean isSupported() {
+        return !System.getProperty("os.name").startsWith("Windows");
+    }
+
+    /**
+     * Runs the shell command in a warm worker. Both stdout and stderr of the command are written to the sink, which
+     * is closed when the command completes.
+     *
+     * @param command shell command
+     * @param sink    receives the output of the command
+     * @return exit code of the command
+     */
+    public int execute(String command, OutputSink sink) throws IOException, InterruptedException {
+        return execute(command, sink, null);
+    }
+
+    /**
+     * Same as {@link #execute(String, OutputSink)}, but exposes the worker process which runs the command, e.g. to
+     * enforce a timeout on it. The guard is released as soon as the command completes, before the worker is returned
+     * to the pool, and the worker is replaced by a new one if the guard has interfered with it.
+     *
+     * @param workerGuard creates the guard of the worker process before the command is sent, may be null or return
+     *                    null
+     */
+    public int execute(String command, OutputSink sink, Function<Process, WorkerGuard> workerGuard)
+            throws IOException, InterruptedException {
+        if (stopped) {
+            throw new IllegalStateException("Coprocess pool is stopped");
+        }
+
+        permits.acquire();
+        CoprocessWorker worker = null;
+        WorkerGuard guard = null;
+        try {
+            worker = acquireWorker();
+            if (workerGuard != null) {
+                guard = workerGuard.apply(worker.getProcess());
+            }
+            int exitCode = worker.execute(command, sink);
+            boolean intact = guard == null || guard.release();
+            guard = null;
+            if (intact) {
+                idleWorkers.add(worker);
+                worker = null;
+            }
+            return exitCode;
+        } finally {
+            if (guard != null) {
+                guard.release();
+            }
+            if (worker != null) {
+                // the worker is in unknown state after a failure
+                worker.destroy();
+            }
+            sink.close();
+            permits.release();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        CoprocessWorker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            worker.destroy();
+        }
+    }
+
+    /**
+     * Guards the worker process while it runs a command.
+     */
+    @FunctionalInterface
+    public interface WorkerGuard {
+
+        /**
+         * Stops guarding the worker once the command has completed.
+         *
+         * @return false if the guard has interfered with the worker, e.g. killed it, so it must not be reused
+         */
+        boolean release();
+    }
+
+    private CoprocessWorker acquireWorker() throws IOException {
+        CoprocessWorker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            if (worker.isAlive()) {
+                return worker;
+            }
+        }
+        log.info("Starting new coprocess worker '{}'", shell);
+        return new CoprocessWorker(shell);
+    }
+}
@@ -0,0 +1,129 @@
+package com.ail.optile.jobservice.process;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Long-lived shell process which runs commands sent over its stdin.
+ * <p>
+ * Every command is sent as a single {@code eval} in a subshell with stdin from {@code /dev/null} and stderr merged
+ * into stdout, followed by a frame line {@code <marker> <exit code>}. The marker is random per worker, so the output
+ * of a command can't fake the end of the frame.
+ * <p>
+ * Output lines are assembled in a reusable buffer of at most {@value #MAX_LINE_LENGTH} bytes, like in
+ * {@link LogOutputSink}. A command which writes a longer line fails, and the worker is discarded by the pool because
+ * the rest of the line and the frame are still unread.
+ */
+class CoprocessWorker {
+
+    private static final int INITIAL_LINE_CAPACITY = 256;
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private final Process process;
+    private final OutputStream stdin;
+    private final InputStream stdout;
+    private final byte[] marker;
+
+    private byte[] line = new byte[INITIAL_LINE_CAPACITY];
+
+    CoprocessWorker(String shell) throws IOException {
+        this.process = new ProcessBuilder(shell)
+                .redirectErrorStream(true)
+                .start();
+        this.stdin = process.getOutputStream();
+        this.stdout = new BufferedInputStream(process.getInputStream());
+        this.marker = ("__job_service_" + UUID.randomUUID().toString().replace("-", "") + "__")
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * Runs the command and pumps its output to the sink.
+     *
+     * @return exit code of the command
+     * @throws IOException if the worker died before the command completed or the command wrote a line longer than
+     *                     the limit, the worker must not be reused in both cases
+     */
+    int execute(String command, OutputSink sink) throws IOException {
+        String markerText = new String(marker, StandardCharsets.US_ASCII);
+        String frame = "( eval '" + command.replace("'", "'\\''") + "' ) </dev/null 2>&1; "
+                + "printf '\\n%s %d\\n' " + markerText + " $?\n";
+        stdin.write(frame.getBytes(StandardCharsets.UTF_8));
+        stdin.flush();
+
+        // the newline which ends the previous line is written only when the next line isn't the frame line,
+        // because the frame starts with an extra newline
+        boolean pendingNewline = false;
+        while (true) {
+            int length = readLine();
+            if (length < 0) {
+                throw new IOException("Coprocess worker exited while running the command");
+            }
+            if (isFrameLine(length)) {
+                return parseExitCode(length);
+            }
+            if (pendingNewline) {
+                sink.write(new byte[]{'\n'}, 0, 1);
+            }
+            sink.write(line, 0, length);
+            pendingNewline = true;
+        }
+    }
+
+    Process getProcess() {
+        return process;
+    }
+
+    void destroy() {
+        process.destroyForcibly();
+    }
+
+    /**
+     * Reads the next line without the trailing newline into {@link #line}.
+     *
+     * @return length of the line, or -1 if the stream has ended
+     * @throws IOException if the line is longer than the limit
+     */
+    private int readLine() throws IOException {
+        int length = 0;
+        int b;
+        while ((b = stdout.read()) != '\n') {
+            if (b < 0) {
+                return -1;
+            }
+            if (length == MAX_LINE_LENGTH) {
+                throw new IOException("Coprocess command wrote a line longer than " + MAX_LINE_LENGTH + " bytes");
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, Math.min(line.length * 2, MAX_LINE_LENGTH));
+            }
+            line[length++] = (byte) b;
+        }
+        return length;
+    }
+
+    private boolean isFrameLine(int length) {
+        if (length <= marker.length || line[marker.length] != ' ') {
+            return false;
+        }
+        for (int i = 0; i < marker.length; i++) {
+            if (line[i] != marker[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int parseExitCode(int length) {
+        return Integer.parseInt(new String(line, marker.length + 1, length - marker.length - 1,
+                StandardCharsets.US_ASCII).trim());
+    }
+}
@@ -0,0 +1,78 @@
+package com.ail.optile.jobservice.process;
+
+import org.slf4j.Logger;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Writes process output to the log line by line. Lines are assembled in a reusable byte buffer and are decoded only
+ * when the log level is enabled. A line longer than {@value #MAX_LINE_LENGTH} bytes is logged in parts of that size, so
+ * output without line breaks doesn't grow the buffer without bounds.
+ */
+public class LogOutputSink implements OutputSink {
+
+    private static final int INITIAL_LINE_CAPACITY = 256;
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private final Logger log;
+    private final String type;
+    private final boolean warn;
+    private final int maxLineLength;
+
+    private byte[] line;
+    private int lineLength;
+
+    public LogOutputSink(Logger log, String type, boolean warn) {
+        this(log, type, warn, MAX_LINE_LENGTH);
+    }
+
+    LogOutputSink(Logger log, String type, boolean warn, int maxLineLength) {
+        this.log = log;
+        this.type = type;
+        this.warn = warn;
+        this.maxLineLength = maxLineLength;
+        this.line = new byte[Math.min(INITIAL_LINE_CAPACITY, maxLineLength)];
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            byte b = buffer[i];
+            if (b == '\n') {
+                flushLine();
+            } else if (b != '\r') {
+                appendToLine(b);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (lineLength > 0) {
+            flushLine();
+        }
+    }
+
+    private void appendToLine(byte b) {
+        if (lineLength == maxLineLength) {
+            flushLine();
+        } else if (lineLength == line.length) {
+            line = Arrays.copyOf(line, Math.min(line.length * 2, maxLineLength));
+        }
+        line[lineLength++] = b;
+    }
+
+    private void flushLine() {
+        if (warn ? log.isWarnEnabled() : log.isInfoEnabled()) {
+            String text = new String(line, 0, lineLength, Charset.defaultCharset());
+            if (warn) {
+                log.warn("{}>{}", type, text);
+            } else {
+                log.info("{}>{}", type, text);
+            }
+        }
+        lineLength = 0;
+    }
+}
@@ -0,0 +1,189 @@
+package com.ail.optile.jobservice.process;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pumps stdout and stderr of all native processes with a small fixed set of threads.
+ * <p>
+ * Process pipes can't be selected on Java 8, so every pump thread polls its streams round-robin and reads only the
+ * bytes which are already available, never blocking on a single stream. Each pump thread reuses one read buffer.
+ * A stream is closed when its process has exited and no bytes are left in the pipe.
+ */
+@Component
+@Slf4j
+public class NativeOutputPump {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final int threadCount;
+    private final int bufferSize;
+    private final AtomicInteger nextPump = new AtomicInteger();
+
+    private PumpThread[] pumps;
+
+    public NativeOutputPump(
+            @Value("${job-service.native.output-pump-threads:2}") int threadCount,
+            @Value("${job-service.native.output-buffer-size:8192}") int bufferSize) {
+        this.threadCount = threadCount;
+        this.bufferSize = bufferSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        pumps = new PumpThread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            pumps[i] = new PumpThread("native-output-pump-" + i, new byte[bufferSize]);
+            pumps[i].start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (PumpThread pump : pumps) {
+            pump.running = false;
+            LockSupport.unpark(pump);
+        }
+    }
+
+    /**
+     * Pumps the stream of the process to the sink until the process exits and the stream is drained.
+     */
+    public void register(Process process, InputStream stream, OutputSink sink) {
+        PumpThread pump = pumps[Math.floorMod(nextPump.getAndIncrement(), pumps.length)];
+        pump.incoming.add(new PumpedStream(process, stream, sink));
+        LockSupport.unpark(pump);
+    }
+
+    /**
+     * Pumps both stdout and stderr of the process.
+     */
+    public void register(Process process, OutputSink stdoutSink, OutputSink stderrSink) {
+        register(process, process.getInputStream(), stdoutSink);
+        register(process, process.getErrorStream(), stderrSink);
+    }
+
+    public int getPumpedCount() {
+        int count = 0;
+        for (PumpThread pump : pumps) {
+            count += pump.pumpedCount;
+        }
+        return count;
+    }
+
+    private static final class PumpThread extends Thread {
+
+        private final byte[] buffer;
+        private final Queue<PumpedStream> incoming = new ConcurrentLinkedQueue<>();
+        private final List<PumpedStream> active = new ArrayList<>();
+
+        private volatile boolean running = true;
+        private volatile int pumpedCount;
+
+        private PumpThread(String name, byte[] buffer) {
+            super(name);
+            this.buffer = buffer;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                PumpedStream added;
+                while ((added = incoming.poll()) != null) {
+                    active.add(added);
+                }
+
+                boolean progress = false;
+                Iterator<PumpedStream> iterator = active.iterator();
+                while (iterator.hasNext()) {
+                    PumpedStream pumpedStream = iterator.next();
+                    int pumped = pumpedStream.pump(buffer);
+                    if (pumped > 0) {
+                        progress = true;
+                    } else if (pumped < 0) {
+                        pumpedStream.close();
+                        iterator.remove();
+                    }
+                }
+                pumpedCount = active.size();
+
+                if (!progress) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+            }
+
+            for (PumpedStream pumpedStream : active) {
+                pumpedStream.close();
+            }
+        }
+    }
+
+    private static final class PumpedStream {
+
+        private final Process process;
+        private final InputStream stream;
+        private final OutputSink sink;
+
+        private PumpedStream(Process process, InputStream stream, OutputSink sink) {
+            this.process = process;
+            this.stream = stream;
+            this.sink = sink;
+        }
+
+        /**
+         * @return number of pumped bytes, or -1 if the stream is finished
+         */
+        private int pump(byte[] buffer) {
+            try {
+                int available = stream.available();
+                if (available == 0) {
+                    if (process.isAlive()) {
+                        return 0;
+                    }
+                    // the process could write its last bytes right before exit
+                    available = stream.available();
+                    if (available == 0) {
+                        return -1;
+                    }
+                }
+
+                int read = stream.read(buffer, 0, Math.min(available, buffer.length));
+                if (read < 0) {
+                    return -1;
+                }
+                sink.write(buffer, 0, read);
+                return read;
+            } catch (IOException e) {
+                // the stream is closed
+                return -1;
+            }
+        }
+
+        private void close() {
+            try {
+                sink.close();
+            } catch (Exception e) {
+                log.error("Unable to close output sink: " + e.getMessage(), e);
+            }
+            try {
+                stream.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.ail.optile.jobservice.process;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Watches launched native processes from a single thread and completes them when they exit, so no thread has to
+ * block on {@link Process#waitFor()} for the whole process lifetime.
+ */
+@Component
+@Slf4j
+public class NativeProcessReaper {
+
+    private final long intervalMillis;
+    private final Queue<WatchedProcess> processes = new ConcurrentLinkedQueue<>();
+
+    private ScheduledExecutorService executor;
+
+    public NativeProcessReaper(@Value("${job-service.native.reaper-interval-ms:50}") long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "native-process-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::reap, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        if (!processes.isEmpty()) {
+            log.warn("{} native processes are still running on shutdown", processes.size());
+        }
+    }
+
+    /**
+     * Registers the process to be watched.
+     *
+     * @param process launched process
+     * @param onExit  callback invoked from the reaper thread with the exit code of the process
+     */
+    public void register(Process process, IntConsumer onExit) {
+        processes.add(new WatchedProcess(process, onExit));
+    }
+
+    public int getWatchedCount() {
+        return processes.size();
+    }
+
+    private void reap() {
+        Iterator<WatchedProcess> iterator = processes.iterator();
+        while (iterator.hasNext()) {
+            WatchedProcess watchedProcess = iterator.next();
+            if (watchedProcess.process.isAlive()) {
+                continue;
+            }
+            iterator.remove();
+
+            try {
+                watchedProcess.onExit.accept(watchedProcess.process.exitValue());
+            } catch (Exception e) {
+                log.error("Unable to complete native process: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static final class WatchedProcess {
+
+        private final Process process;
+        private final IntConsumer onExit;
+
+        private WatchedProcess(Process process, IntConsumer onExit) {
+            this.process = process;
+            this.onExit = onExit;
+        }
+    }
+}
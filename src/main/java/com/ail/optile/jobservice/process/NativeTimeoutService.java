@@ -0,0 +1,99 @@
+package com.ail.optile.jobservice.process;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Enforces timeouts of native processes from a single timer thread.
+ * <p>
+ * An expired process is terminated with its whole process tree: TERM first, then KILL for the processes still alive
+ * after {@code job-service.native.kill-grace-ms}.
+ */
+@Component
+@Slf4j
+public class NativeTimeoutService {
+
+    private final long killGraceMillis;
+
+    private ScheduledExecutorService executor;
+
+    public NativeTimeoutService(@Value("${job-service.native.kill-grace-ms:5000}") long killGraceMillis) {
+        this.killGraceMillis = killGraceMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "native-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Schedules termination of the process tree after the timeout. The returned timeout should be cancelled when
+     * the process exits.
+     */
+    public Timeout schedule(Process process, long timeoutMillis) {
+        Timeout timeout = new Timeout(process);
+        timeout.future = executor.schedule(timeout::expire, timeoutMillis, TimeUnit.MILLISECONDS);
+        return timeout;
+    }
+
+    public final class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Process process;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private volatile ScheduledFuture<?> future;
+
+        private Timeout(Process process) {
+            this.process = process;
+        }
+
+        /**
+         * @return true if the process was terminated because of the timeout
+         */
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        /**
+         * The process is never terminated once the timeout is cancelled.
+         *
+         * @return false if the timeout has already expired
+         */
+        public boolean cancel() {
+            future.cancel(false);
+            return state.compareAndSet(PENDING, CANCELLED) || state.get() == CANCELLED;
+        }
+
+        private void expire() {
+            if (!process.isAlive() || !state.compareAndSet(PENDING, EXPIRED)) {
+                return;
+            }
+
+            log.warn("Native process timed out, terminating its process tree");
+            List<ProcessTreeKiller.ProcessId> tree = ProcessTreeKiller.terminate(process);
+            executor.schedule(() -> ProcessTreeKiller.kill(process, tree), killGraceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.ail.optile.jobservice.process;
+
+/**
+ * Receives output of a native process pumped by {@link NativeOutputPump}.
+ * <p>
+ * Methods are called from a pump thread only. The buffer passed to {@link #write(byte[], int, int)} is reused by the
+ * pump after the call returns, so the sink must copy the bytes it needs to keep.
+ */
+public interface OutputSink {
+
+    OutputSink DISCARD = new OutputSink() {
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    void write(byte[] buffer, int offset, int length);
+
+    void close();
+}
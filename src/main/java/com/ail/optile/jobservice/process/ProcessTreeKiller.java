@@ -0,0 +1,223 @@
+package com.ail.optile.jobservice.process;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Sends signals to a process and all of its descendants.
+ * <p>
+ * Descendants are found with a {@code /proc} scan, so on systems without it only the process itself is signalled.
+ * Every process is remembered with its start time, so a pid reused by another process until the escalation isn't
+ * killed by mistake.
+ */
+@Slf4j
+final class ProcessTreeKiller {
+
+    private static final Path PROC = Paths.get("/proc");
+    private static final boolean WINDOWS = System.getProperty("os.name").startsWith("Windows");
+
+    // indexes of /proc/[pid]/stat fields after the command name
+    private static final int PPID = 1;
+    private static final int STARTTIME = 19;
+
+    private ProcessTreeKiller() {
+    }
+
+    /**
+     * Sends TERM to the process tree.
+     *
+     * @return processes of the tree, to be passed to {@link #kill(Process, List)} if they don't exit in time
+     */
+    static List<ProcessId> terminate(Process process) {
+        long pid = getPid(process);
+        if (WINDOWS) {
+            // Windows has no graceful termination of console processes, so the tree is killed at once
+            if (pid < 0 || !run("taskkill", "/T", "/F", "/PID", String.valueOf(pid))) {
+                process.destroyForcibly();
+            }
+            return Collections.emptyList();
+        }
+
+        List<ProcessId> tree = pid < 0 ? Collections.emptyList() : findTree(pid);
+        if (tree.isEmpty() || !signal("TERM", tree)) {
+            process.destroy();
+        }
+        return tree;
+    }
+
+    /**
+     * Sends KILL to the processes of the tree which are still alive, including descendants started since
+     * {@link #terminate(Process)}.
+     */
+    static void kill(Process process, List<ProcessId> tree) {
+        Set<ProcessId> alive = new LinkedHashSet<>();
+        for (ProcessId processId : tree) {
+            if (processId.isAlive()) {
+                alive.addAll(findTree(processId.pid));
+            }
+        }
+        if (!alive.isEmpty()) {
+            signal("KILL", alive);
+        }
+        process.destroyForcibly();
+    }
+
+    /**
+     * @return pid of the process, or -1 if it can't be determined on this JVM
+     */
+    static long getPid(Process process) {
+        try {
+            // Java 9+
+            Method pidMethod = Process.class.getMethod("pid");
+            return (Long) pidMethod.invoke(process);
+        } catch (NoSuchMethodException e) {
+            // Java 8 UNIXProcess
+            try {
+                Field pidField = process.getClass().getDeclaredField("pid");
+                pidField.setAccessible(true);
+                return pidField.getInt(process);
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                return -1;
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the process and all of its descendants, parents first
+     */
+    private static List<ProcessId> findTree(long rootPid) {
+        Map<Long, List<ProcessId>> childrenByParent = new HashMap<>();
+        ProcessId root = null;
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(PROC)) {
+            for (Path entry : entries) {
+                long pid = parsePid(entry.getFileName().toString());
+                if (pid < 0) {
+                    continue;
+                }
+                String[] stat = readStat(pid);
+                if (stat == null) {
+                    continue;
+                }
+                ProcessId processId = new ProcessId(pid, stat[STARTTIME]);
+                if (pid == rootPid) {
+                    root = processId;
+                }
+                childrenByParent.computeIfAbsent(Long.parseLong(stat[PPID]), ppid -> new ArrayList<>())
+                        .add(processId);
+            }
+        } catch (IOException e) {
+            log.debug("Unable to scan " + PROC, e);
+        }
+
+        if (root == null) {
+            return Collections.emptyList();
+        }
+
+        List<ProcessId> tree = new ArrayList<>();
+        tree.add(root);
+        for (int i = 0; i < tree.size(); i++) {
+            tree.addAll(childrenByParent.getOrDefault(tree.get(i).pid, Collections.emptyList()));
+        }
+        return tree;
+    }
+
+    /**
+     * @return fields of /proc/[pid]/stat after the command name, or null if the process doesn't exist
+     */
+    private static String[] readStat(long pid) {
+        try {
+            String stat = new String(Files.readAllBytes(PROC.resolve(String.valueOf(pid)).resolve("stat")),
+                    StandardCharsets.US_ASCII);
+            // the command name may contain spaces and parentheses
+            return stat.substring(stat.lastIndexOf(')') + 2).trim().split(" ");
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static long parsePid(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (!Character.isDigit(name.charAt(i))) {
+                return -1;
+            }
+        }
+        return Long.parseLong(name);
+    }
+
+    private static boolean signal(String signal, Collection<ProcessId> processes) {
+        List<String> command = new ArrayList<>();
+        command.add("kill");
+        command.add("-" + signal);
+        command.addAll(processes.stream().map(processId -> String.valueOf(processId.pid)).collect(Collectors.toList()));
+        return run(command.toArray(new String[0]));
+    }
+
+    private static boolean run(String... command) {
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .start();
+            try (InputStream output = process.getInputStream()) {
+                byte[] buffer = new byte[256];
+                while (output.read(buffer) >= 0) {
+                    // e.g. "No such process" for processes exited meanwhile
+                }
+            }
+            process.waitFor();
+            return true;
+        } catch (IOException e) {
+            log.warn("Unable to run '{}': {}", String.join(" ", command), e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    static final class ProcessId {
+
+        private final long pid;
+        private final String startTime;
+
+        private ProcessId(long pid, String startTime) {
+            this.pid = pid;
+            this.startTime = startTime;
+        }
+
+        private boolean isAlive() {
+            String[] stat = readStat(pid);
+            return stat != null && stat[STARTTIME].equals(startTime);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ProcessId processId = (ProcessId) o;
+            return pid == processId.pid && startTime.equals(processId.startTime);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(pid, startTime);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.ail.optile.jobservice.quartz;
+
+import org.quartz.JobExecutionContext;
+import org.quartz.JobListener;
+
+/**
+ * {@link JobListener} which is notified when a job, which released its worker thread before completion, is
+ * actually completed.
+ *
+ * @see NativeJob#PROP_RELEASE_WORKER
+ */
+public interface DetachedJobListener extends JobListener {
+
+    /**
+     * Called from the thread which completed the detached job execution. The result of the execution is already
+     * set in the context.
+     *
+     * @param context context of the completed execution
+     */
+    void detachedJobWasExecuted(JobExecutionContext context);
+}
@@ -0,0 +1,34 @@
+package com.ail.optile.jobservice.quartz;
+
+import com.ail.optile.jobservice.listener.JobTriggerListener;
+import com.ail.optile.jobservice.state.JobStateIndex;
+import org.quartz.Job;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.spi.TriggerFiredBundle;
+import org.springframework.scheduling.quartz.SpringBeanJobFactory;
+
+/**
+ * {@link SpringBeanJobFactory} which returns the manually fired job to idle when the job can't be instantiated.
+ * Quartz puts the trigger into the error state without notifying the listeners, so the job would be left firing.
+ */
+public class JobStateAwareJobFactory extends SpringBeanJobFactory {
+
+    private final JobStateIndex jobStateIndex;
+
+    public JobStateAwareJobFactory(JobStateIndex jobStateIndex) {
+        this.jobStateIndex = jobStateIndex;
+    }
+
+    @Override
+    public Job newJob(TriggerFiredBundle bundle, Scheduler scheduler) throws SchedulerException {
+        try {
+            return super.newJob(bundle, scheduler);
+        } catch (SchedulerException | RuntimeException e) {
+            if (JobTriggerListener.isManual(bundle.getTrigger())) {
+                jobStateIndex.fireFailed(bundle.getJobDetail().getKey().getName());
+            }
+            throw e;
+        }
+    }
+}
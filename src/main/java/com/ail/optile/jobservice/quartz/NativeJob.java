@@ -17,17 +17,24 @@
 
 package com.ail.optile.jobservice.quartz;
 
-import org.quartz.Job;
-import org.quartz.JobDataMap;
-import org.quartz.JobExecutionContext;
-import org.quartz.JobExecutionException;
+import com.ail.optile.jobservice.output.ExecutionOutput;
+import com.ail.optile.jobservice.output.ExecutionOutputStore;
+import com.ail.optile.jobservice.process.CoprocessPool;
+import com.ail.optile.jobservice.process.LogOutputSink;
+import com.ail.optile.jobservice.process.NativeOutputPump;
+import com.ail.optile.jobservice.process.NativeProcessReaper;
+import com.ail.optile.jobservice.process.NativeTimeoutService;
+import com.ail.optile.jobservice.process.OutputSink;
+import org.quartz.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <p> Built in job for executing native executables in a separate process.</p>
@@ -47,9 +54,13 @@ import java.io.InputStreamReader;
  * @author James House
  * @author Steinar Overbeck Cook
  * @see #PROP_COMMAND
+ * @see #PROP_ARGV
  * @see #PROP_PARAMETERS
  * @see #PROP_WAIT_FOR_PROCESS
  * @see #PROP_CONSUME_STREAMS
+ * @see #PROP_RELEASE_WORKER
+ * @see #PROP_COPROCESS
+ * @see #PROP_TIMEOUT_SECONDS
  */
 public class NativeJob implements Job {
 
@@ -59,6 +70,14 @@ public class NativeJob implements Job {
      */
     public static final String PROP_COMMAND = "command";
 
+    /**
+     * Optional parameter that specifies the command as an array of arguments
+     * (<code>String[]</code>), the first of which is the executable. The
+     * process is launched directly, without a shell, and {@link #PROP_COMMAND}
+     * and {@link #PROP_PARAMETERS} are ignored.
+     */
+    public static final String PROP_ARGV = "argv";
+
     /*
      *~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
      *
@@ -85,11 +104,67 @@ public class NativeJob implements Job {
      * consumed.  If the process creates output, it is possible that it might
      * 'hang' if the streams are not consumed.
      *
+     * <p>When {@link NativeOutputPump} is available, the streams are always
+     * drained. If {@link ExecutionOutputStore} is available as well, the output
+     * is captured to the execution's own files, otherwise this parameter defines
+     * whether the output is logged.</p>
+     *
      * <p>Defaults to <code>false</code>.</p>
      */
     public static final String PROP_CONSUME_STREAMS = "consumeStreams";
+    /**
+     * Optional parameter (value should be 'true' or 'false') that specifies
+     * whether the job should release the worker thread right after the native
+     * process is launched. The execution is completed by {@link NativeProcessReaper}
+     * when the process exits, and {@link DetachedJobListener}s are notified then.
+     *
+     * <p>Has effect only if {@link #PROP_WAIT_FOR_PROCESS} is true.</p>
+     * <p>Defaults to <code>false</code>.</p>
+     */
+    public static final String PROP_RELEASE_WORKER = "releaseWorker";
+    /**
+     * Optional parameter (value should be 'true' or 'false') that specifies
+     * whether the shell command is run by a warm worker of {@link CoprocessPool}
+     * instead of a newly launched process. Stderr of the command is merged into
+     * its stdout.
+     *
+     * <p>Has effect only for {@link #PROP_COMMAND} when {@link CoprocessPool}
+     * is available and supported, and {@link #PROP_WAIT_FOR_PROCESS} is true.</p>
+     * <p>Defaults to <code>false</code>.</p>
+     */
+    public static final String PROP_COPROCESS = "coprocess";
+    /**
+     * Optional parameter (value should be a positive number of seconds) that
+     * specifies how long the native command may run. The whole process tree of
+     * the command is terminated by {@link NativeTimeoutService} when it's
+     * exceeded.
+     *
+     * <p>Has effect only if {@link #PROP_WAIT_FOR_PROCESS} is true.</p>
+     */
+    public static final String PROP_TIMEOUT_SECONDS = "timeoutSeconds";
+    /**
+     * Key of the execution context entry which marks executions that released
+     * their worker thread.
+     */
+    public static final String CONTEXT_DETACHED = "nativeJob.detached";
+    /**
+     * Key of the execution context entry which holds the name of the output
+     * file created by {@link ExecutionOutputStore}.
+     */
+    public static final String CONTEXT_OUTPUT_FILE = "nativeJob.outputFile";
+    /**
+     * Key of the execution context entry which marks executions terminated
+     * after their {@link #PROP_TIMEOUT_SECONDS}.
+     */
+    public static final String CONTEXT_TIMED_OUT = "nativeJob.timedOut";
     private final Logger log = LoggerFactory.getLogger(getClass());
 
+    private NativeProcessReaper processReaper;
+    private NativeOutputPump outputPump;
+    private ExecutionOutputStore outputStore;
+    private CoprocessPool coprocessPool;
+    private NativeTimeoutService timeoutService;
+
 
     /*
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
@@ -99,6 +174,46 @@ public class NativeJob implements Job {
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
      */
 
+    /**
+     * Checks whether the execution released its worker thread and is completed
+     * by {@link NativeProcessReaper}.
+     */
+    public static boolean isDetached(JobExecutionContext context) {
+        return Boolean.TRUE.equals(context.get(CONTEXT_DETACHED));
+    }
+
+    /**
+     * Checks whether the execution was terminated after its timeout.
+     */
+    public static boolean isTimedOut(JobExecutionContext context) {
+        return Boolean.TRUE.equals(context.get(CONTEXT_TIMED_OUT));
+    }
+
+    @Autowired(required = false)
+    public void setProcessReaper(NativeProcessReaper processReaper) {
+        this.processReaper = processReaper;
+    }
+
+    @Autowired(required = false)
+    public void setOutputPump(NativeOutputPump outputPump) {
+        this.outputPump = outputPump;
+    }
+
+    @Autowired(required = false)
+    public void setOutputStore(ExecutionOutputStore outputStore) {
+        this.outputStore = outputStore;
+    }
+
+    @Autowired(required = false)
+    public void setCoprocessPool(CoprocessPool coprocessPool) {
+        this.coprocessPool = coprocessPool;
+    }
+
+    @Autowired(required = false)
+    public void setTimeoutService(NativeTimeoutService timeoutService) {
+        this.timeoutService = timeoutService;
+    }
+
     public void execute(JobExecutionContext context)
             throws JobExecutionException {
 
@@ -112,6 +227,8 @@ public class NativeJob implements Job {
             parameters = "";
         }
 
+        String[] argv = (String[]) data.get(PROP_ARGV);
+
         boolean wait = true;
         if (data.containsKey(PROP_WAIT_FOR_PROCESS)) {
             wait = data.getBooleanValue(PROP_WAIT_FOR_PROCESS);
@@ -120,68 +237,196 @@ public class NativeJob implements Job {
         if (data.containsKey(PROP_CONSUME_STREAMS)) {
             consumeStreams = data.getBooleanValue(PROP_CONSUME_STREAMS);
         }
+        boolean releaseWorker = false;
+        if (data.containsKey(PROP_RELEASE_WORKER)) {
+            releaseWorker = data.getBooleanValue(PROP_RELEASE_WORKER);
+        }
+        boolean coprocess = false;
+        if (data.containsKey(PROP_COPROCESS)) {
+            coprocess = data.getBooleanValue(PROP_COPROCESS);
+        }
+        long timeoutSeconds = 0;
+        if (data.containsKey(PROP_TIMEOUT_SECONDS)) {
+            timeoutSeconds = data.getLongValue(PROP_TIMEOUT_SECONDS);
+        }
 
-        Integer exitCode = this.runNativeCommand(command, parameters, wait, consumeStreams);
+        if (wait && coprocess && argv == null && coprocessPool != null && coprocessPool.isSupported()) {
+            context.setResult(this.runCoprocessCommand(context, command + " " + parameters, consumeStreams,
+                    timeoutSeconds));
+            return;
+        }
+
+        String[] cmd = argv != null ? argv : buildShellCommand(command, parameters);
+
+        if (wait && releaseWorker && processReaper != null) {
+            Process proc = this.launchNativeCommand(context, cmd, consumeStreams);
+            context.put(CONTEXT_DETACHED, Boolean.TRUE);
+            NativeTimeoutService.Timeout timeout = this.scheduleTimeout(proc, timeoutSeconds);
+            processReaper.register(proc, exitCode -> {
+                this.completeTimeout(context, timeout);
+                completeDetachedExecution(context, exitCode);
+            });
+            return;
+        }
+
+        Integer exitCode = this.runNativeCommand(context, cmd, wait, consumeStreams, timeoutSeconds);
+        context.setResult(exitCode);
+
+    }
+
+    private void completeDetachedExecution(JobExecutionContext context, int exitCode) {
         context.setResult(exitCode);
 
+        try {
+            for (JobListener listener : context.getScheduler().getListenerManager().getJobListeners()) {
+                if (listener instanceof DetachedJobListener) {
+                    ((DetachedJobListener) listener).detachedJobWasExecuted(context);
+                }
+            }
+        } catch (SchedulerException e) {
+            getLog().error("Unable to notify listeners of detached job " + context.getJobDetail().getKey(), e);
+        }
+    }
+
+    private Integer runNativeCommand(JobExecutionContext context, String[] cmd, boolean wait, boolean consumeStreams,
+                                     long timeoutSeconds)
+            throws JobExecutionException {
+
+        Process proc = launchNativeCommand(context, cmd, consumeStreams);
+        Integer result = null;
+
+        NativeTimeoutService.Timeout timeout = null;
+        try {
+            if (wait) {
+                timeout = scheduleTimeout(proc, timeoutSeconds);
+                result = proc.waitFor();
+            }
+            // any error message?
+
+        } catch (Throwable x) {
+            throw new JobExecutionException("Error waiting for native command: ", x, false);
+        } finally {
+            completeTimeout(context, timeout);
+        }
+
+        return result;
+    }
+
+    private NativeTimeoutService.Timeout scheduleTimeout(Process proc, long timeoutSeconds) {
+        if (timeoutSeconds <= 0 || timeoutService == null) {
+            return null;
+        }
+        return timeoutService.schedule(proc, TimeUnit.SECONDS.toMillis(timeoutSeconds));
     }
 
-    private Integer runNativeCommand(String command, String parameters, boolean wait, boolean consumeStreams)
+    private void completeTimeout(JobExecutionContext context, NativeTimeoutService.Timeout timeout) {
+        if (timeout == null) {
+            return;
+        }
+        timeout.cancel();
+        if (timeout.isExpired()) {
+            context.put(CONTEXT_TIMED_OUT, Boolean.TRUE);
+        }
+    }
+
+    private Integer runCoprocessCommand(JobExecutionContext context, String command, boolean consumeStreams,
+                                        long timeoutSeconds)
             throws JobExecutionException {
 
+        OutputSink sink;
+        if (outputStore != null) {
+            // Captures the merged output of the command to the execution's stdout file
+            ExecutionOutput output = outputStore.create(context.getJobDetail().getKey().getName());
+            context.put(CONTEXT_OUTPUT_FILE, output.getOutputFile());
+            output.getStderrSink().close();
+            sink = output.getStdoutSink();
+        } else {
+            sink = consumeStreams ? new LogOutputSink(getLog(), "stdout", false) : OutputSink.DISCARD;
+        }
+
+        // the timeout is cancelled by the pool before the worker is reused, a worker killed on timeout is replaced
+        NativeTimeoutService.Timeout[] timeout = new NativeTimeoutService.Timeout[1];
+        Integer result = null;
+        Throwable error = null;
+        try {
+            getLog().info("About to run {} in coprocess ...", command);
+            result = coprocessPool.execute(command, sink, worker -> {
+                timeout[0] = scheduleTimeout(worker, timeoutSeconds);
+                return timeout[0] != null ? timeout[0]::cancel : null;
+            });
+        } catch (Throwable x) {
+            error = x;
+        }
+
+        completeTimeout(context, timeout[0]);
+        if (error != null && !isTimedOut(context)) {
+            throw new JobExecutionException("Error running native command in coprocess: ", error, false);
+        }
+        return result;
+    }
+
+    private String[] buildShellCommand(String command, String parameters) {
+
         String[] cmd;
         String[] args = new String[2];
-        Integer result = null;
         args[0] = command;
         args[1] = parameters;
 
-        try {
-            //with this variable will be done the swithcing
-            String osName = System.getProperty("os.name");
-
-            // specific for Windows
-            if (osName.startsWith("Windows")) {
-                cmd = new String[args.length + 2];
-                if (osName.equals("Windows 95")) { // windows 95 only
-                    cmd[0] = "command.com";
-                } else {
-                    cmd[0] = "cmd.exe";
-                }
-                cmd[1] = "/C";
-                System.arraycopy(args, 0, cmd, 2, args.length);
-            } else if (osName.equals("Linux")) {
-                cmd = new String[3];
-                cmd[0] = "/bin/sh";
-                cmd[1] = "-c";
-                cmd[2] = args[0] + " " + args[1];
-            } else { // try this...
-                cmd = args;
+        //with this variable will be done the swithcing
+        String osName = System.getProperty("os.name");
+
+        // specific for Windows
+        if (osName.startsWith("Windows")) {
+            cmd = new String[args.length + 2];
+            if (osName.equals("Windows 95")) { // windows 95 only
+                cmd[0] = "command.com";
+            } else {
+                cmd[0] = "cmd.exe";
             }
+            cmd[1] = "/C";
+            System.arraycopy(args, 0, cmd, 2, args.length);
+        } else if (osName.equals("Linux")) {
+            cmd = new String[3];
+            cmd[0] = "/bin/sh";
+            cmd[1] = "-c";
+            cmd[2] = args[0] + " " + args[1];
+        } else { // try this...
+            cmd = args;
+        }
+
+        return cmd;
+    }
 
+    private Process launchNativeCommand(JobExecutionContext context, String[] cmd, boolean consumeStreams)
+            throws JobExecutionException {
+
+        try {
             Runtime rt = Runtime.getRuntime();
             // Executes the command
-            getLog().info("About to run " + cmd[0] + " " + cmd[1] + " " + (cmd.length > 2 ? cmd[2] : "") + " ...");
+            getLog().info("About to run {} ...", String.join(" ", cmd));
             Process proc = rt.exec(cmd);
-            // Consumes the stdout from the process
-            StreamConsumer stdoutConsumer = new StreamConsumer(proc.getInputStream(), "stdout");
-
-            // Consumes the stderr from the process
-            if (consumeStreams) {
-                StreamConsumer stderrConsumer = new StreamConsumer(proc.getErrorStream(), "stderr");
-                stdoutConsumer.start();
-                stderrConsumer.start();
-            }
 
-            if (wait) {
-                result = proc.waitFor();
+            if (outputPump != null && outputStore != null) {
+                // Captures both streams of the process to the execution's own files
+                ExecutionOutput output = outputStore.create(context.getJobDetail().getKey().getName());
+                context.put(CONTEXT_OUTPUT_FILE, output.getOutputFile());
+                outputPump.register(proc, output.getStdoutSink(), output.getStderrSink());
+            } else if (outputPump != null) {
+                // Drains both streams of the process with the shared pump threads
+                outputPump.register(proc,
+                        consumeStreams ? new LogOutputSink(getLog(), "stdout", false) : OutputSink.DISCARD,
+                        consumeStreams ? new LogOutputSink(getLog(), "stderr", true) : OutputSink.DISCARD);
+            } else if (consumeStreams) {
+                // Consumes the stdout and stderr from the process
+                new StreamConsumer(proc.getInputStream(), "stdout").start();
+                new StreamConsumer(proc.getErrorStream(), "stderr").start();
             }
-            // any error message?
+
+            return proc;
 
         } catch (Throwable x) {
             throw new JobExecutionException("Error launching native command: ", x, false);
         }
-
-        return result;
     }
 
     protected Logger getLog() {
@@ -0,0 +1,31 @@
+package com.ail.optile.jobservice.registry;
+
+import com.ail.optile.jobservice.quartz.NativeJob;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.quartz.Job;
+import org.quartz.TriggerKey;
+
+import java.util.List;
+
+/**
+ * Snapshot of the stored definition of a job. {@link #command} and {@link #argv} are defined for native jobs only.
+ */
+@Getter
+@AllArgsConstructor
+@Builder
+public class JobDefinition {
+
+    private final String name;
+    private final Class<? extends Job> jobClass;
+    private final String command;
+    private final List<String> argv;
+    private final String cron;
+    private final Integer priority;
+    private final TriggerKey triggerKey;
+
+    public boolean isNative() {
+        return NativeJob.class.equals(jobClass);
+    }
+}
@@ -0,0 +1,358 @@
+package com.ail.optile.jobservice.registry;
+
+import com.ail.optile.jobservice.api.exception.UnexpectedException;
+import com.ail.optile.jobservice.quartz.NativeJob;
+import com.ail.optile.jobservice.state.JobStateIndex;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.*;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.utils.Key;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory registry of the definitions of all jobs: class, command, cron and priority.
+ * <p>
+ * The registry is bulk loaded from the tables of the Quartz job store at startup and then the jobs changed through
+ * the scheduler are bulk reloaded by {@link com.ail.optile.jobservice.listener.JobDefinitionListener}, so checking and
+ * reading the jobs never hits the database. Only the changes made through this scheduler instance are seen. When the
+ * tables can't be read, e.g. the job store isn't JDBC, the jobs are loaded one by one through the scheduler.
+ * <p>
+ * The version of a job in {@link JobStateIndex} is bumped only after its reloaded definition is in place, so a client
+ * which has seen the new version never reads the old definition.
+ */
+@Component
+@Slf4j
+public class JobDefinitionRegistry {
+
+    // stays below the limits of the databases on the number of elements of an in list
+    private static final int MAX_JOB_NAMES_PER_QUERY = 500;
+
+    private final Scheduler scheduler;
+    private final JobStateIndex jobStateIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final String tablePrefix;
+    private final ConcurrentMap<String, JobDefinition> definitions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TriggerKey, String> jobNamesByTrigger = new ConcurrentHashMap<>();
+    // names of the definitions in their natural order, changed together with the definitions
+    private final NavigableSet<String> jobNames = new ConcurrentSkipListSet<>();
+
+    @Autowired
+    public JobDefinitionRegistry(
+            Scheduler scheduler,
+            JobStateIndex jobStateIndex,
+            JdbcTemplate jdbcTemplate,
+            @Value("${spring.quartz.properties.org.quartz.jobStore.tablePrefix:QRTZ_}") String tablePrefix) {
+        this.scheduler = scheduler;
+        this.jobStateIndex = jobStateIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.tablePrefix = tablePrefix;
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        try {
+            Collection<JobDefinition> loaded;
+            try {
+                loaded = loadAll();
+            } catch (RuntimeException e) {
+                log.warn("Unable to bulk load job definitions, loading them one by one: {}", e.getMessage());
+                loaded = new ArrayList<>();
+                for (JobKey jobKey : scheduler.getJobKeys(GroupMatcher.groupEquals(Key.DEFAULT_GROUP))) {
+                    JobDefinition definition = load(jobKey.getName());
+                    if (definition != null) {
+                        loaded.add(definition);
+                    }
+                }
+            }
+
+            for (JobDefinition definition : loaded) {
+                definitions.put(definition.getName(), definition);
+                jobNames.add(definition.getName());
+                if (definition.getTriggerKey() != null) {
+                    jobNamesByTrigger.put(definition.getTriggerKey(), definition.getName());
+                }
+                jobStateIndex.jobChanged(definition.getName());
+            }
+        } catch (SchedulerException e) {
+            log.error(e.getMessage(), e);
+            throw new UnexpectedException(e);
+        }
+        log.info("Job definition registry is loaded with {} jobs", definitions.size());
+    }
+
+    public boolean contains(String jobName) {
+        return definitions.containsKey(jobName);
+    }
+
+    /**
+     * @return null if the job doesn't exist
+     */
+    public JobDefinition find(String jobName) {
+        return definitions.get(jobName);
+    }
+
+    public Collection<JobDefinition> getAll() {
+        return Collections.unmodifiableCollection(definitions.values());
+    }
+
+    /**
+     * @return live view of the job names in their natural order, e.g. to page through them with
+     * {@link NavigableSet#tailSet(Object, boolean)}
+     */
+    public NavigableSet<String> getJobNames() {
+        return Collections.unmodifiableNavigableSet(jobNames);
+    }
+
+    /**
+     * @return null if the trigger isn't the schedule of a known job
+     */
+    public String findJobName(TriggerKey triggerKey) {
+        return jobNamesByTrigger.get(triggerKey);
+    }
+
+    /**
+     * Replaces the definition of the job with the stored one, or removes it when the job isn't stored any more.
+     * The job is loaded outside of the map and put only if the definition it replaces is still in place, otherwise
+     * it's loaded again, so the reload which has read the store last always wins.
+     */
+    public void reload(String jobName) {
+        JobDefinition current;
+        do {
+            current = definitions.get(jobName);
+        } while (!replace(jobName, current, load(jobName)));
+    }
+
+    /**
+     * Reloads the jobs as {@link #reload(String)} does, but reads all of them from the tables of the job store with
+     * two queries. A job reloaded concurrently meanwhile is reloaded once more on its own.
+     */
+    public void reloadAll(Collection<String> jobNames) {
+        Map<String, JobDefinition> current = new HashMap<>();
+        jobNames.forEach(jobName -> current.put(jobName, definitions.get(jobName)));
+
+        Map<String, JobDefinition> loaded = new HashMap<>();
+        try {
+            for (JobDefinition definition : loadAll(jobNames)) {
+                loaded.put(definition.getName(), definition);
+            }
+        } catch (RuntimeException | SchedulerException e) {
+            log.warn("Unable to bulk reload job definitions, reloading them one by one: {}", e.getMessage());
+            jobNames.forEach(this::reload);
+            return;
+        }
+
+        for (String jobName : jobNames) {
+            if (!replace(jobName, current.get(jobName), loaded.get(jobName))) {
+                reload(jobName);
+            }
+        }
+    }
+
+    /**
+     * Removes the job whose schedule has no more fire times. Quartz removes such a job together with its trigger
+     * without notifying about the deleted job.
+     */
+    public void scheduleFinalized(TriggerKey triggerKey) {
+        String jobName = jobNamesByTrigger.remove(triggerKey);
+        if (jobName != null) {
+            definitions.computeIfPresent(jobName, (name, definition) -> {
+                if (!triggerKey.equals(definition.getTriggerKey())) {
+                    return definition;
+                }
+                jobNames.remove(name);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Replaces the definition of the job if the expected one is still in place.
+     *
+     * @param replacement null to remove the job
+     * @return false if the definition was replaced concurrently
+     */
+    private boolean replace(String jobName, JobDefinition expected, JobDefinition replacement) {
+        boolean[] replaced = new boolean[1];
+        definitions.compute(jobName, (name, definition) -> {
+            if (definition != expected) {
+                return definition;
+            }
+            replaced[0] = true;
+            if (definition != null && definition.getTriggerKey() != null) {
+                jobNamesByTrigger.remove(definition.getTriggerKey());
+            }
+            if (replacement != null && replacement.getTriggerKey() != null) {
+                jobNamesByTrigger.put(replacement.getTriggerKey(), name);
+            }
+            if (replacement != null) {
+                jobNames.add(name);
+            } else {
+                jobNames.remove(name);
+            }
+            return replacement;
+        });
+        if (!replaced[0]) {
+            return false;
+        }
+
+        if (replacement != null) {
+            jobStateIndex.jobChanged(jobName);
+        } else if (expected != null) {
+            jobStateIndex.remove(jobName);
+        }
+        return true;
+    }
+
+    /**
+     * Loads the definitions of all jobs with two queries instead of two round trips per job.
+     */
+    private Collection<JobDefinition> loadAll() throws SchedulerException {
+        return query(scheduler.getSchedulerName(), Collections.emptyList());
+    }
+
+    /**
+     * Loads the definitions of the jobs with two queries per {@value #MAX_JOB_NAMES_PER_QUERY} jobs, the jobs which
+     * don't exist aren't loaded.
+     */
+    private Collection<JobDefinition> loadAll(Collection<String> jobNames) throws SchedulerException {
+        String schedulerName = scheduler.getSchedulerName();
+        List<JobDefinition> loaded = new ArrayList<>();
+        List<String> names = new ArrayList<>(jobNames);
+        for (int from = 0; from < names.size(); from += MAX_JOB_NAMES_PER_QUERY) {
+            int to = Math.min(from + MAX_JOB_NAMES_PER_QUERY, names.size());
+            loaded.addAll(query(schedulerName, names.subList(from, to)));
+        }
+        return loaded;
+    }
+
+    /**
+     * @param jobNames names of the jobs to load, empty for all jobs
+     */
+    private List<JobDefinition> query(String schedulerName, List<String> jobNames) {
+        List<Object> args = new ArrayList<>();
+        args.add(schedulerName);
+        args.add(Key.DEFAULT_GROUP);
+        args.addAll(jobNames);
+
+        // manually fired triggers of the jobs aren't cron triggers, so they aren't joined
+        Map<String, CronTriggerRow> triggers = new HashMap<>();
+        jdbcTemplate.query(
+                "select t.JOB_NAME, t.TRIGGER_NAME, t.TRIGGER_GROUP, t.PRIORITY, c.CRON_EXPRESSION"
+                        + " from " + tablePrefix + "TRIGGERS t join " + tablePrefix + "CRON_TRIGGERS c"
+                        + " on c.SCHED_NAME = t.SCHED_NAME and c.TRIGGER_NAME = t.TRIGGER_NAME"
+                        + " and c.TRIGGER_GROUP = t.TRIGGER_GROUP"
+                        + " where t.SCHED_NAME = ? and t.JOB_GROUP = ?" + inJobNames("t.JOB_NAME", jobNames),
+                rs -> {
+                    triggers.putIfAbsent(rs.getString("JOB_NAME"), new CronTriggerRow(
+                            TriggerKey.triggerKey(rs.getString("TRIGGER_NAME"), rs.getString("TRIGGER_GROUP")),
+                            rs.getString("CRON_EXPRESSION"),
+                            rs.getInt("PRIORITY")));
+                },
+                args.toArray());
+
+        return jdbcTemplate.query(
+                "select JOB_NAME, JOB_CLASS_NAME, JOB_DATA from " + tablePrefix + "JOB_DETAILS"
+                        + " where SCHED_NAME = ? and JOB_GROUP = ?" + inJobNames("JOB_NAME", jobNames),
+                args.toArray(),
+                (rs, rowNum) -> {
+                    String jobName = rs.getString("JOB_NAME");
+                    Map<?, ?> jobDataMap = readJobDataMap(rs.getBytes("JOB_DATA"));
+                    String[] argv = (String[]) jobDataMap.get(NativeJob.PROP_ARGV);
+                    CronTriggerRow trigger = triggers.get(jobName);
+
+                    return JobDefinition.builder()
+                            .name(jobName)
+                            .jobClass(loadJobClass(rs.getString("JOB_CLASS_NAME")))
+                            .command((String) jobDataMap.get(NativeJob.PROP_COMMAND))
+                            .argv(argv != null ? Collections.unmodifiableList(Arrays.asList(argv)) : null)
+                            .cron(trigger != null ? trigger.cron : null)
+                            .priority(trigger != null ? trigger.priority : null)
+                            .triggerKey(trigger != null ? trigger.key : null)
+                            .build();
+                });
+    }
+
+    private static String inJobNames(String column, List<String> jobNames) {
+        if (jobNames.isEmpty()) {
+            return "";
+        }
+        return " and " + column + " in (" + String.join(", ", Collections.nCopies(jobNames.size(), "?")) + ")";
+    }
+
+    /**
+     * Reads the job data map serialized by the JDBC job store, which doesn't store the maps as properties.
+     */
+    private static Map<?, ?> readJobDataMap(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return Collections.emptyMap();
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Map<?, ?>) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Unable to read job data: " + e.getMessage(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Job> loadJobClass(String className) {
+        try {
+            return (Class<? extends Job>) ClassUtils.forName(className, JobDefinitionRegistry.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Unable to load job class " + className, e);
+        }
+    }
+
+    private JobDefinition load(String jobName) {
+        try {
+            JobKey jobKey = JobKey.jobKey(jobName, Key.DEFAULT_GROUP);
+            JobDetail jobDetail = scheduler.getJobDetail(jobKey);
+            if (jobDetail == null) {
+                return null;
+            }
+
+            // manually fired triggers of the job aren't its schedule
+            CronTrigger trigger = scheduler.getTriggersOfJob(jobKey).stream()
+                    .filter(CronTrigger.class::isInstance)
+                    .map(CronTrigger.class::cast)
+                    .findFirst()
+                    .orElse(null);
+            JobDataMap jobDataMap = jobDetail.getJobDataMap();
+            String[] argv = (String[]) jobDataMap.get(NativeJob.PROP_ARGV);
+
+            return JobDefinition.builder()
+                    .name(jobName)
+                    .jobClass(jobDetail.getJobClass())
+                    .command((String) jobDataMap.get(NativeJob.PROP_COMMAND))
+                    .argv(argv != null ? Collections.unmodifiableList(Arrays.asList(argv)) : null)
+                    .cron(trigger != null ? trigger.getCronExpression() : null)
+                    .priority(trigger != null ? trigger.getPriority() : null)
+                    .triggerKey(trigger != null ? trigger.getKey() : null)
+                    .build();
+        } catch (SchedulerException e) {
+            log.error(e.getMessage(), e);
+            throw new UnexpectedException(e);
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class CronTriggerRow {
+
+        private final TriggerKey key;
+        private final String cron;
+        private final int priority;
+    }
+}
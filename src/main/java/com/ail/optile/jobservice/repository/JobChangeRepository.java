@@ -0,0 +1,29 @@
+package com.ail.optile.jobservice.repository;
+
+import com.ail.optile.jobservice.pdo.JobChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Date;
+import java.util.List;
+
+public interface JobChangeRepository extends CrudRepository<JobChange, Long> {
+
+    List<JobChange> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    JobChange findTopByOrderByIdAsc();
+
+    JobChange findTopByOrderByIdDesc();
+
+    /**
+     * Fetches a page of the oldest changes from the index on the date.
+     */
+    List<JobChange> findByDateBeforeOrderByDateAsc(Date date, Pageable pageable);
+
+    @Modifying
+    @Query("delete from JobChange c where c.id in :ids")
+    void deleteByIds(@Param("ids") List<Long> ids);
+}
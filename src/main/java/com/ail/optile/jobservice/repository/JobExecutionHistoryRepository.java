@@ -1,11 +1,67 @@
 package com.ail.optile.jobservice.repository;
 
 import com.ail.optile.jobservice.pdo.JobExecutionHistory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 
 public interface JobExecutionHistoryRepository extends CrudRepository<JobExecutionHistory, Long> {
 
     JobExecutionHistory findTopByJobNameOrderByCompletionDateDesc(String jobName);
 
-    void deleteAllByJobName(String jobName);
+    Optional<JobExecutionHistory> findByTicketId(Long ticketId);
+
+    /**
+     * Fetches the latest execution history record of every job with a single query, ad-hoc tasks are skipped. The
+     * records of deleted jobs which aren't purged yet are skipped too.
+     */
+    @Query("select h from JobExecutionHistory h where h.ticketId is null and h.completionDate = "
+            + "(select max(l.completionDate) from JobExecutionHistory l "
+            + "where l.jobName = h.jobName and l.ticketId is null) "
+            + "and not exists (select t from JobTombstone t "
+            + "where t.jobName = h.jobName and t.deletionDate >= h.completionDate)")
+    List<JobExecutionHistory> findLatestOfEachJob();
+
+    /**
+     * Fetches a page of execution history completed after the date, ordered by id to continue after the last id of
+     * the previous page.
+     */
+    List<JobExecutionHistory> findByIdGreaterThanAndCompletionDateAfterOrderByIdAsc(
+            Long id, Date completionDate, Pageable pageable);
+
+    /**
+     * Fetches a page of the oldest execution history of the jobs from the index on the completion date, ad-hoc tasks
+     * are skipped. The latest record of every job is never fetched, it's the last result of the job.
+     */
+    @Query("select h from JobExecutionHistory h where h.ticketId is null and h.completionDate < :completionDate "
+            + "and h.completionDate < (select max(l.completionDate) from JobExecutionHistory l "
+            + "where l.jobName = h.jobName and l.ticketId is null) "
+            + "order by h.completionDate asc")
+    List<JobExecutionHistory> findSupersededBefore(
+            @Param("completionDate") Date completionDate, Pageable pageable);
+
+    /**
+     * Fetches a page of the oldest results of ad-hoc tasks from the index on the completion date.
+     */
+    List<JobExecutionHistory> findByTicketIdIsNotNullAndCompletionDateBeforeOrderByCompletionDateAsc(
+            Date completionDate, Pageable pageable);
+
+    /**
+     * Fetches a page of the execution history of the job completed until the date, ad-hoc tasks of the same name are
+     * skipped.
+     */
+    List<JobExecutionHistory> findByJobNameAndTicketIdIsNullAndCompletionDateLessThanEqualOrderByCompletionDateAsc(
+            String jobName, Date completionDate, Pageable pageable);
+
+    boolean existsByJobNameAndTicketIdIsNotNull(String jobName);
+
+    @Modifying
+    @Query("delete from JobExecutionHistory h where h.id in :ids")
+    void deleteByIds(@Param("ids") List<Long> ids);
 }
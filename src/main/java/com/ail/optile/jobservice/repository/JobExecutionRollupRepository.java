@@ -0,0 +1,31 @@
+package com.ail.optile.jobservice.repository;
+
+import com.ail.optile.jobservice.pdo.JobExecutionRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+public interface JobExecutionRollupRepository extends CrudRepository<JobExecutionRollup, Long> {
+
+    Optional<JobExecutionRollup> findByJobNameAndGranularityAndPeriodStart(
+            String jobName, JobExecutionRollup.Granularity granularity, Date periodStart);
+
+    List<JobExecutionRollup> findByGranularityAndPeriodStartBeforeOrderByIdAsc(
+            JobExecutionRollup.Granularity granularity, Date periodStart, Pageable pageable);
+
+    List<JobExecutionRollup> findByGranularityAndPeriodStartGreaterThanEqual(
+            JobExecutionRollup.Granularity granularity, Date periodStart);
+
+    List<JobExecutionRollup> findByJobNameAndGranularityAndPeriodStartBeforeOrderByIdAsc(
+            String jobName, JobExecutionRollup.Granularity granularity, Date periodStart, Pageable pageable);
+
+    @Modifying
+    @Query("delete from JobExecutionRollup r where r.id in :ids")
+    void deleteByIds(@Param("ids") List<Long> ids);
+}
@@ -0,0 +1,11 @@
+package com.ail.optile.jobservice.repository;
+
+import com.ail.optile.jobservice.pdo.JobTombstone;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.Optional;
+
+public interface JobTombstoneRepository extends CrudRepository<JobTombstone, Long> {
+
+    Optional<JobTombstone> findFirstByOrderByIdAsc();
+}
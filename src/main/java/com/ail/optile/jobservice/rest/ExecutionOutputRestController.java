@@ -0,0 +1,136 @@
+package com.ail.optile.jobservice.rest;
+
+import com.ail.optile.jobservice.api.exception.ExecutionOutputIsNotFoundException;
+import com.ail.optile.jobservice.output.ExecutionOutput;
+import com.ail.optile.jobservice.output.ExecutionOutputStore;
+import com.ail.optile.jobservice.rest.exception.ExecutionOutputIsNotFoundRestException;
+import com.ail.optile.jobservice.rest.exception.IncorrectRangeRestException;
+import com.ail.optile.jobservice.rest.exception.IncorrectTailRestException;
+import com.ail.optile.jobservice.rest.exception.UnexpectedRestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+@RestController
+@RequestMapping("/job-service")
+@Slf4j
+public class ExecutionOutputRestController {
+
+    private static final String TEXT_CONTENT_TYPE = "text/plain;charset=UTF-8";
+    private static final String GZIP_CONTENT_TYPE = "application/gzip";
+    // request attributes of Tomcat's sendfile support, the file is written by the connector after the request
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_FILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private final ExecutionOutputStore outputStore;
+
+    @Autowired
+    public ExecutionOutputRestController(ExecutionOutputStore outputStore) {
+        this.outputStore = outputStore;
+    }
+
+    /**
+     * Serves the captured output of the execution. Supports a single HTTP byte range or the last {@code tail} bytes
+     * of uncompressed output. Offsets into gzipped output don't match the offsets of the text, so a range or tail of
+     * compressed output is rejected with {@code 416 Range Not Satisfiable} and only the whole file is served.
+     * <p>
+     * When the container supports sendfile (Tomcat's NIO connector does by default), the file region is handed over
+     * to the connector and sent by the kernel without copying it through the JVM. Otherwise it's copied to the
+     * response stream.
+     */
+    @GetMapping("/executions/{executionId}/output")
+    public void getOutput(
+            @PathVariable long executionId,
+            @RequestParam(defaultValue = "stdout") String stream,
+            @RequestParam(required = false) Long tail,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        if (tail != null && tail < 0) {
+            log.error("Tail '{}' of execution '{}' output is negative", tail, executionId);
+            throw new IncorrectTailRestException(new IllegalArgumentException("Tail " + tail + " is negative"));
+        }
+        Path path = getOutputPath(executionId, stream);
+        boolean compressed = path.toString().endsWith(ExecutionOutputStore.GZIP_EXTENSION);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            long start = 0;
+            long end = length - 1;
+
+            if (compressed && (range != null || tail != null)) {
+                log.error("Output of execution '{}' is compressed, range and tail aren't supported", executionId);
+                response.setHeader(HttpHeaders.ACCEPT_RANGES, "none");
+                throw new IncorrectRangeRestException(new IllegalArgumentException(
+                        "Output of execution " + executionId + " is compressed, fetch it as a whole"));
+            }
+            if (range != null) {
+                try {
+                    HttpRange httpRange = HttpRange.parseRanges(range).get(0);
+                    start = httpRange.getRangeStart(length);
+                    end = httpRange.getRangeEnd(length);
+                    if (start >= length || start > end) {
+                        throw new IllegalArgumentException("Range '" + range + "' is outside of " + length + " bytes");
+                    }
+                } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                    log.error(e.getMessage());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    throw new IncorrectRangeRestException(e);
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            } else if (tail != null) {
+                start = Math.max(0, length - tail);
+            }
+
+            long count = Math.max(0, end - start + 1);
+            response.setContentType(compressed ? GZIP_CONTENT_TYPE : TEXT_CONTENT_TYPE);
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, compressed ? "none" : "bytes");
+            response.setContentLengthLong(count);
+
+            if (count > 0 && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+                request.setAttribute(SENDFILE_FILENAME_ATTR, path.toFile().getCanonicalPath());
+                request.setAttribute(SENDFILE_FILE_START_ATTR, start);
+                request.setAttribute(SENDFILE_FILE_END_ATTR, start + count);
+                return;
+            }
+
+            // transferTo into the stream of the response is a copy through a user-space buffer
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            while (count > 0) {
+                long transferred = channel.transferTo(start, count, out);
+                start += transferred;
+                count -= transferred;
+            }
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+            throw new UnexpectedRestException(e);
+        }
+    }
+
+    private Path getOutputPath(long executionId, String stream) {
+        try {
+            return outputStore.getOutputPath(executionId, ExecutionOutput.Stream.valueOf(stream.toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            log.error("Unknown output stream '{}'", stream);
+            throw new ExecutionOutputIsNotFoundRestException(e);
+        } catch (ExecutionOutputIsNotFoundException e) {
+            log.error("Output of execution '{}' is not found", executionId);
+            throw new ExecutionOutputIsNotFoundRestException(e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.ail.optile.jobservice.rest;
+
+import com.ail.optile.jobservice.journal.JobChangeJournal;
+import com.ail.optile.jobservice.pdo.JobChange;
+import com.ail.optile.jobservice.rest.dto.JobChangesDto;
+import com.ail.optile.jobservice.rest.exception.IncorrectJobRequestRestException;
+import com.ail.optile.jobservice.rest.exception.JobChangesAreGoneRestException;
+import com.ail.optile.jobservice.rest.mapper.JobDtoMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/job-service")
+@Slf4j
+public class JobChangeRestController {
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final JobChangeJournal jobChangeJournal;
+    private final JobDtoMapper mapper;
+
+    @Autowired
+    public JobChangeRestController(JobChangeJournal jobChangeJournal, JobDtoMapper mapper) {
+        this.jobChangeJournal = jobChangeJournal;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Lists the changes after the {@code since} sequence number. The {@code next} number of the response should be
+     * passed as {@code since} to get the following changes. Responds with {@code 410 Gone} when the changes after
+     * {@code since} are purged or lost, the reader should start over from {@link #getHead()}.
+     */
+    @GetMapping("/changes")
+    public JobChangesDto getChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            log.error("Page size {} is out of range [1, {}]", limit, MAX_PAGE_SIZE);
+            throw new IncorrectJobRequestRestException(new IllegalArgumentException(
+                    "Page size should be in range [1, " + MAX_PAGE_SIZE + "]"));
+        }
+
+        // checked after the read, so changes purged while they're read aren't skipped
+        List<JobChange> changes = jobChangeJournal.getChanges(since, limit);
+        if (!jobChangeJournal.isContinuousSince(since)) {
+            log.warn("Job changes after {} are purged or lost", since);
+            throw new JobChangesAreGoneRestException(new IllegalStateException(
+                    "Job changes after " + since + " are purged or lost, reload the jobs"));
+        }
+
+        return JobChangesDto.builder()
+                .changes(changes.stream()
+                        .map(mapper::toJobChangeDto)
+                        .collect(Collectors.toList()))
+                .next(changes.isEmpty() ? since : changes.get(changes.size() - 1).getId())
+                .build();
+    }
+
+    /**
+     * Returns no changes, only the {@code next} sequence number to poll the changes from. A reader which starts from
+     * scratch should get it before it loads the jobs.
+     */
+    @GetMapping("/changes/head")
+    public JobChangesDto getHead() {
+        return JobChangesDto.builder()
+                .changes(Collections.emptyList())
+                .next(jobChangeJournal.getHead())
+                .build();
+    }
+}
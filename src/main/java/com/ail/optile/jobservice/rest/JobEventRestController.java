@@ -0,0 +1,92 @@
+package com.ail.optile.jobservice.rest;
+
+import com.ail.optile.jobservice.events.JobEvent;
+import com.ail.optile.jobservice.events.JobEventBroker;
+import com.ail.optile.jobservice.events.JobEventSink;
+import com.ail.optile.jobservice.rest.dto.JobEventDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/job-service")
+@Slf4j
+public class JobEventRestController {
+
+    private static final String OVERFLOW_EVENT = "OVERFLOW";
+
+    private final JobEventBroker jobEventBroker;
+    private final long emitterTimeoutMillis;
+
+    @Autowired
+    public JobEventRestController(
+            JobEventBroker jobEventBroker,
+            @Value("${job-service.events.emitter-timeout-ms:1800000}") long emitterTimeoutMillis) {
+        this.jobEventBroker = jobEventBroker;
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+    }
+
+    /**
+     * Streams server-sent events of the job state changes. Without {@code jobName} and {@code type} parameters
+     * all events of all jobs are sent.
+     */
+    @GetMapping("/job-events")
+    public SseEmitter subscribe(
+            @RequestParam(name = "jobName", required = false) Set<String> jobNames,
+            @RequestParam(name = "type", required = false) Set<JobEvent.Type> types) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        JobEventBroker.Subscription subscription = jobEventBroker.subscribe(
+                jobNames != null ? jobNames : Collections.emptySet(),
+                types != null ? types : Collections.emptySet(),
+                new SseJobEventSink(emitter));
+
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+
+    private static final class SseJobEventSink implements JobEventSink {
+
+        private final SseEmitter emitter;
+
+        private SseJobEventSink(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void send(JobEvent event) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(event.getId()))
+                    .name(event.getType().name())
+                    .data(JobEventDto.builder()
+                            .id(event.getId())
+                            .type(event.getType().name())
+                            .jobName(event.getJobName())
+                            .date(event.getDate())
+                            .build()));
+        }
+
+        @Override
+        public void overflow() throws IOException {
+            // the client should reload the state of the jobs and subscribe again
+            emitter.send(SseEmitter.event()
+                    .name(OVERFLOW_EVENT)
+                    .data("Events were dropped"));
+        }
+
+        @Override
+        public void close() {
+            emitter.complete();
+        }
+    }
+}
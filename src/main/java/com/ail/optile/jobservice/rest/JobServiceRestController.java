@@ -1,37 +1,61 @@
 package com.ail.optile.jobservice.rest;
 
+import com.ail.optile.jobservice.api.JobInfo;
 import com.ail.optile.jobservice.api.JobService;
 import com.ail.optile.jobservice.api.exception.*;
-import com.ail.optile.jobservice.domain.NativeJobRequest;
+import com.ail.optile.jobservice.domain.JobFilter;
+import com.ail.optile.jobservice.domain.JobPage;
+import com.ail.optile.jobservice.domain.JobVersion;
+import com.ail.optile.jobservice.rest.dto.BulkJobResultDto;
+import com.ail.optile.jobservice.rest.dto.DelayedExecutionDto;
+import com.ail.optile.jobservice.rest.dto.JobPageDto;
+import com.ail.optile.jobservice.rest.dto.JobStatisticsDto;
 import com.ail.optile.jobservice.rest.dto.NativeJobInfoDto;
 import com.ail.optile.jobservice.rest.dto.NativeJobRequestDto;
+import com.ail.optile.jobservice.rest.dto.TaskResultDto;
+import com.ail.optile.jobservice.rest.dto.TaskTicketDto;
 import com.ail.optile.jobservice.rest.exception.*;
+import com.ail.optile.jobservice.rest.mapper.JobDtoMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
-import org.dozer.Mapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/job-service")
 @Slf4j
 public class JobServiceRestController {
 
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_FLUSH_SIZE = 100;
+    private static final int MAX_BULK_SIZE = 10000;
+
     private final JobService jobService;
-    private final Mapper mapper;
+    private final JobDtoMapper mapper;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public JobServiceRestController(JobService jobService, Mapper mapper) {
+    public JobServiceRestController(JobService jobService, JobDtoMapper mapper, ObjectMapper objectMapper) {
         this.jobService = jobService;
         this.mapper = mapper;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/create")
     public void createJob(@RequestBody NativeJobRequestDto jobRequest) {
         try {
-            jobService.create(mapper.map(jobRequest, NativeJobRequest.class));
+            jobService.create(mapper.toJobRequest(jobRequest));
         } catch (IncorrectJobRequestException e) {
             log.error(e.getMessage(), e);
             throw new IncorrectJobRequestRestException(e);
@@ -60,10 +84,62 @@ public class JobServiceRestController {
         }
     }
 
+    @PostMapping("/execute-later/{jobName}")
+    public DelayedExecutionDto executeJobLater(@PathVariable String jobName, @RequestParam long delayMs) {
+        try {
+            return mapper.toDelayedExecutionDto(jobService.executeLater(jobName, delayMs));
+        } catch (JobIsNotFoundException e) {
+            log.error(e.getMessage(), e);
+            throw new JobIsNotFoundRestException(e);
+        } catch (IncorrectJobRequestException e) {
+            log.error(e.getMessage(), e);
+            throw new IncorrectJobRequestRestException(e);
+        } catch (UnexpectedException e) {
+            log.error(e.getMessage(), e);
+            throw new UnexpectedRestException(e);
+        }
+    }
+
+    @PostMapping("/cancel/{executionId}")
+    public void cancelDelayedExecution(@PathVariable long executionId) {
+        try {
+            jobService.cancelDelayedExecution(executionId);
+        } catch (DelayedExecutionIsNotFoundException e) {
+            log.error(e.getMessage(), e);
+            throw new DelayedExecutionIsNotFoundRestException(e);
+        }
+    }
+
+    @PostMapping("/submit")
+    public TaskTicketDto submitTask(@RequestBody NativeJobRequestDto taskRequest) {
+        try {
+            return new TaskTicketDto(jobService.submit(mapper.toJobRequest(taskRequest)));
+        } catch (IncorrectJobRequestException e) {
+            log.error(e.getMessage(), e);
+            throw new IncorrectJobRequestRestException(e);
+        } catch (TaskQueueIsFullException e) {
+            log.error(e.getMessage(), e);
+            throw new TaskQueueIsFullRestException(e);
+        }
+    }
+
+    @GetMapping("/task-result/{ticketId}")
+    public TaskResultDto getTaskResult(@PathVariable long ticketId) {
+        try {
+            return mapper.toTaskResultDto(jobService.getTaskResult(ticketId));
+        } catch (TaskResultIsNotFoundException e) {
+            log.error(e.getMessage(), e);
+            throw new TaskResultIsNotFoundRestException(e);
+        } catch (UnexpectedException e) {
+            log.error(e.getMessage(), e);
+            throw new UnexpectedRestException(e);
+        }
+    }
+
     @PostMapping("/update")
     public void updateJob(@RequestBody NativeJobRequestDto updateJobRequest) {
         try {
-            jobService.update(mapper.map(updateJobRequest, NativeJobRequest.class));
+            jobService.update(mapper.toJobRequest(updateJobRequest));
         } catch (JobIsNotFoundException e) {
             log.error(e.getMessage(), e);
             throw new JobIsNotFoundRestException(e);
@@ -95,10 +171,84 @@ public class JobServiceRestController {
         }
     }
 
+    @PostMapping("/bulk/create")
+    public List<BulkJobResultDto> createJobs(@RequestBody List<NativeJobRequestDto> jobRequests) {
+        checkBulkSize(jobRequests.size());
+        try {
+            return mapper.toBulkJobResultDtos(jobService.createAll(mapper.toJobRequests(jobRequests)));
+        } catch (UnexpectedException e) {
+            log.error(e.getMessage(), e);
+            throw new UnexpectedRestException(e);
+        }
+    }
+
+    @PostMapping("/bulk/update")
+    public List<BulkJobResultDto> updateJobs(@RequestBody List<NativeJobRequestDto> jobRequests) {
+        checkBulkSize(jobRequests.size());
+        try {
+            return mapper.toBulkJobResultDtos(jobService.updateAll(mapper.toJobRequests(jobRequests)));
+        } catch (UnexpectedException e) {
+            log.error(e.getMessage(), e);
+            throw new UnexpectedRestException(e);
+        }
+    }
+
+    @PostMapping("/bulk/delete")
+    public List<BulkJobResultDto> deleteJobs(@RequestBody List<String> jobNames) {
+        checkBulkSize(jobNames.size());
+        try {
+            return mapper.toBulkJobResultDtos(jobService.deleteAll(jobNames));
+        } catch (UnexpectedException e) {
+            log.error(e.getMessage(), e);
+            throw new UnexpectedRestException(e);
+        }
+    }
+
+    @PostMapping("/bulk/execute")
+    public List<BulkJobResultDto> executeJobs(@RequestBody List<String> jobNames) {
+        checkBulkSize(jobNames.size());
+        try {
+            return mapper.toBulkJobResultDtos(jobService.executeAll(jobNames));
+        } catch (UnexpectedException e) {
+            log.error(e.getMessage(), e);
+            throw new UnexpectedRestException(e);
+        }
+    }
+
+    /**
+     * Answers {@code If-None-Match} and {@code If-Modified-Since} requests with 304 without loading the job when
+     * its version is known.
+     */
     @GetMapping("/job-info/{jobName}")
-    public NativeJobInfoDto getJob(@PathVariable String jobName) {
+    public NativeJobInfoDto getJob(@PathVariable String jobName, WebRequest request) {
         try {
-            return mapper.map(jobService.getJobInfo(jobName), NativeJobInfoDto.class);
+            JobVersion version = jobService.getJobVersion(jobName);
+            if (version != null && checkNotModified(request, version)) {
+                return null;
+            }
+
+            JobInfo jobInfo = jobService.getJobInfo(jobName);
+            if (version == null) {
+                // the version is known once the job is loaded
+                version = jobService.getJobVersion(jobName);
+                if (version != null && checkNotModified(request, version)) {
+                    return null;
+                }
+            }
+            return mapper.toJobInfoDto(jobInfo);
+        } catch (JobIsNotFoundException e) {
+            log.error(e.getMessage(), e);
+            throw new JobIsNotFoundRestException(e);
+        } catch (UnexpectedException e) {
+            log.error(e.getMessage(), e);
+            throw new UnexpectedRestException(e);
+        }
+    }
+
+    @GetMapping("/job-statistics/{jobName}")
+    public JobStatisticsDto getJobStatistics(@PathVariable String jobName) {
+        try {
+            return mapper.toJobStatisticsDto(jobService.getJobStatistics(jobName));
         } catch (JobIsNotFoundException e) {
             log.error(e.getMessage(), e);
             throw new JobIsNotFoundRestException(e);
@@ -109,14 +259,109 @@ public class JobServiceRestController {
     }
 
     @GetMapping("/jobs")
-    public List<NativeJobInfoDto> getAllJobs() {
+    public List<NativeJobInfoDto> getAllJobs(WebRequest request) {
         try {
+            if (checkNotModified(request, jobService.getJobsVersion())) {
+                return null;
+            }
+
             return jobService.getAllJobs().stream()
-                    .map(job -> mapper.map(job, NativeJobInfoDto.class))
+                    .map(mapper::toJobInfoDto)
                     .collect(Collectors.toList());
         } catch (UnexpectedException e) {
             log.error(e.getMessage(), e);
             throw new UnexpectedRestException(e);
         }
     }
+
+    /**
+     * Lists a page of jobs ordered by name. The {@code next} name of the response should be passed as {@code after}
+     * to get the next page.
+     */
+    @GetMapping("/jobs/page")
+    public JobPageDto getJobPage(
+            @RequestParam(required = false) JobInfo.State state,
+            @RequestParam(required = false) Integer priority,
+            @RequestParam(required = false) String namePrefix,
+            @RequestParam(required = false) String cron,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            WebRequest request) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            log.error("Page size {} is out of range [1, {}]", limit, MAX_PAGE_SIZE);
+            throw new IncorrectJobRequestRestException(new IllegalArgumentException(
+                    "Page size should be in range [1, " + MAX_PAGE_SIZE + "]"));
+        }
+
+        try {
+            if (checkNotModified(request, jobService.getJobsVersion())) {
+                return null;
+            }
+
+            JobPage page = jobService.getJobs(buildFilter(state, priority, namePrefix, cron), after, limit);
+            return JobPageDto.builder()
+                    .jobs(page.getJobs().stream()
+                            .map(mapper::toJobInfoDto)
+                            .collect(Collectors.toList()))
+                    .next(page.getNext())
+                    .build();
+        } catch (UnexpectedException e) {
+            log.error(e.getMessage(), e);
+            throw new UnexpectedRestException(e);
+        }
+    }
+
+    /**
+     * Streams jobs ordered by name as newline delimited JSON, every job is written as soon as it's loaded.
+     */
+    @GetMapping(value = "/jobs/stream", produces = NDJSON_CONTENT_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamJobs(
+            @RequestParam(required = false) JobInfo.State state,
+            @RequestParam(required = false) Integer priority,
+            @RequestParam(required = false) String namePrefix,
+            @RequestParam(required = false) String cron) {
+        JobFilter filter = buildFilter(state, priority, namePrefix, cron);
+
+        StreamingResponseBody body = out -> {
+            try (Stream<JobInfo> jobs = jobService.streamJobs(filter)) {
+                Iterator<JobInfo> iterator = jobs.iterator();
+                int written = 0;
+                while (iterator.hasNext()) {
+                    out.write(objectMapper.writeValueAsBytes(mapper.toJobInfoDto(iterator.next())));
+                    out.write('\n');
+                    if (++written % STREAM_FLUSH_SIZE == 0) {
+                        out.flush();
+                    }
+                }
+                out.flush();
+            } catch (UnexpectedException e) {
+                log.error(e.getMessage(), e);
+                throw new UnexpectedRestException(e);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_CONTENT_TYPE))
+                .body(body);
+    }
+
+    private static void checkBulkSize(int size) {
+        if (size > MAX_BULK_SIZE) {
+            log.error("Bulk size {} exceeds {}", size, MAX_BULK_SIZE);
+            throw new IncorrectJobRequestRestException(new IllegalArgumentException(
+                    "Bulk size shouldn't exceed " + MAX_BULK_SIZE));
+        }
+    }
+
+    private static boolean checkNotModified(WebRequest request, JobVersion version) {
+        return request.checkNotModified(version.getTag(), version.getLastModified());
+    }
+
+    private JobFilter buildFilter(JobInfo.State state, Integer priority, String namePrefix, String cron) {
+        return JobFilter.builder()
+                .state(state)
+                .priority(priority)
+                .namePrefix(namePrefix)
+                .cron(cron)
+                .build();
+    }
 }
@@ -0,0 +1,15 @@
+package com.ail.optile.jobservice.rest.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkJobResultDto {
+
+    private String name;
+    private String status;
+    private String message;
+}
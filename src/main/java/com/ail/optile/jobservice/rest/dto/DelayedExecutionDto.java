@@ -0,0 +1,17 @@
+package com.ail.optile.jobservice.rest.dto;
+
+import lombok.*;
+
+import java.util.Date;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DelayedExecutionDto {
+
+    private long id;
+    private String jobName;
+    private Date fireDate;
+}
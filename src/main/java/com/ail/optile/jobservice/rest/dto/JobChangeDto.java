@@ -0,0 +1,24 @@
+package com.ail.optile.jobservice.rest.dto;
+
+import lombok.*;
+
+import java.util.Date;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JobChangeDto {
+
+    private long id;
+    private String type;
+    private String jobName;
+    private Date date;
+    private String cron;
+    private Integer priority;
+    private String command;
+    private List<String> argv;
+    private String result;
+}
@@ -0,0 +1,18 @@
+package com.ail.optile.jobservice.rest.dto;
+
+import lombok.*;
+
+import java.util.Date;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JobEventDto {
+
+    private long id;
+    private String type;
+    private String jobName;
+    private Date date;
+}
@@ -0,0 +1,16 @@
+package com.ail.optile.jobservice.rest.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JobStatisticsDto {
+
+    private String name;
+    private List<WindowStatisticsDto> windows;
+}
@@ -2,6 +2,8 @@ package com.ail.optile.jobservice.rest.dto;
 
 import lombok.*;
 
+import java.util.List;
+
 @Getter
 @Setter
 @NoArgsConstructor
@@ -11,6 +13,7 @@ public class NativeJobInfoDto {
 
     private String name;
     private String command;
+    private List<String> argv;
     private String cron;
     private Integer priority;
     private String state;
@@ -0,0 +1,22 @@
+package com.ail.optile.jobservice.rest.dto;
+
+import lombok.*;
+
+import java.util.Date;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaskResultDto {
+
+    private long ticketId;
+    private String status;
+    private String name;
+    private Date submitDate;
+    private Date startDate;
+    private Date completionDate;
+    private String result;
+    private Integer exitCode;
+}
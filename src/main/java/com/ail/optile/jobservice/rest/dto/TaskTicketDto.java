@@ -0,0 +1,13 @@
+package com.ail.optile.jobservice.rest.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaskTicketDto {
+
+    private long ticketId;
+}
@@ -0,0 +1,21 @@
+package com.ail.optile.jobservice.rest.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WindowStatisticsDto {
+
+    private String window;
+    private long executions;
+    private long successes;
+    private long failures;
+    private long timeouts;
+    private Double successRate;
+    private Long p50;
+    private Long p95;
+    private Long p99;
+}
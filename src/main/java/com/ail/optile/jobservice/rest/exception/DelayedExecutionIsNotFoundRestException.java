@@ -0,0 +1,12 @@
+package com.ail.optile.jobservice.rest.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class DelayedExecutionIsNotFoundRestException extends JobServiceRestException {
+
+    public DelayedExecutionIsNotFoundRestException(Throwable cause) {
+        super(cause);
+    }
+}
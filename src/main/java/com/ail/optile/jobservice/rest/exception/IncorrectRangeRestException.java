@@ -0,0 +1,12 @@
+package com.ail.optile.jobservice.rest.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+public class IncorrectRangeRestException extends JobServiceRestException {
+
+    public IncorrectRangeRestException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,12 @@
+package com.ail.optile.jobservice.rest.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class IncorrectTailRestException extends JobServiceRestException {
+
+    public IncorrectTailRestException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,12 @@
+package com.ail.optile.jobservice.rest.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.GONE)
+public class JobChangesAreGoneRestException extends JobServiceRestException {
+
+    public JobChangesAreGoneRestException(Throwable cause) {
+        super(cause);
+    }
+}
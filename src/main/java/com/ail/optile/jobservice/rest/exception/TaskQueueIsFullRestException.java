@@ -0,0 +1,12 @@
+package com.ail.optile.jobservice.rest.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class TaskQueueIsFullRestException extends JobServiceRestException {
+
+    public TaskQueueIsFullRestException(Throwable cause) {
+        super(cause);
+    }
+}
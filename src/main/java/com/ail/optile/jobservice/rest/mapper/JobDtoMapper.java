@@ -0,0 +1,58 @@
+package com.ail.optile.jobservice.rest.mapper;
+
+import com.ail.optile.jobservice.api.JobInfo;
+import com.ail.optile.jobservice.domain.BulkJobResult;
+import com.ail.optile.jobservice.domain.DelayedExecution;
+import com.ail.optile.jobservice.domain.JobStatistics;
+import com.ail.optile.jobservice.domain.NativeJobInfo;
+import com.ail.optile.jobservice.domain.NativeJobRequest;
+import com.ail.optile.jobservice.domain.TaskResult;
+import com.ail.optile.jobservice.pdo.JobChange;
+import com.ail.optile.jobservice.rest.dto.BulkJobResultDto;
+import com.ail.optile.jobservice.rest.dto.DelayedExecutionDto;
+import com.ail.optile.jobservice.rest.dto.JobChangeDto;
+import com.ail.optile.jobservice.rest.dto.JobStatisticsDto;
+import com.ail.optile.jobservice.rest.dto.NativeJobInfoDto;
+import com.ail.optile.jobservice.rest.dto.NativeJobRequestDto;
+import com.ail.optile.jobservice.rest.dto.TaskResultDto;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.util.List;
+
+/**
+ * Mapping between the REST DTOs and the domain objects. The implementation is generated at compile time, so mapping
+ * is plain getter and builder calls without reflection.
+ */
+@Mapper(componentModel = "spring")
+public interface JobDtoMapper {
+
+    NativeJobRequest toJobRequest(NativeJobRequestDto jobRequestDto);
+
+    List<NativeJobRequest> toJobRequests(List<NativeJobRequestDto> jobRequestDtos);
+
+    default NativeJobInfoDto toJobInfoDto(JobInfo jobInfo) {
+        if (jobInfo instanceof NativeJobInfo) {
+            return toNativeJobInfoDto((NativeJobInfo) jobInfo);
+        }
+        return toJavaJobInfoDto(jobInfo);
+    }
+
+    NativeJobInfoDto toNativeJobInfoDto(NativeJobInfo jobInfo);
+
+    @Mapping(target = "command", ignore = true)
+    @Mapping(target = "argv", ignore = true)
+    NativeJobInfoDto toJavaJobInfoDto(JobInfo jobInfo);
+
+    JobStatisticsDto toJobStatisticsDto(JobStatistics jobStatistics);
+
+    JobChangeDto toJobChangeDto(JobChange jobChange);
+
+    BulkJobResultDto toBulkJobResultDto(BulkJobResult bulkJobResult);
+
+    List<BulkJobResultDto> toBulkJobResultDtos(List<BulkJobResult> bulkJobResults);
+
+    DelayedExecutionDto toDelayedExecutionDto(DelayedExecution delayedExecution);
+
+    TaskResultDto toTaskResultDto(TaskResult taskResult);
+}
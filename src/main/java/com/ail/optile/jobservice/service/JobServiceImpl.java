@@ -4,36 +4,96 @@ import com.ail.optile.jobservice.api.JobInfo;
 import com.ail.optile.jobservice.api.JobRequest;
 import com.ail.optile.jobservice.api.JobService;
 import com.ail.optile.jobservice.api.exception.*;
+import com.ail.optile.jobservice.adhoc.AdHocTaskExecutor;
+import com.ail.optile.jobservice.delay.DelayedExecutionEngine;
+import com.ail.optile.jobservice.domain.BulkJobResult;
+import com.ail.optile.jobservice.domain.DelayedExecution;
 import com.ail.optile.jobservice.domain.JavaJobInfo;
+import com.ail.optile.jobservice.domain.JobFilter;
+import com.ail.optile.jobservice.domain.JobPage;
+import com.ail.optile.jobservice.domain.JobStatistics;
+import com.ail.optile.jobservice.domain.JobVersion;
 import com.ail.optile.jobservice.domain.NativeJobInfo;
 import com.ail.optile.jobservice.domain.NativeJobRequest;
-import com.ail.optile.jobservice.pdo.JobExecutionHistory;
+import com.ail.optile.jobservice.domain.TaskResult;
+import com.ail.optile.jobservice.history.JobHistoryPurger;
+import com.ail.optile.jobservice.journal.JobChangeJournal;
+import com.ail.optile.jobservice.listener.JobTriggerListener;
+import com.ail.optile.jobservice.metrics.JobMetrics;
+import com.ail.optile.jobservice.pdo.JobChange;
+import com.ail.optile.jobservice.pdo.JobTombstone;
 import com.ail.optile.jobservice.quartz.NativeJob;
-import com.ail.optile.jobservice.repository.JobExecutionHistoryRepository;
-import com.ail.optile.jobservice.rest.exception.UnexpectedRestException;
+import com.ail.optile.jobservice.registry.JobDefinition;
+import com.ail.optile.jobservice.registry.JobDefinitionRegistry;
+import com.ail.optile.jobservice.repository.JobTombstoneRepository;
+import com.ail.optile.jobservice.state.JobStateIndex;
+import com.ail.optile.jobservice.statistics.JobStatisticsIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.quartz.*;
-import org.quartz.impl.matchers.GroupMatcher;
 import org.quartz.utils.Key;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 public class JobServiceImpl implements JobService {
 
     private final Scheduler scheduler;
-    private final JobExecutionHistoryRepository historyRepository;
+    private final JobTombstoneRepository tombstoneRepository;
+    private final JobStateIndex jobStateIndex;
+    private final JobStatisticsIndex jobStatisticsIndex;
+    private final JobChangeJournal jobChangeJournal;
+    private final JobDefinitionRegistry jobDefinitionRegistry;
+    private final DelayedExecutionEngine delayedExecutionEngine;
+    private final AdHocTaskExecutor adHocTaskExecutor;
+    private final JobMetrics jobMetrics;
+    private final DataSource dataSource;
 
     @Autowired
-    public JobServiceImpl(Scheduler scheduler, JobExecutionHistoryRepository historyRepository) {
+    public JobServiceImpl(
+            Scheduler scheduler,
+            JobTombstoneRepository tombstoneRepository,
+            JobStateIndex jobStateIndex,
+            JobStatisticsIndex jobStatisticsIndex,
+            JobChangeJournal jobChangeJournal,
+            JobDefinitionRegistry jobDefinitionRegistry,
+            DelayedExecutionEngine delayedExecutionEngine,
+            AdHocTaskExecutor adHocTaskExecutor,
+            JobMetrics jobMetrics,
+            DataSource dataSource) {
         this.scheduler = scheduler;
-        this.historyRepository = historyRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.jobStateIndex = jobStateIndex;
+        this.jobStatisticsIndex = jobStatisticsIndex;
+        this.jobChangeJournal = jobChangeJournal;
+        this.jobDefinitionRegistry = jobDefinitionRegistry;
+        this.delayedExecutionEngine = delayedExecutionEngine;
+        this.adHocTaskExecutor = adHocTaskExecutor;
+        this.jobMetrics = jobMetrics;
+        this.dataSource = dataSource;
     }
 
     @Override
@@ -49,7 +109,12 @@ public class JobServiceImpl implements JobService {
 
         try {
             scheduler.scheduleJob(jobDetail, trigger);
+            jobChangeJournal.record(buildJobChange(JobChange.Type.CREATED, jobRequest));
             log.info("Job '{}' created", jobRequest.getName());
+        } catch (ObjectAlreadyExistsException e) {
+            // created concurrently
+            log.error(e.getMessage());
+            throw new JobAlreadyExistsException();
         } catch (SchedulerException e) {
             log.error(e.getMessage(), e);
             throw new UnexpectedException(e);
@@ -60,31 +125,83 @@ public class JobServiceImpl implements JobService {
     public void execute(String jobName) throws JobIsNotFoundException, JobIsCurrentlyRunningException {
         throwJobIsNotFoundExceptionIfJobNotExists(jobName);
 
-        try {
-            throwExceptionIfRunning(jobName);
+        if (!jobStateIndex.tryFire(jobName)) {
+            log.error("Job '{}' is currently running", jobName);
+            throw new JobIsCurrentlyRunningException();
+        }
 
-            scheduler.triggerJob(JobKey.jobKey(jobName, Key.DEFAULT_GROUP));
+        try {
+            JobDataMap triggerDataMap = new JobDataMap();
+            triggerDataMap.put(JobTriggerListener.PROP_MANUAL_TRIGGER, true);
+            scheduler.triggerJob(JobKey.jobKey(jobName, Key.DEFAULT_GROUP), triggerDataMap);
             log.info("Job '{}' executed", jobName);
         } catch (SchedulerException e) {
+            jobStateIndex.fireFailed(jobName);
             log.error(e.getMessage(), e);
             throw new UnexpectedException(e);
         }
     }
 
-    private void throwExceptionIfRunning(String jobName) throws SchedulerException, JobIsCurrentlyRunningException {
-        if (checkJobIsCurrentlyRunning(jobName)) {
-            log.error("Job '{}' is currently running", jobName);
-            throw new JobIsCurrentlyRunningException();
+    @Override
+    public DelayedExecution executeLater(String jobName, long delayMillis) throws JobIsNotFoundException, IncorrectJobRequestException {
+        throwJobIsNotFoundExceptionIfJobNotExists(jobName);
+
+        if (delayMillis < 0) {
+            log.error("Delay {} of job '{}' is negative", delayMillis, jobName);
+            throw new IncorrectJobRequestException(new IllegalArgumentException("Delay should not be negative"));
         }
+
+        long fireTime;
+        try {
+            fireTime = Math.addExact(System.currentTimeMillis(), delayMillis);
+        } catch (ArithmeticException e) {
+            log.error("Delay {} of job '{}' is too long", delayMillis, jobName);
+            throw new IncorrectJobRequestException(new IllegalArgumentException("Delay is too long"));
+        }
+
+        DelayedExecution execution = delayedExecutionEngine.schedule(jobName, fireTime);
+        log.debug("Job '{}' is scheduled for delayed execution {}", jobName, execution.getId());
+        return execution;
     }
 
-    private boolean checkJobIsCurrentlyRunning(String jobName) throws SchedulerException {
-        for (JobExecutionContext jobExecutionContext : scheduler.getCurrentlyExecutingJobs()) {
-            if (Objects.equals(jobName, jobExecutionContext.getJobDetail().getKey().getName())) {
-                return true;
-            }
+    @Override
+    public void cancelDelayedExecution(long executionId) throws DelayedExecutionIsNotFoundException {
+        if (!delayedExecutionEngine.cancel(executionId)) {
+            log.error("Delayed execution {} is not found", executionId);
+            throw new DelayedExecutionIsNotFoundException();
+        }
+        log.debug("Delayed execution {} is cancelled", executionId);
+    }
+
+    @Override
+    public long submit(JobRequest taskRequest) throws IncorrectJobRequestException, TaskQueueIsFullException {
+        JobDetail jobDetail = buildJobDetail(taskRequest);
+        // the worker thread of the task pool is waiting for the process, it's not released to the Quartz pool
+        jobDetail.getJobDataMap().remove(NativeJob.PROP_RELEASE_WORKER);
+
+        try {
+            long ticketId = adHocTaskExecutor.submit(jobDetail);
+            log.debug("Task '{}' is submitted with ticket {}", taskRequest.getName(), ticketId);
+            return ticketId;
+        } catch (TaskQueueIsFullException e) {
+            log.error("Task '{}' is rejected, the task queue is full", taskRequest.getName());
+            throw e;
+        }
+    }
+
+    @Override
+    public TaskResult getTaskResult(long ticketId) throws TaskResultIsNotFoundException {
+        return adHocTaskExecutor.findResult(ticketId).orElseThrow(() -> {
+            log.error("Result of task {} is not found", ticketId);
+            return new TaskResultIsNotFoundException();
+        });
+    }
+
+    private void lockJobOrThrowIfRunning(String jobName) throws JobIsCurrentlyRunningException {
+        if (!jobStateIndex.tryLock(jobName)) {
+            log.error("Job '{}' is currently running", jobName);
+            throw new JobIsCurrentlyRunningException();
         }
-        return false;
     }
 
     private void throwJobIsNotFoundExceptionIfJobNotExists(String jobName) throws JobIsNotFoundException {
@@ -99,23 +216,22 @@ public class JobServiceImpl implements JobService {
     public void update(JobRequest jobRequest) throws JobIsNotFoundException, IncorrectJobRequestException, JobIsCurrentlyRunningException {
         throwJobIsNotFoundExceptionIfJobNotExists(jobRequest.getName());
 
-        try {
-            throwExceptionIfRunning(jobRequest.getName());
-            scheduler.deleteJob(JobKey.jobKey(jobRequest.getName(), Key.DEFAULT_GROUP));
-        } catch (SchedulerException e) {
-            log.error(e.getMessage(), e);
-            throw new UnexpectedException(e);
-        }
-
         JobDetail jobDetail = buildJobDetail(jobRequest);
-        Trigger trigger = buildCronTrigger(jobRequest);
+        CronTrigger trigger = buildCronTrigger(jobRequest);
 
+        lockJobOrThrowIfRunning(jobRequest.getName());
         try {
-            scheduler.scheduleJob(jobDetail, trigger);
-            log.info("Job '{}' updated", jobRequest.getName());
+            if (replaceJob(jobDetail, trigger)) {
+                jobChangeJournal.record(buildJobChange(JobChange.Type.UPDATED, jobRequest));
+                log.info("Job '{}' updated", jobRequest.getName());
+            } else {
+                log.info("Job '{}' is up to date", jobRequest.getName());
+            }
         } catch (SchedulerException e) {
             log.error(e.getMessage(), e);
             throw new UnexpectedException(e);
+        } finally {
+            jobStateIndex.unlock(jobRequest.getName());
         }
     }
 
@@ -124,140 +240,513 @@ public class JobServiceImpl implements JobService {
     public void delete(String jobName) throws JobIsNotFoundException, JobIsCurrentlyRunningException {
         throwJobIsNotFoundExceptionIfJobNotExists(jobName);
 
+        lockJobOrThrowIfRunning(jobName);
         try {
-            throwExceptionIfRunning(jobName);
-
             scheduler.deleteJob(JobKey.jobKey(jobName, Key.DEFAULT_GROUP));
-            historyRepository.deleteAllByJobName(jobName);
+            removeJobData(jobName);
+            cancelDelayedExecutions(Collections.singletonList(jobName));
             log.info("Job '{}' deleted", jobName);
         } catch (SchedulerException e) {
             log.error(e.getMessage(), e);
             throw new UnexpectedException(e);
+        } finally {
+            // the state of the deleted job is removed once the deletion is committed
+            jobStateIndex.unlock(jobName);
         }
     }
 
+    /**
+     * Builds all jobs before any of them is stored, then the valid ones are stored with a single
+     * {@link Scheduler#scheduleJobs} call. The jobs created concurrently since they were checked are reported as
+     * already existing.
+     */
     @Override
-    public JobInfo getJobInfo(String jobName) throws JobIsNotFoundException {
-        throwJobIsNotFoundExceptionIfJobNotExists(jobName);
+    @Transactional
+    public List<BulkJobResult> createAll(List<? extends JobRequest> jobRequests) {
+        Set<String> requestedJobNames = new HashSet<>();
+        BulkJobResult[] results = new BulkJobResult[jobRequests.size()];
+        Map<JobDetail, Set<? extends Trigger>> jobs = new LinkedHashMap<>();
+        Map<String, Integer> jobIndexes = new LinkedHashMap<>();
+
+        for (int i = 0; i < results.length; i++) {
+            JobRequest jobRequest = jobRequests.get(i);
+            String jobName = jobRequest.getName();
+            try {
+                JobDetail jobDetail = buildJobDetail(jobRequest);
+                Trigger trigger = buildCronTrigger(jobRequest);
+                if (!requestedJobNames.add(jobName)) {
+                    results[i] = repeatedJob(jobName);
+                } else if (checkJobExists(jobName)) {
+                    results[i] = jobAlreadyExists(jobName);
+                } else {
+                    jobs.put(jobDetail, Collections.singleton(trigger));
+                    jobIndexes.put(jobName, i);
+                    results[i] = BulkJobResult.done(jobName);
+                }
+            } catch (IncorrectJobRequestException e) {
+                results[i] = incorrectJobRequest(jobName, e);
+            }
+        }
 
+        if (!jobs.isEmpty()) {
+            for (String jobName : scheduleNewJobs(jobs)) {
+                results[jobIndexes.remove(jobName)] = jobAlreadyExists(jobName);
+            }
+            for (int i : jobIndexes.values()) {
+                jobChangeJournal.record(buildJobChange(JobChange.Type.CREATED, jobRequests.get(i)));
+            }
+        }
+        log.info("{} of {} jobs created", jobs.size(), results.length);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Stores the jobs with a single call. A job created concurrently fails the call after the jobs before it are
+     * stored, so they're rolled back to a savepoint and the call is repeated without the jobs which exist by now.
+     *
+     * @return names of the jobs which already exist, they're removed from the jobs
+     */
+    private Set<String> scheduleNewJobs(Map<JobDetail, Set<? extends Trigger>> jobs) {
+        Set<String> existingJobNames = new HashSet<>();
+        // the connection of the transaction, the JDBC job store works with it too
+        Connection connection = DataSourceUtils.getConnection(dataSource);
         try {
-            return getJobInfo(JobKey.jobKey(jobName, Key.DEFAULT_GROUP));
-        } catch (SchedulerException e) {
+            while (!jobs.isEmpty()) {
+                Savepoint savepoint = connection.setSavepoint();
+                try {
+                    scheduler.scheduleJobs(jobs, false);
+                    connection.releaseSavepoint(savepoint);
+                    break;
+                } catch (ObjectAlreadyExistsException e) {
+                    // created concurrently
+                    log.warn(e.getMessage());
+                    connection.rollback(savepoint);
+                    int existing = existingJobNames.size();
+                    for (Iterator<JobDetail> iterator = jobs.keySet().iterator(); iterator.hasNext(); ) {
+                        JobKey jobKey = iterator.next().getKey();
+                        if (scheduler.checkExists(jobKey)) {
+                            existingJobNames.add(jobKey.getName());
+                            iterator.remove();
+                        }
+                    }
+                    if (existingJobNames.size() == existing) {
+                        // a trigger which exists without its job, nothing to skip
+                        throw e;
+                    }
+                }
+            }
+        } catch (SchedulerException | SQLException e) {
             log.error(e.getMessage(), e);
-            throw new UnexpectedRestException(e);
+            throw new UnexpectedException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
         }
+        return existingJobNames;
     }
 
+    /**
+     * Builds all jobs before any of them is locked, then the locked ones are replaced in place one by one, so
+     * re-sending unchanged jobs doesn't write to the job store.
+     */
     @Override
-    public List<JobInfo> getAllJobs() {
-        try {
-            List<JobInfo> jobs = new ArrayList<>();
+    @Transactional
+    public List<BulkJobResult> updateAll(List<? extends JobRequest> jobRequests) {
+        Set<String> requestedJobNames = new HashSet<>();
+        BulkJobResult[] results = new BulkJobResult[jobRequests.size()];
+        JobDetail[] jobDetails = new JobDetail[results.length];
+        CronTrigger[] triggers = new CronTrigger[results.length];
+
+        for (int i = 0; i < results.length; i++) {
+            JobRequest jobRequest = jobRequests.get(i);
+            String jobName = jobRequest.getName();
+            try {
+                jobDetails[i] = buildJobDetail(jobRequest);
+                triggers[i] = buildCronTrigger(jobRequest);
+                if (!requestedJobNames.add(jobName)) {
+                    results[i] = repeatedJob(jobName);
+                } else if (!checkJobExists(jobName)) {
+                    results[i] = jobIsNotFound(jobName);
+                }
+            } catch (IncorrectJobRequestException e) {
+                results[i] = incorrectJobRequest(jobName, e);
+            }
+        }
 
-            for (JobKey jobKey : scheduler.getJobKeys(GroupMatcher.groupEquals(Key.DEFAULT_GROUP))) {
-                jobs.add(getJobInfo(jobKey));
+        List<JobRequest> updatedJobRequests = new ArrayList<>();
+        List<String> lockedJobNames = new ArrayList<>();
+        try {
+            for (int i = 0; i < results.length; i++) {
+                String jobName = jobRequests.get(i).getName();
+                if (results[i] != null) {
+                    continue;
+                }
+                if (!jobStateIndex.tryLock(jobName)) {
+                    results[i] = jobIsCurrentlyRunning(jobName);
+                    continue;
+                }
+                lockedJobNames.add(jobName);
+                if (replaceJob(jobDetails[i], triggers[i])) {
+                    updatedJobRequests.add(jobRequests.get(i));
+                    results[i] = BulkJobResult.done(jobName);
+                } else {
+                    results[i] = BulkJobResult.unchanged(jobName);
+                }
             }
 
-            return jobs;
+            for (JobRequest jobRequest : updatedJobRequests) {
+                jobChangeJournal.record(buildJobChange(JobChange.Type.UPDATED, jobRequest));
+            }
         } catch (SchedulerException e) {
             log.error(e.getMessage(), e);
             throw new UnexpectedException(e);
+        } finally {
+            lockedJobNames.forEach(jobStateIndex::unlock);
         }
+        log.info("{} of {} jobs updated", updatedJobRequests.size(), results.length);
+        return Arrays.asList(results);
     }
 
-    private JobInfo getJobInfo(JobKey jobKey) throws SchedulerException {
-        String jobName = jobKey.getName();
-        Class jobClass = getJobClass(jobKey);
-        String jobCron = getJobCron(jobKey);
-        Integer jobPriority = getJobPriority(jobKey);
-        JobInfo.State jobState = getJobState(jobKey);
+    /**
+     * The locked jobs are deleted with a single {@link Scheduler#deleteJobs} call.
+     */
+    @Override
+    @Transactional
+    public List<BulkJobResult> deleteAll(List<String> jobNames) {
+        Set<String> requestedJobNames = new HashSet<>();
+        BulkJobResult[] results = new BulkJobResult[jobNames.size()];
+        List<String> lockedJobNames = new ArrayList<>();
+
+        for (int i = 0; i < results.length; i++) {
+            String jobName = jobNames.get(i);
+            if (!requestedJobNames.add(jobName)) {
+                results[i] = repeatedJob(jobName);
+            } else if (!checkJobExists(jobName)) {
+                results[i] = jobIsNotFound(jobName);
+            } else if (!jobStateIndex.tryLock(jobName)) {
+                results[i] = jobIsCurrentlyRunning(jobName);
+            } else {
+                lockedJobNames.add(jobName);
+                results[i] = BulkJobResult.done(jobName);
+            }
+        }
 
-        if (NativeJob.class.equals(jobClass)) {
-            String jobCommand = getJobCommand(jobKey);
-            return NativeJobInfo.builder()
-                    .name(jobName)
-                    .command(jobCommand)
-                    .cron(jobCron)
-                    .state(jobState)
-                    .priority(jobPriority)
-                    .build();
-        } else {
-            return JavaJobInfo.builder()
-                    .name(jobName)
-                    .cron(jobCron)
-                    .state(jobState)
-                    .priority(jobPriority)
-                    .build();
+        if (!lockedJobNames.isEmpty()) {
+            try {
+                scheduler.deleteJobs(toJobKeys(lockedJobNames));
+                lockedJobNames.forEach(this::removeJobData);
+                cancelDelayedExecutions(lockedJobNames);
+            } catch (SchedulerException e) {
+                log.error(e.getMessage(), e);
+                throw new UnexpectedException(e);
+            } finally {
+                lockedJobNames.forEach(jobStateIndex::unlock);
+            }
         }
+        log.info("{} of {} jobs deleted", lockedJobNames.size(), results.length);
+        return Arrays.asList(results);
     }
 
-    private Class getJobClass(JobKey jobKey) throws SchedulerException {
-        JobDetail jobDetail = scheduler.getJobDetail(jobKey);
-        return jobDetail.getJobClass();
+    /**
+     * Quartz can't trigger several jobs at once, so the jobs are executed one by one.
+     */
+    @Override
+    public List<BulkJobResult> executeAll(List<String> jobNames) {
+        List<BulkJobResult> results = new ArrayList<>(jobNames.size());
+        for (String jobName : jobNames) {
+            try {
+                execute(jobName);
+                results.add(BulkJobResult.done(jobName));
+            } catch (JobIsNotFoundException e) {
+                results.add(jobIsNotFound(jobName));
+            } catch (JobIsCurrentlyRunningException e) {
+                results.add(jobIsCurrentlyRunning(jobName));
+            }
+        }
+        return results;
     }
 
-    private JobInfo.State getJobState(JobKey jobKey) throws SchedulerException {
-        if (isJobRunning(jobKey)) {
-            return JobInfo.State.RUNNING;
+    /**
+     * Stores the job detail and the trigger in place of the existing ones. Each of them is stored only when it
+     * differs from the existing one, so the job never disappears and an unchanged schedule keeps its next fire time
+     * and misfire bookkeeping.
+     *
+     * @return false if neither the job detail nor the trigger has changed
+     */
+    private boolean replaceJob(JobDetail jobDetail, CronTrigger trigger) throws SchedulerException {
+        JobKey jobKey = jobDetail.getKey();
+        JobDetail existingJobDetail = scheduler.getJobDetail(jobKey);
+        CronTrigger existingTrigger = scheduler.getTriggersOfJob(jobKey).stream()
+                .filter(CronTrigger.class::isInstance)
+                .map(CronTrigger.class::cast)
+                .findFirst()
+                .orElse(null);
+
+        boolean jobDetailChanged = existingJobDetail == null || !isSameJobDetail(existingJobDetail, jobDetail);
+        boolean triggerChanged = existingTrigger == null || !isSameSchedule(existingTrigger, trigger);
+
+        if (jobDetailChanged) {
+            // the existing triggers keep the job stored
+            scheduler.addJob(jobDetail, true, true);
+        }
+        if (triggerChanged) {
+            TriggerBuilder<CronTrigger> triggerBuilder = trigger.getTriggerBuilder().forJob(jobKey);
+            if (existingTrigger != null) {
+                scheduler.rescheduleJob(existingTrigger.getKey(),
+                        triggerBuilder.withIdentity(existingTrigger.getKey()).build());
+            } else {
+                scheduler.scheduleJob(triggerBuilder.build());
+            }
         }
+        return jobDetailChanged || triggerChanged;
+    }
 
-        JobExecutionHistory jobExecutionHistory =
-                historyRepository.findTopByJobNameOrderByCompletionDateDesc(jobKey.getName());
+    private static boolean isSameJobDetail(JobDetail existingJobDetail, JobDetail jobDetail) {
+        Map<String, Object> existingJobDataMap = existingJobDetail.getJobDataMap().getWrappedMap();
+        Map<String, Object> jobDataMap = jobDetail.getJobDataMap().getWrappedMap();
+        // argv is an array, so the values are compared deeply
+        return existingJobDetail.getJobClass().equals(jobDetail.getJobClass())
+                && existingJobDataMap.keySet().equals(jobDataMap.keySet())
+                && existingJobDataMap.keySet().stream()
+                .allMatch(key -> Objects.deepEquals(existingJobDataMap.get(key), jobDataMap.get(key)));
+    }
+
+    private static boolean isSameSchedule(CronTrigger existingTrigger, CronTrigger trigger) {
+        return existingTrigger.getCronExpression().equals(trigger.getCronExpression())
+                && existingTrigger.getPriority() == trigger.getPriority()
+                && existingTrigger.getTimeZone().equals(trigger.getTimeZone());
+    }
+
+    /**
+     * The execution history, rollups and output files of the job are left to {@link JobHistoryPurger}.
+     */
+    private void removeJobData(String jobName) {
+        Date deletionDate = new Date();
+        tombstoneRepository.save(new JobTombstone(jobName, deletionDate));
+        jobStatisticsIndex.remove(jobName);
+        jobMetrics.removeJob(jobName);
+        jobChangeJournal.record(JobChange.builder()
+                .type(JobChange.Type.DELETED)
+                .jobName(jobName)
+                .date(deletionDate)
+                .build());
+    }
 
-        if (Objects.nonNull(jobExecutionHistory)) {
-            JobExecutionHistory.Result result = jobExecutionHistory.getResult();
-            switch (result) {
-                case SUCCESS:
-                    return JobInfo.State.SUCCESS;
-                case FAILED:
-                    return JobInfo.State.FAILED;
+    /**
+     * Cancels the pending delayed executions of the deleted jobs once the deletion is committed.
+     */
+    private void cancelDelayedExecutions(List<String> jobNames) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            delayedExecutionEngine.cancelAll(jobNames);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                delayedExecutionEngine.cancelAll(jobNames);
             }
+        });
+    }
+
+    private static List<JobKey> toJobKeys(List<String> jobNames) {
+        return jobNames.stream()
+                .map(jobName -> JobKey.jobKey(jobName, Key.DEFAULT_GROUP))
+                .collect(Collectors.toList());
+    }
+
+    private static BulkJobResult incorrectJobRequest(String jobName, IncorrectJobRequestException e) {
+        return BulkJobResult.failed(jobName, BulkJobResult.Status.INCORRECT_REQUEST,
+                e.getCause() != null ? e.getCause().getMessage() : null);
+    }
+
+    private static BulkJobResult repeatedJob(String jobName) {
+        return BulkJobResult.failed(jobName, BulkJobResult.Status.INCORRECT_REQUEST,
+                "Job '" + jobName + "' is repeated in the request");
+    }
+
+    private static BulkJobResult jobAlreadyExists(String jobName) {
+        return BulkJobResult.failed(jobName, BulkJobResult.Status.ALREADY_EXISTS,
+                "Job '" + jobName + "' already exists");
+    }
+
+    private static BulkJobResult jobIsNotFound(String jobName) {
+        return BulkJobResult.failed(jobName, BulkJobResult.Status.NOT_FOUND, "Job '" + jobName + "' is not found");
+    }
+
+    private static BulkJobResult jobIsCurrentlyRunning(String jobName) {
+        return BulkJobResult.failed(jobName, BulkJobResult.Status.CURRENTLY_RUNNING,
+                "Job '" + jobName + "' is currently running");
+    }
+
+    @Override
+    public JobInfo getJobInfo(String jobName) throws JobIsNotFoundException {
+        throwJobIsNotFoundExceptionIfJobNotExists(jobName);
+        // the version should be known before the job is loaded, tracking it doesn't change the version of all jobs
+        jobStateIndex.track(jobName);
+
+        JobDefinition jobDefinition = jobDefinitionRegistry.find(jobName);
+        if (jobDefinition == null) {
+            log.error("Job '{}' is not found", jobName);
+            throw new JobIsNotFoundException();
         }
+        return getJobInfo(jobDefinition);
+    }
 
-        return JobInfo.State.QUEUED;
+    @Override
+    public JobVersion getJobVersion(String jobName) {
+        return jobStateIndex.findVersion(jobName);
     }
 
-    private boolean isJobRunning(JobKey jobKey) throws SchedulerException {
-        List<JobExecutionContext> currentlyExecutingJobs = scheduler.getCurrentlyExecutingJobs();
-        for (JobExecutionContext jobExecutionContext : currentlyExecutingJobs) {
-            String jobName = jobExecutionContext.getJobDetail().getKey().getName();
-            String groupName = jobExecutionContext.getJobDetail().getKey().getGroup();
-            if (Objects.equals(jobKey.getName(), jobName) && Objects.equals(jobKey.getGroup(), groupName)) {
-                return true;
-            }
+    @Override
+    public JobVersion getJobsVersion() {
+        return jobStateIndex.getVersion();
+    }
+
+    /**
+     * Builds the snapshot of all jobs from {@link JobDefinitionRegistry} and {@link JobStateIndex} without touching
+     * the job store.
+     */
+    @Override
+    public List<JobInfo> getAllJobs() {
+        return jobDefinitionRegistry.getAll().stream()
+                .map(this::getJobInfo)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public JobPage getJobs(JobFilter filter, String after, int limit) {
+        // one more job tells whether there is a next page
+        List<JobInfo> jobs;
+        try (Stream<JobInfo> stream = streamJobs(filter, after)) {
+            jobs = stream.limit(limit + 1L).collect(Collectors.toList());
         }
-        return false;
+
+        String next = null;
+        if (jobs.size() > limit) {
+            jobs = jobs.subList(0, limit);
+            next = jobs.get(limit - 1).getName();
+        }
+
+        return JobPage.builder()
+                .jobs(jobs)
+                .next(next)
+                .build();
     }
 
-    private String getJobCommand(JobKey jobKey) throws SchedulerException {
-        JobDetail jobDetail = scheduler.getJobDetail(jobKey);
-        JobDataMap jobDataMap = jobDetail.getJobDataMap();
-        return (String) jobDataMap.get(NativeJob.PROP_COMMAND);
+    @Override
+    public Stream<JobInfo> streamJobs(JobFilter filter) {
+        return streamJobs(filter, null);
     }
 
-    @SuppressWarnings("unchecked")
-    private String getJobCron(JobKey jobKey) throws SchedulerException {
-        List<Trigger> triggers = (List<Trigger>) scheduler.getTriggersOfJob(jobKey);
-        for (Trigger trigger : triggers) {
-            if (trigger instanceof CronTrigger) {
-                CronTrigger cronTrigger = (CronTrigger) trigger;
-                return cronTrigger.getCronExpression();
-            }
+    /**
+     * The job names are read from the sorted names of the registry, starting after the last name of the previous page
+     * and bounded by the name prefix, so a page doesn't copy or sort all names. The state criterion is checked before
+     * the job info is built.
+     */
+    private Stream<JobInfo> streamJobs(JobFilter filter, String after) {
+        String prefix = filter.getNamePrefix();
+        String from = prefix;
+        boolean fromInclusive = true;
+        if (after != null && (from == null || after.compareTo(from) >= 0)) {
+            from = after;
+            fromInclusive = false;
+        }
+        String to = getPrefixEnd(prefix);
+        if (from != null && to != null && from.compareTo(to) >= 0) {
+            return Stream.empty();
+        }
+
+        NavigableSet<String> jobNames = jobDefinitionRegistry.getJobNames();
+        if (from != null) {
+            jobNames = jobNames.tailSet(from, fromInclusive);
+        }
+        if (to != null) {
+            jobNames = jobNames.headSet(to, false);
+        }
+
+        return jobNames.stream()
+                .filter(jobName -> prefix == null || jobName.startsWith(prefix))
+                .filter(jobName -> filter.getState() == null || filter.getState() == getJobState(jobName))
+                .map(this::findJobInfo)
+                .filter(Objects::nonNull)
+                .filter(jobInfo -> filter.getState() == null || filter.getState() == jobInfo.getState())
+                .filter(jobInfo -> filter.getPriority() == null || filter.getPriority().equals(jobInfo.getPriority()))
+                .filter(jobInfo -> filter.getCron() == null || filter.getCron().equals(jobInfo.getCron()));
+    }
+
+    /**
+     * @return the least name greater than all names with the prefix, or null if there is no such bound
+     */
+    private static String getPrefixEnd(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return null;
+        }
+        char last = prefix.charAt(prefix.length() - 1);
+        if (last == Character.MAX_VALUE) {
+            return null;
         }
-        return null;
+        return prefix.substring(0, prefix.length() - 1) + (char) (last + 1);
     }
 
-    @SuppressWarnings("unchecked")
-    private Integer getJobPriority(JobKey jobKey) throws SchedulerException {
-        return scheduler.getTriggersOfJob(jobKey).get(0).getPriority();
+    /**
+     * @return null if the job was deleted after its name was fetched
+     */
+    private JobInfo findJobInfo(String jobName) {
+        JobDefinition jobDefinition = jobDefinitionRegistry.find(jobName);
+        return jobDefinition != null ? getJobInfo(jobDefinition) : null;
     }
 
-    private boolean checkJobExists(String jobName) {
-        try {
-            return scheduler.checkExists(JobKey.jobKey(jobName, Key.DEFAULT_GROUP));
-        } catch (SchedulerException e) {
-            log.error(e.getMessage(), e);
-            throw new UnexpectedException(e);
+    @Override
+    public JobStatistics getJobStatistics(String jobName) throws JobIsNotFoundException {
+        throwJobIsNotFoundExceptionIfJobNotExists(jobName);
+
+        return jobStatisticsIndex.getStatistics(jobName);
+    }
+
+    private JobInfo getJobInfo(JobDefinition jobDefinition) {
+        String jobName = jobDefinition.getName();
+        JobInfo.State jobState = getJobState(jobName);
+
+        if (jobDefinition.isNative()) {
+            return NativeJobInfo.builder()
+                    .name(jobName)
+                    .command(jobDefinition.getCommand())
+                    .argv(jobDefinition.getArgv())
+                    .cron(jobDefinition.getCron())
+                    .state(jobState)
+                    .priority(jobDefinition.getPriority())
+                    .build();
+        } else {
+            return JavaJobInfo.builder()
+                    .name(jobName)
+                    .cron(jobDefinition.getCron())
+                    .state(jobState)
+                    .priority(jobDefinition.getPriority())
+                    .build();
+        }
+    }
+
+    private JobChange buildJobChange(JobChange.Type type, JobRequest jobRequest) {
+        JobChange.JobChangeBuilder builder = JobChange.builder()
+                .type(type)
+                .jobName(jobRequest.getName())
+                .date(new Date())
+                .cron(jobRequest.getCron())
+                .priority(jobRequest.getPriority() != null ? jobRequest.getPriority() : Trigger.DEFAULT_PRIORITY);
+        if (jobRequest instanceof NativeJobRequest) {
+            NativeJobRequest nativeJobRequest = (NativeJobRequest) jobRequest;
+            builder.command(nativeJobRequest.getCommand())
+                    .argv(nativeJobRequest.getArgv());
         }
+        return builder.build();
+    }
+
+    private JobInfo.State getJobState(String jobName) {
+        return jobStateIndex.getState(jobName);
+    }
+
+    private boolean checkJobExists(String jobName) {
+        return jobDefinitionRegistry.contains(jobName);
     }
 
     private CronTrigger buildCronTrigger(JobRequest jobRequest) throws IncorrectJobRequestException {
@@ -276,10 +765,27 @@ public class JobServiceImpl implements JobService {
     private JobDetail buildJobDetail(JobRequest jobRequest) throws IncorrectJobRequestException {
         try {
             if (jobRequest instanceof NativeJobRequest) {
+                NativeJobRequest nativeJobRequest = (NativeJobRequest) jobRequest;
+                JobDataMap jobDataMap = new JobDataMap();
+                boolean coprocess = Boolean.TRUE.equals(nativeJobRequest.getCoprocess());
+                if (nativeJobRequest.getArgv() != null) {
+                    if (coprocess) {
+                        throw new IllegalArgumentException("Only shell command of job '" + jobRequest.getName()
+                                + "' can be run in coprocess");
+                    }
+                    jobDataMap.put(NativeJob.PROP_ARGV, parseArgv(nativeJobRequest));
+                } else {
+                    jobDataMap.put(NativeJob.PROP_COMMAND, parseCommand(nativeJobRequest));
+                }
+
                 return JobBuilder.newJob(NativeJob.class)
                         .withIdentity(jobRequest.getName(), Key.DEFAULT_GROUP)
-                        .usingJobData(NativeJob.PROP_COMMAND, ((NativeJobRequest) jobRequest).getCommand())
+                        .usingJobData(jobDataMap)
                         .usingJobData(NativeJob.PROP_CONSUME_STREAMS, true)
+                        .usingJobData(NativeJob.PROP_RELEASE_WORKER,
+                                Boolean.TRUE.equals(nativeJobRequest.getReleaseWorker()))
+                        .usingJobData(NativeJob.PROP_COPROCESS, coprocess)
+                        .usingJobData(NativeJob.PROP_TIMEOUT_SECONDS, parseTimeoutSeconds(nativeJobRequest))
                         .build();
             } else {
                 return JobBuilder.newJob(jobRequest.getClass())
@@ -291,4 +797,42 @@ public class JobServiceImpl implements JobService {
             throw new IncorrectJobRequestException(e);
         }
     }
+
+    private String parseCommand(NativeJobRequest jobRequest) {
+        if (jobRequest.getCommand() == null || jobRequest.getCommand().trim().isEmpty()) {
+            throw new IllegalArgumentException("Either command or argv of job '" + jobRequest.getName()
+                    + "' should be defined");
+        }
+        return jobRequest.getCommand();
+    }
+
+    private long parseTimeoutSeconds(NativeJobRequest jobRequest) {
+        if (jobRequest.getTimeoutSeconds() == null) {
+            return 0;
+        }
+        if (jobRequest.getTimeoutSeconds() <= 0) {
+            throw new IllegalArgumentException("The timeout of job '" + jobRequest.getName() + "' should be positive");
+        }
+        return jobRequest.getTimeoutSeconds();
+    }
+
+    /**
+     * Validates the argv form of the command once, so it can be launched as is without a shell.
+     */
+    private String[] parseArgv(NativeJobRequest jobRequest) {
+        List<String> argv = jobRequest.getArgv();
+        if (jobRequest.getCommand() != null) {
+            throw new IllegalArgumentException("Only one of command and argv of job '" + jobRequest.getName()
+                    + "' should be defined");
+        }
+        if (argv.isEmpty() || argv.get(0) == null || argv.get(0).trim().isEmpty()) {
+            throw new IllegalArgumentException("The executable in argv of job '" + jobRequest.getName()
+                    + "' should be defined");
+        }
+        if (argv.contains(null)) {
+            throw new IllegalArgumentException("The argv of job '" + jobRequest.getName()
+                    + "' shouldn't contain null values");
+        }
+        return argv.toArray(new String[0]);
+    }
 }
@@ -0,0 +1,16 @@
+package com.ail.optile.jobservice.state;
+
+/**
+ * Run state of a job tracked by {@link JobStateIndex}.
+ * <p>
+ * <p>{@link #IDLE} - job isn't running and can be fired, updated or deleted.
+ * <p>{@link #FIRING} - job's trigger was fired but the job wasn't started yet.
+ * <p>{@link #RUNNING} - job is currently running.
+ * <p>{@link #LOCKED} - job is being updated or deleted and can't be fired.
+ */
+public enum JobRunState {
+    IDLE,
+    FIRING,
+    RUNNING,
+    LOCKED
+}
@@ -0,0 +1,262 @@
+package com.ail.optile.jobservice.state;
+
+import com.ail.optile.jobservice.api.JobInfo;
+import com.ail.optile.jobservice.domain.JobVersion;
+import com.ail.optile.jobservice.pdo.JobExecutionHistory;
+import com.ail.optile.jobservice.repository.JobExecutionHistoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory index of the latest known state of every job.
+ * <p>
+ * The index is warmed once from the execution history at startup and then kept up to date by
+ * {@link com.ail.optile.jobservice.listener.JobExecutionListener}, so reading the state of a job never hits the
+ * database.
+ * <p>
+ * Every job also has a {@link JobRunState} which moves IDLE -> FIRING -> RUNNING -> IDLE with CAS transitions,
+ * so firing, updating and deleting of the same job exclude each other without scanning the executing jobs.
+ * <p>
+ * Every visible change of a job (definition, start and completion of an execution) bumps its {@link JobVersion}.
+ * Versions are taken from a single counter, so the counter itself is the version of all jobs. A definition change is
+ * reported by {@link com.ail.optile.jobservice.registry.JobDefinitionRegistry} once the change is committed and
+ * reloaded. A job which is only started to be tracked takes the current version of all jobs without bumping it.
+ */
+@Component
+@Slf4j
+public class JobStateIndex {
+
+    private final JobExecutionHistoryRepository historyRepository;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+    // entries in FIRING, changed together with every transition to or from it
+    private final AtomicInteger firingCount = new AtomicInteger();
+    private volatile long lastModified = epoch;
+
+    @Autowired
+    public JobStateIndex(JobExecutionHistoryRepository historyRepository) {
+        this.historyRepository = historyRepository;
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        for (JobExecutionHistory jobExecutionHistory : historyRepository.findLatestOfEachJob()) {
+            Entry entry = getOrCreateEntry(jobExecutionHistory.getJobName());
+            if (entry.completionDate == null || entry.completionDate.before(jobExecutionHistory.getCompletionDate())) {
+                entry.completionDate = jobExecutionHistory.getCompletionDate();
+                entry.lastResult = jobExecutionHistory.getResult();
+            }
+        }
+        log.info("Job state index is warmed up with {} jobs", entries.size());
+    }
+
+    /**
+     * Moves the job from {@link JobRunState#IDLE} to {@link JobRunState#FIRING} before it's triggered manually.
+     *
+     * @return false if the job is already firing, running or locked
+     */
+    public boolean tryFire(String jobName) {
+        return transition(getOrCreateEntry(jobName), JobRunState.IDLE, JobRunState.FIRING);
+    }
+
+    /**
+     * Returns the job to {@link JobRunState#IDLE} when the trigger moved it to {@link JobRunState#FIRING} but
+     * couldn't start the execution: it wasn't fired, misfired, the job couldn't be instantiated or was vetoed.
+     */
+    public void fireFailed(String jobName) {
+        Entry entry = entries.get(jobName);
+        if (entry != null) {
+            transition(entry, JobRunState.FIRING, JobRunState.IDLE);
+        }
+    }
+
+    /**
+     * Decides whether the fired trigger may execute the job.
+     *
+     * @param manual whether the trigger was fired by {@link #tryFire(String)}
+     * @return true if the job is moved (or was already moved manually) to {@link JobRunState#FIRING}
+     */
+    public boolean tryAcceptTrigger(String jobName, boolean manual) {
+        Entry entry = getOrCreateEntry(jobName);
+        while (true) {
+            JobRunState current = entry.runState.get();
+            if (current == JobRunState.FIRING && manual) {
+                return true;
+            }
+            if (current != JobRunState.IDLE) {
+                return false;
+            }
+            if (transition(entry, JobRunState.IDLE, JobRunState.FIRING)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Moves the job from {@link JobRunState#IDLE} to {@link JobRunState#LOCKED} before it's updated or deleted.
+     *
+     * @return false if the job is firing, running or already locked
+     */
+    public boolean tryLock(String jobName) {
+        return getOrCreateEntry(jobName).runState.compareAndSet(JobRunState.IDLE, JobRunState.LOCKED);
+    }
+
+    public void unlock(String jobName) {
+        Entry entry = entries.get(jobName);
+        if (entry != null) {
+            entry.runState.compareAndSet(JobRunState.LOCKED, JobRunState.IDLE);
+        }
+    }
+
+    public void jobStarted(String jobName) {
+        Entry entry = getOrCreateEntry(jobName);
+        setRunState(entry, JobRunState.RUNNING);
+        bumpVersion(entry);
+    }
+
+    /**
+     * A job removed in the meantime isn't tracked again.
+     */
+    public void jobCompleted(String jobName, JobExecutionHistory.Result result, Date completionDate) {
+        Entry entry = entries.get(jobName);
+        if (entry == null) {
+            return;
+        }
+        entry.lastResult = result;
+        entry.completionDate = completionDate;
+        setRunState(entry, JobRunState.IDLE);
+        bumpVersion(entry);
+    }
+
+    /**
+     * Bumps the version of the job after its changed definition is reloaded.
+     */
+    public void jobChanged(String jobName) {
+        bumpVersion(getOrCreateEntry(jobName));
+    }
+
+    /**
+     * Starts tracking the version of an existing job, which isn't known to the index yet. The version of all jobs
+     * isn't changed.
+     */
+    public void track(String jobName) {
+        getOrCreateEntry(jobName);
+    }
+
+    /**
+     * @return null if the job isn't tracked
+     */
+    public JobVersion findVersion(String jobName) {
+        Entry entry = entries.get(jobName);
+        return entry == null ? null : new JobVersion(epoch, entry.version, entry.lastModified);
+    }
+
+    /**
+     * @return version of all jobs
+     */
+    public JobVersion getVersion() {
+        return new JobVersion(epoch, version.get(), lastModified);
+    }
+
+    public JobRunState getRunState(String jobName) {
+        Entry entry = entries.get(jobName);
+        return entry == null ? JobRunState.IDLE : entry.runState.get();
+    }
+
+    /**
+     * @return number of jobs in {@link JobRunState#FIRING}: fired manually and waiting for a worker thread, or accepted
+     * by a worker thread and not started yet
+     */
+    public int getFiringCount() {
+        return firingCount.get();
+    }
+
+    public void remove(String jobName) {
+        Entry entry = entries.remove(jobName);
+        if (entry != null) {
+            setRunState(entry, JobRunState.IDLE);
+        }
+        lastModified = System.currentTimeMillis();
+        version.incrementAndGet();
+    }
+
+    public JobInfo.State getState(String jobName) {
+        Entry entry = entries.get(jobName);
+        if (entry == null) {
+            return JobInfo.State.QUEUED;
+        }
+        if (entry.runState.get() == JobRunState.RUNNING) {
+            return JobInfo.State.RUNNING;
+        }
+
+        JobExecutionHistory.Result result = entry.lastResult;
+        if (result != null) {
+            switch (result) {
+                case SUCCESS:
+                    return JobInfo.State.SUCCESS;
+                case FAILED:
+                    return JobInfo.State.FAILED;
+                case TIMED_OUT:
+                    return JobInfo.State.TIMED_OUT;
+            }
+        }
+
+        return JobInfo.State.QUEUED;
+    }
+
+    private Entry getOrCreateEntry(String jobName) {
+        return entries.computeIfAbsent(jobName, name -> {
+            Entry entry = new Entry();
+            // newer than any version of a removed entry of the same job
+            entry.version = version.get();
+            entry.lastModified = lastModified;
+            return entry;
+        });
+    }
+
+    private boolean transition(Entry entry, JobRunState from, JobRunState to) {
+        if (!entry.runState.compareAndSet(from, to)) {
+            return false;
+        }
+        countFiring(from, to);
+        return true;
+    }
+
+    private void setRunState(Entry entry, JobRunState to) {
+        countFiring(entry.runState.getAndSet(to), to);
+    }
+
+    private void countFiring(JobRunState from, JobRunState to) {
+        if (from != JobRunState.FIRING && to == JobRunState.FIRING) {
+            firingCount.incrementAndGet();
+        } else if (from == JobRunState.FIRING && to != JobRunState.FIRING) {
+            firingCount.decrementAndGet();
+        }
+    }
+
+    private void bumpVersion(Entry entry) {
+        long now = System.currentTimeMillis();
+        entry.lastModified = now;
+        lastModified = now;
+        entry.version = version.incrementAndGet();
+    }
+
+    private static final class Entry {
+
+        private final AtomicReference<JobRunState> runState = new AtomicReference<>(JobRunState.IDLE);
+        private volatile JobExecutionHistory.Result lastResult;
+        private volatile Date completionDate;
+        private volatile long version;
+        private volatile long lastModified;
+    }
+}
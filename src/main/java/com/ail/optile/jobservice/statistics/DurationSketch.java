@@ -0,0 +1,135 @@
+package com.ail.optile.jobservice.statistics;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Mergeable histogram of durations with logarithmic buckets, so every quantile is estimated with a bounded relative
+ * error of {@link #RELATIVE_ACCURACY} regardless of the number of recorded values.
+ * <p>
+ * Only non-empty buckets are stored, so a sketch of a rarely executed job takes a few bytes.
+ * The class isn't thread safe.
+ */
+public class DurationSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.02;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int[] indexes = new int[INITIAL_CAPACITY];
+    private long[] counts = new long[INITIAL_CAPACITY];
+    private int size;
+
+    // durations below 1 ms
+    private long zeroCount;
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public void record(long durationMillis) {
+        count++;
+        min = Math.min(min, durationMillis);
+        max = Math.max(max, durationMillis);
+
+        if (durationMillis < 1) {
+            zeroCount++;
+        } else {
+            add((int) Math.ceil(Math.log(durationMillis) / LOG_GAMMA), 1);
+        }
+    }
+
+    public void merge(DurationSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        count += other.count;
+        zeroCount += other.zeroCount;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        for (int i = 0; i < other.size; i++) {
+            add(other.indexes[i], other.counts[i]);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @param quantile value between 0 and 1
+     * @return estimated duration in milliseconds, or null if nothing was recorded
+     */
+    public Long getQuantile(double quantile) {
+        if (count == 0) {
+            return null;
+        }
+
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = zeroCount;
+        if (rank <= seen) {
+            return Math.max(min, 0);
+        }
+        for (int i = 0; i < size; i++) {
+            seen += counts[i];
+            if (rank <= seen) {
+                long value = Math.round(2 * Math.pow(GAMMA, indexes[i]) / (GAMMA + 1));
+                return Math.min(Math.max(value, min), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Serializes the sketch to be stored in {@link com.ail.optile.jobservice.pdo.JobExecutionRollup}.
+     */
+    public byte[] toByteArray() {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * Long.BYTES + Integer.BYTES + size * (Integer.BYTES + Long.BYTES));
+        buffer.putLong(count).putLong(zeroCount).putLong(min).putLong(max).putInt(size);
+        for (int i = 0; i < size; i++) {
+            buffer.putInt(indexes[i]).putLong(counts[i]);
+        }
+        return buffer.array();
+    }
+
+    public static DurationSketch fromByteArray(byte[] bytes) {
+        DurationSketch sketch = new DurationSketch();
+        if (bytes == null || bytes.length == 0) {
+            return sketch;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        sketch.count = buffer.getLong();
+        sketch.zeroCount = buffer.getLong();
+        sketch.min = buffer.getLong();
+        sketch.max = buffer.getLong();
+        sketch.size = buffer.getInt();
+        sketch.indexes = new int[Math.max(sketch.size, INITIAL_CAPACITY)];
+        sketch.counts = new long[Math.max(sketch.size, INITIAL_CAPACITY)];
+        for (int i = 0; i < sketch.size; i++) {
+            sketch.indexes[i] = buffer.getInt();
+            sketch.counts[i] = buffer.getLong();
+        }
+        return sketch;
+    }
+
+    private void add(int index, long bucketCount) {
+        int position = Arrays.binarySearch(indexes, 0, size, index);
+        if (position >= 0) {
+            counts[position] += bucketCount;
+            return;
+        }
+
+        position = -position - 1;
+        if (size == indexes.length) {
+            indexes = Arrays.copyOf(indexes, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+        System.arraycopy(indexes, position, indexes, position + 1, size - position);
+        System.arraycopy(counts, position, counts, position + 1, size - position);
+        indexes[position] = index;
+        counts[position] = bucketCount;
+        size++;
+    }
+}
@@ -0,0 +1,129 @@
+package com.ail.optile.jobservice.statistics;
+
+import com.ail.optile.jobservice.domain.WindowStatistics;
+import com.ail.optile.jobservice.pdo.JobExecutionHistory;
+
+/**
+ * Incrementally maintained counters and duration sketches of one job for every {@link StatisticsWindow}.
+ */
+class JobRollup {
+
+    private final Slot[][] slots;
+
+    JobRollup() {
+        StatisticsWindow[] windows = StatisticsWindow.values();
+        slots = new Slot[windows.length][];
+        for (StatisticsWindow window : windows) {
+            slots[window.ordinal()] = new Slot[window.getSlotCount()];
+        }
+    }
+
+    synchronized void record(long completionTime, JobExecutionHistory.Result result, Long duration) {
+        for (StatisticsWindow window : StatisticsWindow.values()) {
+            Slot slot = getSlot(window, completionTime);
+            if (slot != null) {
+                slot.record(result, duration);
+            }
+        }
+    }
+
+    /**
+     * Records executions aggregated by a persisted rollup of the period which starts at the time.
+     */
+    synchronized void record(long periodStart, long successes, long failures, long timeouts, DurationSketch durations) {
+        for (StatisticsWindow window : StatisticsWindow.values()) {
+            Slot slot = getSlot(window, periodStart);
+            if (slot != null) {
+                slot.successes += successes;
+                slot.failures += failures;
+                slot.timeouts += timeouts;
+                slot.sketch.merge(durations);
+            }
+        }
+    }
+
+    synchronized WindowStatistics getStatistics(StatisticsWindow window, long now) {
+        long oldestSlotStart = now - now % window.getSlotMillis()
+                - (window.getSlotCount() - 1) * window.getSlotMillis();
+
+        long successes = 0;
+        long failures = 0;
+        long timeouts = 0;
+        DurationSketch sketch = new DurationSketch();
+        for (Slot slot : slots[window.ordinal()]) {
+            if (slot == null || slot.start < oldestSlotStart) {
+                continue;
+            }
+            successes += slot.successes;
+            failures += slot.failures;
+            timeouts += slot.timeouts;
+            sketch.merge(slot.sketch);
+        }
+
+        return windowStatistics(window, successes, failures, timeouts, sketch);
+    }
+
+    /**
+     * @return slot of the window which contains the time, or null if the time is older than the window
+     */
+    private Slot getSlot(StatisticsWindow window, long time) {
+        long slotStart = time - time % window.getSlotMillis();
+        int position = (int) ((slotStart / window.getSlotMillis()) % window.getSlotCount());
+
+        Slot slot = slots[window.ordinal()][position];
+        if (slot == null || slot.start < slotStart) {
+            // the slot is reused for the next round of the ring
+            slot = new Slot(slotStart);
+            slots[window.ordinal()][position] = slot;
+        } else if (slot.start > slotStart) {
+            return null;
+        }
+        return slot;
+    }
+
+    static WindowStatistics windowStatistics(
+            StatisticsWindow window, long successes, long failures, long timeouts, DurationSketch sketch) {
+        long executions = successes + failures + timeouts;
+        return WindowStatistics.builder()
+                .window(window.getLabel())
+                .executions(executions)
+                .successes(successes)
+                .failures(failures)
+                .timeouts(timeouts)
+                .successRate(executions > 0 ? (double) successes / executions : null)
+                .p50(sketch.getQuantile(0.5))
+                .p95(sketch.getQuantile(0.95))
+                .p99(sketch.getQuantile(0.99))
+                .build();
+    }
+
+    private static final class Slot {
+
+        private final long start;
+        private final DurationSketch sketch = new DurationSketch();
+        private long successes;
+        private long failures;
+        private long timeouts;
+
+        private Slot(long start) {
+            this.start = start;
+        }
+
+        private void record(JobExecutionHistory.Result result, Long duration) {
+            switch (result) {
+                case SUCCESS:
+                    successes++;
+                    break;
+                case FAILED:
+                    failures++;
+                    break;
+                case TIMED_OUT:
+                    timeouts++;
+                    break;
+            }
+            if (duration != null) {
+                sketch.record(duration);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.ail.optile.jobservice.statistics;
+
+import com.ail.optile.jobservice.domain.JobStatistics;
+import com.ail.optile.jobservice.domain.WindowStatistics;
+import com.ail.optile.jobservice.pdo.JobExecutionHistory;
+import com.ail.optile.jobservice.pdo.JobExecutionRollup;
+import com.ail.optile.jobservice.pdo.JobTombstone;
+import com.ail.optile.jobservice.repository.JobExecutionHistoryRepository;
+import com.ail.optile.jobservice.repository.JobExecutionRollupRepository;
+import com.ail.optile.jobservice.repository.JobTombstoneRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory rollups of job executions per {@link StatisticsWindow}.
+ * <p>
+ * Rollups are warmed once at startup from the history and hourly {@link JobExecutionRollup}s of the longest window
+ * and then updated with every completed execution by {@link com.ail.optile.jobservice.listener.JobExecutionListener},
+ * so statistics never scan the execution history. The executions of deleted jobs which aren't purged yet are skipped
+ * by the warm-up.
+ */
+@Component
+@Slf4j
+public class JobStatisticsIndex {
+
+    private static final int WARM_UP_PAGE_SIZE = 1000;
+
+    private final JobExecutionHistoryRepository historyRepository;
+    private final JobExecutionRollupRepository rollupRepository;
+    private final JobTombstoneRepository tombstoneRepository;
+    private final ConcurrentMap<String, JobRollup> rollups = new ConcurrentHashMap<>();
+
+    @Autowired
+    public JobStatisticsIndex(
+            JobExecutionHistoryRepository historyRepository,
+            JobExecutionRollupRepository rollupRepository,
+            JobTombstoneRepository tombstoneRepository) {
+        this.historyRepository = historyRepository;
+        this.rollupRepository = rollupRepository;
+        this.tombstoneRepository = tombstoneRepository;
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        Date since = new Date(System.currentTimeMillis() - getLongestWindow().getLengthMillis());
+        long lastId = 0;
+        long recorded = 0;
+
+        // the dates are read as timestamps, which compare as dates only by whole seconds
+        Map<String, Long> deletionTimes = new HashMap<>();
+        for (JobTombstone tombstone : tombstoneRepository.findAll()) {
+            deletionTimes.merge(tombstone.getJobName(), tombstone.getDeletionDate().getTime(), Math::max);
+        }
+
+        List<JobExecutionHistory> page;
+        do {
+            page = historyRepository.findByIdGreaterThanAndCompletionDateAfterOrderByIdAsc(
+                    lastId, since, PageRequest.of(0, WARM_UP_PAGE_SIZE));
+            for (JobExecutionHistory jobExecutionHistory : page) {
+                Long deletionTime = deletionTimes.get(jobExecutionHistory.getJobName());
+                // ad-hoc tasks aren't jobs, the executions of deleted jobs aren't purged yet
+                if (jobExecutionHistory.getTicketId() == null && (deletionTime == null
+                        || jobExecutionHistory.getCompletionDate().getTime() > deletionTime)) {
+                    record(jobExecutionHistory);
+                }
+                lastId = jobExecutionHistory.getId();
+            }
+            recorded += page.size();
+        } while (page.size() == WARM_UP_PAGE_SIZE);
+
+        // compacted history, a row is either raw or rolled up
+        List<JobExecutionRollup> hourlyRollups = rollupRepository.findByGranularityAndPeriodStartGreaterThanEqual(
+                JobExecutionRollup.Granularity.HOUR, since);
+        for (JobExecutionRollup rollup : hourlyRollups) {
+            // the period of the deletion may hold the executions of the job created again too
+            Long deletionTime = deletionTimes.get(rollup.getJobName());
+            if (deletionTime != null && rollup.getPeriodStart().getTime()
+                    < JobExecutionRollup.Granularity.HOUR.getPeriodStart(new Date(deletionTime)).getTime()) {
+                continue;
+            }
+            rollups.computeIfAbsent(rollup.getJobName(), jobName -> new JobRollup())
+                    .record(
+                            rollup.getPeriodStart().getTime(),
+                            rollup.getSuccesses(),
+                            rollup.getFailures(),
+                            rollup.getTimeouts(),
+                            rollup.getDurations());
+            recorded += rollup.getSuccesses() + rollup.getFailures() + rollup.getTimeouts();
+        }
+
+        log.info("Job statistics index is warmed up with {} executions of {} jobs", recorded, rollups.size());
+    }
+
+    public void record(JobExecutionHistory jobExecutionHistory) {
+        rollups.computeIfAbsent(jobExecutionHistory.getJobName(), jobName -> new JobRollup())
+                .record(
+                        jobExecutionHistory.getCompletionDate().getTime(),
+                        jobExecutionHistory.getResult(),
+                        jobExecutionHistory.getDuration());
+    }
+
+    public JobStatistics getStatistics(String jobName) {
+        JobRollup rollup = rollups.get(jobName);
+        long now = System.currentTimeMillis();
+
+        List<WindowStatistics> windows = new ArrayList<>();
+        for (StatisticsWindow window : StatisticsWindow.values()) {
+            windows.add(rollup != null
+                    ? rollup.getStatistics(window, now)
+                    : JobRollup.windowStatistics(window, 0, 0, 0, new DurationSketch()));
+        }
+
+        return JobStatistics.builder()
+                .name(jobName)
+                .windows(windows)
+                .build();
+    }
+
+    public void remove(String jobName) {
+        rollups.remove(jobName);
+    }
+
+    private static StatisticsWindow getLongestWindow() {
+        StatisticsWindow longest = StatisticsWindow.values()[0];
+        for (StatisticsWindow window : StatisticsWindow.values()) {
+            if (window.getLengthMillis() > longest.getLengthMillis()) {
+                longest = window;
+            }
+        }
+        return longest;
+    }
+}
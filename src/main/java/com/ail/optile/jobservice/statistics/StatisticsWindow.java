@@ -0,0 +1,40 @@
+package com.ail.optile.jobservice.statistics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sliding windows of job statistics. Every window is a ring of fixed time slots, so it slides with the granularity
+ * of one slot.
+ */
+public enum StatisticsWindow {
+
+    LAST_HOUR("1h", TimeUnit.MINUTES.toMillis(5), 12),
+    LAST_DAY("24h", TimeUnit.HOURS.toMillis(1), 24),
+    LAST_WEEK("7d", TimeUnit.DAYS.toMillis(1), 7);
+
+    private final String label;
+    private final long slotMillis;
+    private final int slotCount;
+
+    StatisticsWindow(String label, long slotMillis, int slotCount) {
+        this.label = label;
+        this.slotMillis = slotMillis;
+        this.slotCount = slotCount;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getSlotMillis() {
+        return slotMillis;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    public long getLengthMillis() {
+        return slotMillis * slotCount;
+    }
+}
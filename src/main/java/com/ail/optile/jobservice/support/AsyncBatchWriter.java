@@ -0,0 +1,230 @@
+package com.ail.optile.jobservice.support;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bounded in-memory queue drained by a single writer thread which hands the items over to {@link #write(List)}
+ * in batches.
+ * <p>
+ * A batch is written as soon as it contains {@code batchSize} items or {@code lingerMillis} have passed since its
+ * first item was taken. A batch which fails is retried up to {@value #WRITE_ATTEMPTS} times in total and then passed
+ * to {@link #writeFailed(List, Exception)}. Producers are blocked by {@link #submit(Object)} while the queue is full,
+ * {@link #offer(Object)} rejects the item instead. Items submitted after {@link #shutdown()} are written
+ * synchronously, an item is never enqueued once the queue is flushed by the shutdown.
+ *
+ * @param <T> type of the written items
+ */
+@Slf4j
+public abstract class AsyncBatchWriter<T> {
+
+    private static final int WRITE_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MILLIS = 100;
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final AtomicLong failedCount = new AtomicLong();
+
+    // producers enqueue under the read lock, so once running is switched off under the write lock nothing else is
+    // enqueued; the lifecycle has a lock of its own to not share a monitor with the subclasses
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private final Object lifecycleLock = new Object();
+    private volatile boolean running;
+    private Thread writerThread;
+
+    protected AsyncBatchWriter(String name, int queueCapacity, int batchSize, long lingerMillis) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+    }
+
+    /**
+     * Writes the batch of items. Called from the writer thread only (or from the caller's thread after shutdown).
+     */
+    protected abstract void write(List<T> batch);
+
+    /**
+     * Called with the batch which has failed all attempts to write it. Logs the failure by default.
+     */
+    protected void writeFailed(List<T> batch, Exception e) {
+        log.error("Writer '{}' failed to write {} items", name, batch.size(), e);
+    }
+
+    public void start() {
+        synchronized (lifecycleLock) {
+            if (running) {
+                return;
+            }
+            running = true;
+            writerThread = new Thread(this::drainLoop, name);
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+    /**
+     * Enqueues the item for writing, blocking while the queue is full.
+     */
+    public void submit(T item) {
+        Lock lock = stateLock.readLock();
+        lock.lock();
+        try {
+            if (running) {
+                queue.put(item);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+        writeSafely(singletonBatch(item));
+    }
+
+    /**
+     * Enqueues the item for writing unless the queue is full.
+     *
+     * @return false if the item is rejected
+     */
+    public boolean offer(T item) {
+        Lock lock = stateLock.readLock();
+        lock.lock();
+        try {
+            if (running) {
+                return queue.offer(item);
+            }
+        } finally {
+            lock.unlock();
+        }
+        writeSafely(singletonBatch(item));
+        return true;
+    }
+
+    /**
+     * Stops the writer thread and flushes all items left in the queue.
+     */
+    public void shutdown() {
+        synchronized (lifecycleLock) {
+            if (!running) {
+                return;
+            }
+            // waits for the producers blocked on the full queue, the writer thread is still draining it
+            Lock lock = stateLock.writeLock();
+            lock.lock();
+            try {
+                running = false;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                // the writer thread isn't interrupted to not break the I/O it may be doing
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            List<T> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                writeSafely(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        log.info("Writer '{}' is stopped", name);
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * @return number of items which have failed all attempts to write them
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    private void drainLoop() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                T first = queue.poll(lingerMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+                writeSafely(batch);
+                batch = new ArrayList<>(batchSize);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void fillBatch(List<T> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void writeSafely(List<T> batch) {
+        long backoffMillis = RETRY_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                write(batch);
+                return;
+            } catch (Exception e) {
+                if (attempt == WRITE_ATTEMPTS || !sleep(backoffMillis)) {
+                    failedCount.addAndGet(batch.size());
+                    writeFailed(batch, e);
+                    return;
+                }
+                log.warn("Writer '{}' failed to write {} items, attempt {} of {}: {}",
+                        name, batch.size(), attempt, WRITE_ATTEMPTS, e.getMessage());
+                backoffMillis *= 2;
+            }
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private List<T> singletonBatch(T item) {
+        List<T> batch = new ArrayList<>(1);
+        batch.add(item);
+        return batch;
+    }
+}
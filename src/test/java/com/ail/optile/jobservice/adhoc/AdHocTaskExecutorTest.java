@@ -0,0 +1,35 @@
+package com.ail.optile.jobservice.adhoc;
+
+import com.ail.optile.jobservice.api.exception.TaskQueueIsFullException;
+import com.ail.optile.jobservice.quartz.NativeJob;
+import org.junit.Test;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+public class AdHocTaskExecutorTest {
+
+    @Test
+    public void testFullQueueRejectsTasks() throws Exception {
+        // not started, so nothing takes the tasks from the queue
+        AdHocTaskExecutor executor = new AdHocTaskExecutor(null, null, null, null, 2, 1, 1);
+        JobDetail jobDetail = JobBuilder.newJob(NativeJob.class).withIdentity("task").build();
+
+        long first = executor.submit(jobDetail);
+        long second = executor.submit(jobDetail);
+        assertThat(second, greaterThan(first));
+        assertThat(executor.getQueueSize(), is(2));
+
+        try {
+            executor.submit(jobDetail);
+            fail("Should throw " + TaskQueueIsFullException.class + " exception");
+        } catch (TaskQueueIsFullException e) {
+            // expected
+        }
+        assertThat(executor.getQueueSize(), is(2));
+    }
+}
@@ -0,0 +1,90 @@
+package com.ail.optile.jobservice.delay;
+
+import com.ail.optile.jobservice.registry.JobDefinitionRegistry;
+import com.ail.optile.jobservice.state.JobStateIndex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.quartz.Scheduler;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+
+public class DelayedExecutionEngineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Scheduler scheduler = mock(Scheduler.class);
+    private final JobStateIndex jobStateIndex = mock(JobStateIndex.class);
+    private final JobDefinitionRegistry jobDefinitionRegistry = mock(JobDefinitionRegistry.class);
+    private DelayedExecutionEngine engine;
+
+    @Before
+    public void setUp() {
+        engine = new DelayedExecutionEngine(
+                scheduler,
+                jobStateIndex,
+                jobDefinitionRegistry,
+                10,
+                1,
+                folder.getRoot().toPath().resolve("delayed.log").toString(),
+                false,
+                1_000_000,
+                1000,
+                100,
+                10);
+        engine.start();
+    }
+
+    @After
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void testExecutionsOfJobsAreCancelled() {
+        long fireTime = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+        long first = engine.schedule("job1", fireTime).getId();
+        engine.schedule("job1", fireTime + 1);
+        long other = engine.schedule("job2", fireTime).getId();
+
+        assertThat(engine.cancelAll(Arrays.asList("job1", "job3")), is(2));
+        assertThat(engine.getPendingCount(), is(1));
+        assertThat(engine.cancel(first), is(false));
+        assertThat(engine.cancelAll(Collections.singleton("job1")), is(0));
+
+        // a new execution indexes the job again
+        engine.schedule("job1", fireTime);
+        assertThat(engine.cancelAll(Collections.singleton("job1")), is(1));
+        assertThat(engine.cancel(other), is(true));
+        assertThat(engine.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void testExecutionOfRunningJobIsDropped() throws Exception {
+        given(jobDefinitionRegistry.contains("busyJob")).willReturn(true);
+        given(jobStateIndex.tryFire("busyJob")).willReturn(false);
+
+        engine.schedule("busyJob", System.currentTimeMillis());
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (engine.getDroppedCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(engine.getDroppedCount(), is(1L));
+        assertThat(engine.getPendingCount(), is(0));
+        then(scheduler).should(never()).triggerJob(any(), any());
+    }
+}
@@ -0,0 +1,110 @@
+package com.ail.optile.jobservice.delay;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class DelayedExecutionLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPendingExecutionsAreRecovered() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("delayed.log");
+        Map<Long, DelayedTask> tasks = new ConcurrentHashMap<>();
+
+        DelayedExecutionLog executionLog = newLog(file, 1_000_000, tasks.values());
+        assertThat(executionLog.recover().getPendingTasks(), is(empty()));
+        executionLog.start();
+        for (long id = 1; id <= 5; id++) {
+            DelayedTask task = new DelayedTask(id, "job" + id, 1000 * id);
+            tasks.put(id, task);
+            executionLog.submit(DelayedExecutionLog.scheduled(task));
+        }
+        executionLog.submit(DelayedExecutionLog.cancelled(tasks.get(2L)));
+        executionLog.submit(DelayedExecutionLog.fired(tasks.get(4L)));
+        executionLog.shutdown();
+
+        DelayedExecutionLog.Recovery recovery = newLog(file, 1_000_000, tasks.values()).recover();
+        assertThat(getIds(recovery.getPendingTasks()), contains(1L, 3L, 5L));
+        assertThat(recovery.getPendingTasks().get(1).getJobName(), is("job3"));
+        assertThat(recovery.getPendingTasks().get(1).getFireTime(), is(3000L));
+        assertThat(recovery.getLastId(), is(5L));
+    }
+
+    @Test
+    public void testLogIsCompacted() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("delayed.log");
+        Map<Long, DelayedTask> tasks = new ConcurrentHashMap<>();
+
+        DelayedExecutionLog executionLog = newLog(file, 100, tasks.values());
+        executionLog.recover();
+        executionLog.start();
+        for (long id = 1; id <= 1000; id++) {
+            DelayedTask task = new DelayedTask(id, "job", id);
+            tasks.put(id, task);
+            executionLog.submit(DelayedExecutionLog.scheduled(task));
+            if (id % 10 != 0) {
+                task.cancel();
+                tasks.remove(id);
+                executionLog.submit(DelayedExecutionLog.cancelled(task));
+            }
+        }
+        executionLog.shutdown();
+
+        // 1900 records of which 100 are pending
+        assertThat(Files.size(file), lessThan(400 * 20L));
+
+        DelayedExecutionLog.Recovery recovery = newLog(file, 100, tasks.values()).recover();
+        assertThat(recovery.getPendingTasks().size(), is(100));
+        // ids of the compacted executions are never reused
+        assertThat(recovery.getLastId(), is(1000L));
+    }
+
+    @Test(timeout = 30_000)
+    public void testQueuedRecordsAreFlushedOnShutdown() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("delayed.log");
+        Map<Long, DelayedTask> tasks = new ConcurrentHashMap<>();
+
+        DelayedExecutionLog executionLog = newLog(file, 100, tasks.values());
+        executionLog.recover();
+        executionLog.start();
+        for (long id = 1; id <= 20_000; id++) {
+            DelayedTask task = new DelayedTask(id, "job", id);
+            tasks.put(id, task);
+            executionLog.submit(DelayedExecutionLog.scheduled(task));
+        }
+        // shut down while the writer thread is still busy with the queue
+        executionLog.shutdown();
+        assertThat(executionLog.getQueueSize(), is(0));
+
+        DelayedExecutionLog.Recovery recovery = newLog(file, 100, tasks.values()).recover();
+        assertThat(recovery.getPendingTasks().size(), is(20_000));
+        assertThat(recovery.getLastId(), is(20_000L));
+    }
+
+    private static DelayedExecutionLog newLog(Path file, long compactionThreshold, Collection<DelayedTask> tasks) {
+        return new DelayedExecutionLog(file, false, compactionThreshold, () -> tasks, 10_000, 100, 10);
+    }
+
+    private static List<Long> getIds(List<DelayedTask> tasks) {
+        return tasks.stream()
+                .map(DelayedTask::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,88 @@
+package com.ail.optile.jobservice.delay;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class TimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    public void testTasksExpireAtTheirTick() {
+        TimingWheel wheel = new TimingWheel(10, 4, 3, START);
+        wheel.add(new DelayedTask(1, "job", START + 25));
+        wheel.add(new DelayedTask(2, "job", START + 5));
+        wheel.add(new DelayedTask(3, "job", START - 100));
+        assertThat(wheel.size(), is(3));
+
+        assertThat(advance(wheel, START), contains(3L));
+        assertThat(advance(wheel, START + 9), is(empty()));
+        assertThat(advance(wheel, START + 10), contains(2L));
+        // never fired early
+        assertThat(advance(wheel, START + 29), is(empty()));
+        assertThat(advance(wheel, START + 30), contains(1L));
+        assertThat(wheel.size(), is(0));
+    }
+
+    @Test
+    public void testTasksCascadeFromUpperLevels() {
+        // 16 ticks of 10ms per bucket of the first level, 160ms and 2.56s of the upper levels
+        TimingWheel wheel = new TimingWheel(10, 4, 3, START);
+        long[] delays = {150, 170, 1_000, 2_555, 3_000, TimeUnit.HOURS.toMillis(1)};
+        for (int i = 0; i < delays.length; i++) {
+            wheel.add(new DelayedTask(i, "job", START + delays[i]));
+        }
+
+        List<Long> expired = new ArrayList<>();
+        for (long now = START; now <= START + TimeUnit.HOURS.toMillis(1); now += 10) {
+            for (long id : advance(wheel, now)) {
+                expired.add(id);
+                long delay = delays[(int) id];
+                assertThat("task " + id + " expired at " + (now - START), now - START >= delay, is(true));
+                assertThat("task " + id + " expired at " + (now - START), now - START < delay + 10, is(true));
+            }
+        }
+        assertThat(expired, contains(0L, 1L, 2L, 3L, 4L, 5L));
+    }
+
+    @Test
+    public void testRemovedTaskIsNotExpired() {
+        TimingWheel wheel = new TimingWheel(10, 4, 3, START);
+        DelayedTask removed = new DelayedTask(1, "job", START + 500);
+        wheel.add(removed);
+        wheel.add(new DelayedTask(2, "job", START + 500));
+        wheel.add(new DelayedTask(3, "job", START + 500));
+
+        wheel.remove(removed);
+        // removing twice is harmless
+        wheel.remove(removed);
+        assertThat(wheel.size(), is(2));
+
+        assertThat(advance(wheel, START + 1000), contains(2L, 3L));
+    }
+
+    @Test
+    public void testIdleWheelSkipsTicks() {
+        TimingWheel wheel = new TimingWheel(10, 4, 3, START);
+        advance(wheel, START + TimeUnit.DAYS.toMillis(1));
+
+        long now = START + TimeUnit.DAYS.toMillis(1) + 5;
+        wheel.add(new DelayedTask(1, "job", now + 200));
+        assertThat(advance(wheel, now + 190), is(empty()));
+        assertThat(advance(wheel, now + 205), contains(1L));
+    }
+
+    private static List<Long> advance(TimingWheel wheel, long now) {
+        List<Long> expired = new ArrayList<>();
+        wheel.advance(now, task -> expired.add(task.getId()));
+        return expired;
+    }
+}
@@ -0,0 +1,147 @@
+package com.ail.optile.jobservice.events;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class JobEventBrokerTest {
+
+    private JobEventBroker broker;
+
+    @Before
+    public void init() {
+        broker = new JobEventBroker(1000, 10, 10, 8, 2);
+        broker.start();
+    }
+
+    @After
+    public void shutdown() {
+        broker.shutdown();
+    }
+
+    @Test
+    public void testEventsAreFiltered() throws Exception {
+        RecordingSink allEvents = new RecordingSink();
+        RecordingSink completions = new RecordingSink();
+        broker.subscribe(Collections.emptySet(), Collections.emptySet(), allEvents);
+        JobEventBroker.Subscription subscription = broker.subscribe(
+                ImmutableSet.of("job1"),
+                ImmutableSet.of(JobEvent.Type.SUCCEEDED, JobEvent.Type.FAILED),
+                completions);
+
+        broker.publish(JobEvent.Type.STARTED, "job1");
+        broker.publish(JobEvent.Type.SUCCEEDED, "job2");
+        broker.publish(JobEvent.Type.FAILED, "job1");
+
+        Thread.sleep(200);
+
+        assertThat(allEvents.types(), contains(JobEvent.Type.STARTED, JobEvent.Type.SUCCEEDED, JobEvent.Type.FAILED));
+        assertThat(completions.types(), contains(JobEvent.Type.FAILED));
+        assertThat(completions.events.get(0).getJobName(), is("job1"));
+
+        subscription.cancel();
+        assertThat(broker.getSubscriptionCount(), is(1));
+
+        broker.publish(JobEvent.Type.SUCCEEDED, "job1");
+        Thread.sleep(200);
+        assertThat(completions.events, hasSize(1));
+        assertThat(completions.closed.getCount(), is(1L)); // cancelled by the subscriber itself
+    }
+
+    @Test
+    public void testSlowSubscriberOverflows() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        RecordingSink slowSink = new RecordingSink() {
+            @Override
+            public void send(JobEvent event) throws IOException {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.send(event);
+            }
+        };
+        RecordingSink fastSink = new RecordingSink();
+        broker.subscribe(Collections.emptySet(), Collections.emptySet(), slowSink);
+        broker.subscribe(Collections.emptySet(), Collections.emptySet(), fastSink);
+
+        for (int i = 0; i < 16; i++) {
+            broker.publish(JobEvent.Type.FIRED, "job" + i);
+            if (i == 7) {
+                Thread.sleep(200);
+            }
+        }
+        Thread.sleep(200);
+        blocked.countDown();
+
+        assertThat(slowSink.closed.await(1, TimeUnit.SECONDS), is(true));
+        assertThat(slowSink.overflowed, is(true));
+        assertThat(slowSink.events.size(), lessThan(16));
+        assertThat(fastSink.events, hasSize(16));
+        assertThat(fastSink.overflowed, is(false));
+        assertThat(broker.getSubscriptionCount(), is(1));
+    }
+
+    @Test(timeout = 10_000)
+    public void testPublisherIsNotBlockedByFullQueue() throws Exception {
+        JobEventBroker smallBroker = new JobEventBroker(1, 100, 100, 8, 1);
+        smallBroker.start();
+        try {
+            RecordingSink sink = new RecordingSink();
+            smallBroker.subscribe(Collections.emptySet(), Collections.emptySet(), sink);
+            for (int i = 0; i < 1000; i++) {
+                smallBroker.publish(JobEvent.Type.FIRED, "job1");
+            }
+            assertThat(smallBroker.getDroppedCount(), greaterThan(0L));
+
+            // the subscriber has missed events, so it's told to reconnect
+            assertThat(sink.closed.await(5, TimeUnit.SECONDS), is(true));
+            assertThat(sink.overflowed, is(true));
+            assertThat(sink.events.size(), lessThan(1000));
+            assertThat(smallBroker.getSubscriptionCount(), is(0));
+        } finally {
+            smallBroker.shutdown();
+        }
+    }
+
+    private static class RecordingSink implements JobEventSink {
+
+        private final List<JobEvent> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private volatile boolean overflowed;
+
+        @Override
+        public void send(JobEvent event) throws IOException {
+            events.add(event);
+        }
+
+        @Override
+        public void overflow() {
+            overflowed = true;
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+
+        private List<JobEvent.Type> types() {
+            return events.stream()
+                    .map(JobEvent::getType)
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -1,14 +1,38 @@
 package com.ail.optile.jobservice.it;
 
+import com.ail.optile.jobservice.api.JobInfo;
 import com.ail.optile.jobservice.api.JobRequest;
 import com.ail.optile.jobservice.api.JobService;
+import com.ail.optile.jobservice.api.exception.DelayedExecutionIsNotFoundException;
+import com.ail.optile.jobservice.api.exception.IncorrectJobRequestException;
 import com.ail.optile.jobservice.api.exception.JobIsCurrentlyRunningException;
 import com.ail.optile.jobservice.api.exception.JobIsNotFoundException;
+import com.ail.optile.jobservice.api.exception.JobServiceException;
+import com.ail.optile.jobservice.domain.BulkJobResult;
+import com.ail.optile.jobservice.domain.DelayedExecution;
 import com.ail.optile.jobservice.domain.JavaJobInfo;
 import com.ail.optile.jobservice.domain.JavaJobRequest;
+import com.ail.optile.jobservice.domain.JobFilter;
+import com.ail.optile.jobservice.domain.JobPage;
+import com.ail.optile.jobservice.domain.JobVersion;
 import com.ail.optile.jobservice.domain.NativeJobInfo;
+import com.ail.optile.jobservice.domain.NativeJobRequest;
 import com.ail.optile.jobservice.domain.exception.ExecutionException;
 import com.ail.optile.jobservice.domain.exception.RollbackException;
+import com.ail.optile.jobservice.events.JobEvent;
+import com.ail.optile.jobservice.events.JobEventBroker;
+import com.ail.optile.jobservice.events.JobEventSink;
+import com.ail.optile.jobservice.journal.JobChangeJournal;
+import com.ail.optile.jobservice.metrics.JobMetrics;
+import com.ail.optile.jobservice.pdo.JobChange;
+import com.ail.optile.jobservice.pdo.JobExecutionHistory;
+import com.ail.optile.jobservice.registry.JobDefinition;
+import com.ail.optile.jobservice.registry.JobDefinitionRegistry;
+import com.ail.optile.jobservice.repository.JobExecutionHistoryRepository;
+import com.ail.optile.jobservice.state.JobRunState;
+import com.ail.optile.jobservice.state.JobStateIndex;
+import com.google.common.collect.ImmutableList;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Builder;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,14 +40,31 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.utils.Key;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static junit.framework.TestCase.fail;
 import static org.hamcrest.MatcherAssert.assertThat;
-import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.*;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
@@ -34,6 +75,33 @@ public class JavaJobIntegrationTest {
     @Autowired
     private JobService jobService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JobEventBroker jobEventBroker;
+
+    @Autowired
+    private JobChangeJournal jobChangeJournal;
+
+    @Autowired
+    private Scheduler scheduler;
+
+    @Autowired
+    private JobDefinitionRegistry jobDefinitionRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JobExecutionHistoryRepository historyRepository;
+
+    @Autowired
+    private JobStateIndex jobStateIndex;
+
     // TODO more tests
 
     @Before
@@ -65,6 +133,9 @@ public class JavaJobIntegrationTest {
         assertThat(jobInfo.getPriority(), is(5)); // default priority
         assertThat(jobInfo.getState(), is(NativeJobInfo.State.QUEUED)); // job was not run yet
 
+        // the application context is shared with other tests
+        long executionCount = getExecutionCount(jobName);
+
         jobService.execute(jobName);
 
         Thread.sleep(500);
@@ -72,9 +143,509 @@ public class JavaJobIntegrationTest {
         jobInfo = (JavaJobInfo) jobService.getJobInfo(jobName);
         assertThat(jobInfo.getState(), is(NativeJobInfo.State.FAILED));
 
+        assertThat(getExecutionCount(jobName), is(executionCount + 1));
+        assertThat(meterRegistry.get(JobMetrics.TRIGGER_LAG).tag("trigger", "manual").timer().count(),
+                greaterThanOrEqualTo(1L));
+        assertThat(meterRegistry.get("job.workers.size").gauge().value(), is(1.0));
+
+        Thread.sleep(500);
+
+        // histograms aren't published per job
+        assertThat(meterRegistry.find(JobMetrics.EXECUTION_DURATION).tagKeys("job").meters(), is(empty()));
+
+        jobService.delete(jobName);
+    }
+
+    @Test
+    public void testAllJobs() throws Exception {
+        jobService.create(JavaJobRequestImpl.builder()
+                .name("all1")
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .build());
+        jobService.create(JavaJobRequestImpl.builder()
+                .name("all2")
+                .cron("0 0 0 1 FEB ? 2099-2099")
+                .priority(7)
+                .build());
+
+        jobService.execute("all2");
+        Thread.sleep(500);
+
+        // the snapshot of all jobs agrees with the info of each job
+        List<JobInfo> jobs = jobService.getAllJobs().stream()
+                .filter(job -> job.getName().startsWith("all"))
+                .sorted(Comparator.comparing(JobInfo::getName))
+                .collect(Collectors.toList());
+        assertThat(getNames(jobs), contains("all1", "all2"));
+        for (JobInfo job : jobs) {
+            JobInfo jobInfo = jobService.getJobInfo(job.getName());
+            assertThat(job.getCron(), is(jobInfo.getCron()));
+            assertThat(job.getPriority(), is(jobInfo.getPriority()));
+            assertThat(job.getState(), is(jobInfo.getState()));
+        }
+        assertThat(jobs.get(0).getState(), is(JobInfo.State.QUEUED));
+        assertThat(jobs.get(1).getState(), is(JobInfo.State.FAILED));
+        assertThat(jobs.get(1).getPriority(), is(7));
+
+        jobService.delete("all1");
+        jobService.delete("all2");
+    }
+
+    @Test
+    public void testJobEvents() throws Exception {
+        final String jobName = "watchedJob";
+        jobService.create(JavaJobRequestImpl.builder()
+                .name(jobName)
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .build());
+
+        BlockingQueue<JobEvent> events = new LinkedBlockingQueue<>();
+        JobEventBroker.Subscription subscription = jobEventBroker.subscribe(
+                Collections.singleton(jobName), Collections.emptySet(), new JobEventSink() {
+                    @Override
+                    public void send(JobEvent event) {
+                        events.add(event);
+                    }
+
+                    @Override
+                    public void overflow() {
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                });
+
+        jobService.execute(jobName);
+
+        // no polling of the job info, the events are awaited
+        assertThat(events.poll(5, TimeUnit.SECONDS).getType(), is(JobEvent.Type.FIRED));
+        assertThat(events.poll(5, TimeUnit.SECONDS).getType(), is(JobEvent.Type.STARTED));
+        assertThat(events.poll(5, TimeUnit.SECONDS).getType(), is(JobEvent.Type.FAILED));
+        assertThat(jobService.getJobInfo(jobName).getState(), is(JobInfo.State.FAILED));
+
+        subscription.cancel();
+    }
+
+    @Test
+    public void testJobVersion() throws Exception {
+        final String jobName = "versionedJob";
+        jobService.create(JavaJobRequestImpl.builder()
+                .name(jobName)
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .build());
+
+        JobVersion created = jobService.getJobVersion(jobName);
+        assertThat(jobService.getJobVersion(jobName).getTag(), is(created.getTag()));
+        assertThat(jobService.getJobsVersion().getVersion(), greaterThanOrEqualTo(created.getVersion()));
+
+        jobService.execute(jobName);
+        Thread.sleep(500);
+
+        // started and completed
+        JobVersion executed = jobService.getJobVersion(jobName);
+        assertThat(executed.getVersion(), greaterThan(created.getVersion()));
+        assertThat(executed.getEpoch(), is(created.getEpoch()));
+
+        // reading the job doesn't change any version
+        long jobsVersion = jobService.getJobsVersion().getVersion();
+        jobService.getJobInfo(jobName);
+        assertThat(jobService.getJobsVersion().getVersion(), is(jobsVersion));
+        assertThat(jobService.getJobVersion(jobName).getVersion(), is(executed.getVersion()));
+
+        // the new version is visible together with the new definition
+        jobService.update(JavaJobRequestImpl.builder()
+                .name(jobName)
+                .cron("0 0 0 2 JAN ? 2099-2099")
+                .build());
+        JobVersion updated = jobService.getJobVersion(jobName);
+        assertThat(updated.getVersion(), greaterThan(executed.getVersion()));
+        assertThat(jobService.getJobInfo(jobName).getCron(), is("0 0 0 2 JAN ? 2099-2099"));
+
+        jobsVersion = jobService.getJobsVersion().getVersion();
+        jobService.delete(jobName);
+        assertThat(jobService.getJobVersion(jobName), is(nullValue()));
+        assertThat(jobService.getJobsVersion().getVersion(), greaterThan(jobsVersion));
+    }
+
+    @Test
+    public void testUpdateInPlace() throws Exception {
+        final String jobName = "updatedJob";
+        long since = getLastChange();
+        JobRequest jobRequest = JavaJobRequestImpl.builder()
+                .name(jobName)
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .build();
+        jobService.create(jobRequest);
+
+        JobKey jobKey = JobKey.jobKey(jobName, Key.DEFAULT_GROUP);
+        TriggerKey triggerKey = scheduler.getTriggersOfJob(jobKey).get(0).getKey();
+        JobVersion created = jobService.getJobVersion(jobName);
+
+        // nothing to update
+        jobService.update(jobRequest);
+        assertThat(getStatuses(jobService.updateAll(ImmutableList.of(jobRequest))),
+                contains(BulkJobResult.Status.UNCHANGED));
+        assertThat(jobService.getJobVersion(jobName).getTag(), is(created.getTag()));
+
+        jobService.update(JavaJobRequestImpl.builder()
+                .name(jobName)
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .priority(7)
+                .build());
+        List<? extends Trigger> triggers = scheduler.getTriggersOfJob(jobKey);
+        assertThat(triggers.size(), is(1));
+        assertThat(triggers.get(0).getKey(), is(triggerKey));
+        assertThat(triggers.get(0).getPriority(), is(7));
+        assertThat(jobService.getJobVersion(jobName).getVersion(), greaterThan(created.getVersion()));
+
+        Thread.sleep(500);
+        assertThat(jobChangeJournal.getChanges(since, 100).stream()
+                .filter(change -> change.getJobName().equals(jobName))
+                .map(JobChange::getType)
+                .collect(Collectors.toList()), contains(JobChange.Type.CREATED, JobChange.Type.UPDATED));
+    }
+
+    @Test
+    public void testJobDefinitionRegistry() throws Exception {
+        jobService.create(JavaJobRequestImpl.builder()
+                .name("registered1")
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .build());
+        jobService.createAll(ImmutableList.of(JavaJobRequestImpl.builder()
+                .name("registered2")
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .priority(3)
+                .build()));
+        assertThat(jobDefinitionRegistry.find("registered2").getCron(), is("0 0 0 1 JAN ? 2099-2099"));
+        assertThat(jobDefinitionRegistry.find("registered2").getPriority(), is(3));
+
+        jobService.update(JavaJobRequestImpl.builder()
+                .name("registered1")
+                .cron("0 0 0 1 FEB ? 2099-2099")
+                .build());
+        JobDefinition jobDefinition = jobDefinitionRegistry.find("registered1");
+        assertThat(jobDefinition.getCron(), is("0 0 0 1 FEB ? 2099-2099"));
+        assertThat(jobDefinition.getJobClass(), is(equalTo(JavaJobRequestImpl.class)));
+
+        // rolled back changes don't reach the registry
+        transactionTemplate.execute(status -> {
+            try {
+                scheduler.deleteJob(JobKey.jobKey("registered1", Key.DEFAULT_GROUP));
+            } catch (SchedulerException e) {
+                throw new IllegalStateException(e);
+            }
+            status.setRollbackOnly();
+            return null;
+        });
+        assertThat(jobDefinitionRegistry.contains("registered1"), is(true));
+        assertThat(scheduler.checkExists(JobKey.jobKey("registered1", Key.DEFAULT_GROUP)), is(true));
+
+        // the bulk load at startup reads the same definitions as the reloads
+        jobService.create(NativeJobRequest.builder()
+                .name("registered3")
+                .argv(ImmutableList.of("echo", "hello"))
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .build());
+        JobDefinitionRegistry warmedUp = new JobDefinitionRegistry(
+                scheduler, new JobStateIndex(historyRepository), jdbcTemplate, "QRTZ_");
+        warmedUp.warmUp();
+        for (String jobName : ImmutableList.of("registered1", "registered2", "registered3")) {
+            JobDefinition reloaded = jobDefinitionRegistry.find(jobName);
+            JobDefinition loaded = warmedUp.find(jobName);
+            assertThat(loaded.getJobClass(), is(equalTo(reloaded.getJobClass())));
+            assertThat(loaded.getCommand(), is(reloaded.getCommand()));
+            assertThat(loaded.getArgv(), is(reloaded.getArgv()));
+            assertThat(loaded.getCron(), is(reloaded.getCron()));
+            assertThat(loaded.getPriority(), is(reloaded.getPriority()));
+            assertThat(loaded.getTriggerKey(), is(reloaded.getTriggerKey()));
+            assertThat(warmedUp.findJobName(loaded.getTriggerKey()), is(jobName));
+        }
+        assertThat(warmedUp.find("registered3").getArgv(), contains("echo", "hello"));
+
+        jobService.delete("registered1");
+        jobService.delete("registered3");
+        assertThat(jobDefinitionRegistry.contains("registered1"), is(false));
+
+        // the bulk reload removes the deleted jobs and keeps the others
+        TriggerKey deletedTriggerKey = warmedUp.find("registered1").getTriggerKey();
+        warmedUp.reloadAll(ImmutableList.of("registered1", "registered2", "registered3"));
+        assertThat(warmedUp.contains("registered1"), is(false));
+        assertThat(warmedUp.contains("registered3"), is(false));
+        assertThat(warmedUp.findJobName(deletedTriggerKey), is(nullValue()));
+        assertThat(warmedUp.find("registered2").getPriority(), is(3));
+        assertThat(warmedUp.getJobNames().contains("registered3"), is(false));
+    }
+
+    @Test
+    public void testChangeJournal() throws Exception {
+        final String jobName = "journaledJob";
+        long since = getLastChange();
+
+        jobService.create(JavaJobRequestImpl.builder()
+                .name(jobName)
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .build());
+        jobService.update(JavaJobRequestImpl.builder()
+                .name(jobName)
+                .cron("0 0 0 1 FEB ? 2099-2099")
+                .priority(7)
+                .build());
+        jobService.execute(jobName);
+        Thread.sleep(500);
+        jobService.delete(jobName);
+        Thread.sleep(500);
+
+        List<JobChange> changes = jobChangeJournal.getChanges(since, 100).stream()
+                .filter(change -> change.getJobName().equals(jobName))
+                .collect(Collectors.toList());
+        assertThat(changes.stream().map(JobChange::getType).collect(Collectors.toList()), contains(
+                JobChange.Type.CREATED, JobChange.Type.UPDATED, JobChange.Type.EXECUTED, JobChange.Type.DELETED));
+        assertThat(changes.get(1).getCron(), is("0 0 0 1 FEB ? 2099-2099"));
+        assertThat(changes.get(1).getPriority(), is(7));
+        assertThat(changes.get(2).getResult(), is(JobExecutionHistory.Result.FAILED));
+        assertThat(changes.get(0).getId(), lessThan(changes.get(3).getId()));
+
+        // nothing after the last change
+        assertThat(jobChangeJournal.getChanges(getLastChange(), 100), is(empty()));
+        assertThat(jobChangeJournal.getHead(), is(getLastChange()));
+        assertThat(jobChangeJournal.isContinuousSince(jobChangeJournal.getHead()), is(true));
+    }
+
+    @Test
+    public void testJobListing() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            jobService.create(JavaJobRequestImpl.builder()
+                    .name("listed" + i)
+                    .cron("0 0 0 1 JAN ? 2099-2099")
+                    .priority(i % 2 == 0 ? 10 : 5)
+                    .build());
+        }
+        JobFilter filter = JobFilter.builder()
+                .namePrefix("listed")
+                .build();
+
+        JobPage page = jobService.getJobs(filter, null, 2);
+        assertThat(getNames(page.getJobs()), contains("listed1", "listed2"));
+        assertThat(page.getNext(), is("listed2"));
+
+        page = jobService.getJobs(filter, page.getNext(), 2);
+        assertThat(getNames(page.getJobs()), contains("listed3", "listed4"));
+
+        page = jobService.getJobs(filter, page.getNext(), 2);
+        assertThat(getNames(page.getJobs()), contains("listed5"));
+        assertThat(page.getNext(), is(nullValue()));
+
+        // the prefix bounds the names, wherever the previous page has ended
+        jobService.create(JavaJobRequestImpl.builder()
+                .name("listee")
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .build());
+        assertThat(getNames(jobService.getJobs(filter, "a", 10).getJobs()),
+                contains("listed1", "listed2", "listed3", "listed4", "listed5"));
+        assertThat(jobService.getJobs(filter, "listed5", 10).getJobs(), is(empty()));
+        assertThat(jobService.getJobs(filter, "z", 10).getJobs(), is(empty()));
+        assertThat(getNames(jobService.getJobs(JobFilter.builder().build(), "listed5", 10).getJobs()),
+                contains("listee"));
+
+        filter.setPriority(10);
+        filter.setState(JobInfo.State.QUEUED);
+        try (Stream<JobInfo> jobs = jobService.streamJobs(filter)) {
+            assertThat(getNames(jobs.collect(Collectors.toList())), contains("listed2", "listed4"));
+        }
+
+        filter.setState(JobInfo.State.RUNNING);
+        assertThat(jobService.getJobs(filter, null, 10).getJobs(), is(empty()));
+    }
+
+    @Test
+    public void testBulkJobs() throws Exception {
+        jobService.create(JavaJobRequestImpl.builder()
+                .name("bulk1")
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .build());
+
+        List<BulkJobResult> results = jobService.createAll(ImmutableList.of(
+                JavaJobRequestImpl.builder().name("bulk1").cron("0 0 0 1 JAN ? 2099-2099").build(),
+                JavaJobRequestImpl.builder().name("bulk2").cron("0 0 0 1 JAN ? 2099-2099").build(),
+                JavaJobRequestImpl.builder().name("bulk3").cron("incorrect").build(),
+                JavaJobRequestImpl.builder().name("bulk4").cron("0 0 0 1 JAN ? 2099-2099").build(),
+                JavaJobRequestImpl.builder().name("bulk4").cron("0 0 0 1 JAN ? 2099-2099").build()));
+        assertThat(getStatuses(results), contains(
+                BulkJobResult.Status.ALREADY_EXISTS,
+                BulkJobResult.Status.DONE,
+                BulkJobResult.Status.INCORRECT_REQUEST,
+                BulkJobResult.Status.DONE,
+                BulkJobResult.Status.INCORRECT_REQUEST));
+        JobFilter filter = JobFilter.builder()
+                .namePrefix("bulk")
+                .build();
+        assertThat(getNames(jobService.getJobs(filter, null, 10).getJobs()), contains("bulk1", "bulk2", "bulk4"));
+
+        results = jobService.updateAll(ImmutableList.of(
+                JavaJobRequestImpl.builder().name("bulk2").cron("0 0 0 1 FEB ? 2099-2099").priority(7).build(),
+                JavaJobRequestImpl.builder().name("bulk3").cron("0 0 0 1 FEB ? 2099-2099").build()));
+        assertThat(getStatuses(results), contains(BulkJobResult.Status.DONE, BulkJobResult.Status.NOT_FOUND));
+        JobInfo jobInfo = jobService.getJobInfo("bulk2");
+        assertThat(jobInfo.getCron(), is("0 0 0 1 FEB ? 2099-2099"));
+        assertThat(jobInfo.getPriority(), is(7));
+
+        results = jobService.deleteAll(ImmutableList.of("bulk1", "bulk3", "bulk4"));
+        assertThat(getStatuses(results), contains(
+                BulkJobResult.Status.DONE,
+                BulkJobResult.Status.NOT_FOUND,
+                BulkJobResult.Status.DONE));
+        assertThat(getNames(jobService.getJobs(filter, null, 10).getJobs()), contains("bulk2"));
+
+        results = jobService.executeAll(ImmutableList.of("bulk1"));
+        assertThat(getStatuses(results), contains(BulkJobResult.Status.NOT_FOUND));
+    }
+
+    @Test
+    public void testBulkJobsCreatedConcurrently() throws Exception {
+        List<BulkJobResult> results = transactionTemplate.execute(status -> {
+            try {
+                // the registry learns about the job after the commit, like about a job created by another instance
+                jobService.create(JavaJobRequestImpl.builder()
+                        .name("concurrent2")
+                        .cron("0 0 0 1 JAN ? 2099-2099")
+                        .build());
+            } catch (JobServiceException e) {
+                throw new IllegalStateException(e);
+            }
+            return jobService.createAll(ImmutableList.of(
+                    JavaJobRequestImpl.builder().name("concurrent1").cron("0 0 0 1 JAN ? 2099-2099").build(),
+                    JavaJobRequestImpl.builder().name("concurrent2").cron("0 0 0 1 FEB ? 2099-2099").build(),
+                    JavaJobRequestImpl.builder().name("concurrent3").cron("0 0 0 1 JAN ? 2099-2099").build()));
+        });
+        assertThat(getStatuses(results), contains(
+                BulkJobResult.Status.DONE,
+                BulkJobResult.Status.ALREADY_EXISTS,
+                BulkJobResult.Status.DONE));
+
+        JobFilter filter = JobFilter.builder()
+                .namePrefix("concurrent")
+                .build();
+        assertThat(getNames(jobService.getJobs(filter, null, 10).getJobs()),
+                contains("concurrent1", "concurrent2", "concurrent3"));
+        assertThat(jobService.getJobInfo("concurrent2").getCron(), is("0 0 0 1 JAN ? 2099-2099"));
+    }
+
+    @Test
+    public void testDelayedExecution() throws Exception {
+        final String jobName = "delayedJob";
+
+        jobService.create(JavaJobRequestImpl.builder()
+                .name(jobName)
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .build());
+        long executionCount = getExecutionCount(jobName);
+
+        DelayedExecution execution = jobService.executeLater(jobName, 300);
+        assertThat(execution.getJobName(), is(jobName));
+        DelayedExecution cancelled = jobService.executeLater(jobName, 60_000);
+        assertThat(cancelled.getId(), greaterThan(execution.getId()));
+        jobService.cancelDelayedExecution(cancelled.getId());
+
+        Thread.sleep(100);
+        assertThat(getExecutionCount(jobName), is(executionCount));
+
+        Thread.sleep(900);
+        assertThat(getExecutionCount(jobName), is(executionCount + 1));
+
+        try {
+            jobService.cancelDelayedExecution(execution.getId());
+            fail("Fired execution should not be cancelled");
+        } catch (DelayedExecutionIsNotFoundException e) {
+            // expected
+        }
+        try {
+            jobService.cancelDelayedExecution(cancelled.getId());
+            fail("Cancelled execution should not be cancelled again");
+        } catch (DelayedExecutionIsNotFoundException e) {
+            // expected
+        }
+        try {
+            jobService.executeLater("unknownJob", 100);
+            fail("Unknown job should not be executed");
+        } catch (JobIsNotFoundException e) {
+            // expected
+        }
+        try {
+            jobService.executeLater(jobName, Long.MAX_VALUE);
+            fail("Overflowing delay should be rejected");
+        } catch (IncorrectJobRequestException e) {
+            // expected
+        }
+
+        // a job created again with the same name isn't fired by the executions of the deleted one
+        DelayedExecution deleted = jobService.executeLater(jobName, 300);
+        jobService.delete(jobName);
+        jobService.create(JavaJobRequestImpl.builder()
+                .name(jobName)
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .build());
+        executionCount = getExecutionCount(jobName);
+        try {
+            jobService.cancelDelayedExecution(deleted.getId());
+            fail("Execution of the deleted job should be cancelled");
+        } catch (DelayedExecutionIsNotFoundException e) {
+            // expected
+        }
+
+        Thread.sleep(600);
+        assertThat(getExecutionCount(jobName), is(executionCount));
+
+        jobService.delete(jobName);
+    }
+
+    @Test
+    public void testJobIsIdleAfterInstantiationFailure() throws Exception {
+        final String jobName = "brokenJob";
+
+        jobService.create(BrokenJavaJobRequest.builder()
+                .name(jobName)
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .build());
+
+        jobService.execute(jobName);
         Thread.sleep(500);
 
+        // not left firing by the failed execution
+        assertThat(jobStateIndex.getRunState(jobName), is(JobRunState.IDLE));
+        assertThat(jobService.getJobInfo(jobName).getState(), is(not(JobInfo.State.RUNNING)));
+        jobService.execute(jobName);
+        Thread.sleep(500);
+        assertThat(jobStateIndex.getRunState(jobName), is(JobRunState.IDLE));
+
         jobService.delete(jobName);
+        assertThat(jobStateIndex.findVersion(jobName), is(nullValue()));
+    }
+
+    private static List<BulkJobResult.Status> getStatuses(List<BulkJobResult> results) {
+        return results.stream()
+                .map(BulkJobResult::getStatus)
+                .collect(Collectors.toList());
+    }
+
+    private long getLastChange() {
+        long last = 0;
+        List<JobChange> changes;
+        while (!(changes = jobChangeJournal.getChanges(last, 100)).isEmpty()) {
+            last = changes.get(changes.size() - 1).getId();
+        }
+        return last;
+    }
+
+    private static List<String> getNames(List<JobInfo> jobs) {
+        return jobs.stream()
+                .map(JobInfo::getName)
+                .collect(Collectors.toList());
+    }
+
+    private long getExecutionCount(String jobName) throws JobIsNotFoundException {
+        // executions in the last hour
+        return jobService.getJobStatistics(jobName).getWindows().get(0).getExecutions();
     }
 
     @NoArgsConstructor
@@ -99,5 +670,27 @@ public class JavaJobIntegrationTest {
             System.out.println("!!!TEST ROLLBACK!!!");
         }
     }
-}
 
+    public static final class BrokenJavaJobRequest extends JavaJobRequest {
+
+        public BrokenJavaJobRequest() {
+            throw new IllegalStateException("Job can't be instantiated");
+        }
+
+        @Builder
+        public BrokenJavaJobRequest(
+                String name,
+                String cron,
+                Integer priority) {
+            super(name, cron, priority);
+        }
+
+        @Override
+        public void executeJob(JobExecutionContext jobExecutionContext) {
+        }
+
+        @Override
+        public void rollbackJob(JobExecutionContext jobExecutionContext) {
+        }
+    }
+}
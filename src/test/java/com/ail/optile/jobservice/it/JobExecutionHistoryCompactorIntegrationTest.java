@@ -0,0 +1,183 @@
+package com.ail.optile.jobservice.it;
+
+import com.ail.optile.jobservice.api.JobInfo;
+import com.ail.optile.jobservice.domain.JobStatistics;
+import com.ail.optile.jobservice.domain.WindowStatistics;
+import com.ail.optile.jobservice.history.JobExecutionHistoryCompactor;
+import com.ail.optile.jobservice.pdo.JobExecutionHistory;
+import com.ail.optile.jobservice.pdo.JobExecutionRollup;
+import com.ail.optile.jobservice.repository.JobExecutionHistoryRepository;
+import com.ail.optile.jobservice.repository.JobExecutionRollupRepository;
+import com.ail.optile.jobservice.repository.JobTombstoneRepository;
+import com.ail.optile.jobservice.state.JobStateIndex;
+import com.ail.optile.jobservice.statistics.DurationSketch;
+import com.ail.optile.jobservice.statistics.JobStatisticsIndex;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@TestPropertySource("classpath:application_test.properties")
+public class JobExecutionHistoryCompactorIntegrationTest {
+
+    @Autowired
+    private JobExecutionHistoryRepository historyRepository;
+
+    @Autowired
+    private JobExecutionRollupRepository rollupRepository;
+
+    @Autowired
+    private JobTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private JobExecutionHistoryCompactor compactor;
+
+    @Test
+    public void testCompaction() {
+        final String jobName = "compactedJob";
+        long now = System.currentTimeMillis();
+
+        Date tenDaysAgo = new Date(now - TimeUnit.DAYS.toMillis(10));
+        Date fortyDaysAgo = new Date(now - TimeUnit.DAYS.toMillis(40));
+        Date twoYearsAgo = new Date(now - TimeUnit.DAYS.toMillis(730));
+
+        historyRepository.save(history(jobName, tenDaysAgo, 100, JobExecutionHistory.Result.SUCCESS));
+        historyRepository.save(history(jobName, tenDaysAgo, 200, JobExecutionHistory.Result.FAILED));
+        historyRepository.save(history(jobName, fortyDaysAgo, 300, JobExecutionHistory.Result.TIMED_OUT));
+        historyRepository.save(history(jobName, twoYearsAgo, 400, JobExecutionHistory.Result.SUCCESS));
+        historyRepository.save(history(jobName, new Date(now), 500, JobExecutionHistory.Result.SUCCESS));
+        // results of ad-hoc tasks are never rolled up, they are removed after a retention of their own
+        historyRepository.save(adHocResult(jobName, -2L, tenDaysAgo));
+        historyRepository.save(adHocResult(jobName, -3L, new Date(now - TimeUnit.HOURS.toMillis(2))));
+
+        compactor.compact();
+
+        // only the recent execution and the recent ad-hoc result are kept as is
+        JobExecutionHistory latest = historyRepository.findTopByJobNameOrderByCompletionDateDesc(jobName);
+        assertThat(latest.getDuration(), is(500L));
+        assertThat(countHistory(jobName), is(2L));
+        assertThat(historyRepository.findByTicketId(-2L).isPresent(), is(false));
+        assertThat(historyRepository.findByTicketId(-3L).isPresent(), is(true));
+
+        List<JobExecutionRollup> rollups = StreamSupport.stream(rollupRepository.findAll().spliterator(), false)
+                .filter(rollup -> rollup.getJobName().equals(jobName))
+                .collect(Collectors.toList());
+        assertThat(rollups.size(), is(2));
+
+        JobExecutionRollup hourly = rollupRepository.findByJobNameAndGranularityAndPeriodStart(
+                jobName,
+                JobExecutionRollup.Granularity.HOUR,
+                JobExecutionRollup.Granularity.HOUR.getPeriodStart(tenDaysAgo))
+                .orElseThrow(AssertionError::new);
+        assertThat(hourly.getSuccesses(), is(1L));
+        assertThat(hourly.getFailures(), is(1L));
+        assertThat(hourly.getTimeouts(), is(0L));
+        assertThat(hourly.getDurations().getCount(), is(2L));
+
+        JobExecutionRollup daily = rollupRepository.findByJobNameAndGranularityAndPeriodStart(
+                jobName,
+                JobExecutionRollup.Granularity.DAY,
+                JobExecutionRollup.Granularity.DAY.getPeriodStart(fortyDaysAgo))
+                .orElseThrow(AssertionError::new);
+        assertThat(daily.getSuccesses(), is(0L));
+        assertThat(daily.getTimeouts(), is(1L));
+        assertThat(daily.getDurations().getCount(), is(1L));
+
+        // another run has nothing to compact
+        compactor.compact();
+        assertThat(countHistory(jobName), is(2L));
+        assertThat(rollupRepository.findByJobNameAndGranularityAndPeriodStart(
+                jobName,
+                JobExecutionRollup.Granularity.HOUR,
+                JobExecutionRollup.Granularity.HOUR.getPeriodStart(tenDaysAgo))
+                .orElseThrow(AssertionError::new)
+                .getSuccesses(), is(1L));
+    }
+
+    @Test
+    public void testLatestExecutionIsKept() {
+        final String jobName = "expiredJob";
+        Date tenDaysAgo = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(10));
+        historyRepository.save(history(jobName, tenDaysAgo, 100, JobExecutionHistory.Result.FAILED));
+
+        compactor.compact();
+
+        // the only execution is older than the retention, but it's the last result of the job
+        assertThat(countHistory(jobName), is(1L));
+        assertThat(rollupRepository.findByJobNameAndGranularityAndPeriodStart(
+                jobName,
+                JobExecutionRollup.Granularity.HOUR,
+                JobExecutionRollup.Granularity.HOUR.getPeriodStart(tenDaysAgo)).isPresent(), is(false));
+
+        // after a restart
+        JobStateIndex index = new JobStateIndex(historyRepository);
+        index.warmUp();
+        assertThat(index.getState(jobName), is(JobInfo.State.FAILED));
+    }
+
+    @Test
+    public void testStatisticsWarmUpFromRollups() {
+        final String jobName = "rolledUpJob";
+        Date twoHoursAgo = new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2));
+
+        JobExecutionRollup rollup = new JobExecutionRollup(
+                jobName,
+                JobExecutionRollup.Granularity.HOUR,
+                JobExecutionRollup.Granularity.HOUR.getPeriodStart(twoHoursAgo));
+        JobExecutionHistory execution = history(jobName, twoHoursAgo, 1000, JobExecutionHistory.Result.SUCCESS);
+        DurationSketch durations = new DurationSketch();
+        durations.record(execution.getDuration());
+        rollup.merge(1, 2, 0, durations);
+        rollupRepository.save(rollup);
+
+        JobStatisticsIndex index = new JobStatisticsIndex(historyRepository, rollupRepository, tombstoneRepository);
+        index.warmUp();
+
+        JobStatistics statistics = index.getStatistics(jobName);
+        WindowStatistics lastHour = statistics.getWindows().get(0);
+        WindowStatistics lastDay = statistics.getWindows().get(1);
+        assertThat(lastHour.getExecutions(), is(0L));
+        assertThat(lastDay.getExecutions(), is(3L));
+        assertThat(lastDay.getSuccesses(), is(1L));
+        assertThat(lastDay.getFailures(), is(2L));
+    }
+
+    private long countHistory(String jobName) {
+        return StreamSupport.stream(historyRepository.findAll().spliterator(), false)
+                .filter(jobExecutionHistory -> jobExecutionHistory.getJobName().equals(jobName))
+                .count();
+    }
+
+    private static JobExecutionHistory history(
+            String jobName, Date completionDate, long duration, JobExecutionHistory.Result result) {
+        return JobExecutionHistory.builder()
+                .jobName(jobName)
+                .startDate(new Date(completionDate.getTime() - duration))
+                .completionDate(completionDate)
+                .result(result)
+                .build();
+    }
+
+    private static JobExecutionHistory adHocResult(String jobName, long ticketId, Date completionDate) {
+        return JobExecutionHistory.builder()
+                .jobName(jobName)
+                .ticketId(ticketId)
+                .startDate(new Date(completionDate.getTime() - 100))
+                .completionDate(completionDate)
+                .result(JobExecutionHistory.Result.SUCCESS)
+                .build();
+    }
+}
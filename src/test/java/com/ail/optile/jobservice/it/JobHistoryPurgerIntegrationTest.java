@@ -0,0 +1,166 @@
+package com.ail.optile.jobservice.it;
+
+import com.ail.optile.jobservice.api.JobInfo;
+import com.ail.optile.jobservice.api.JobService;
+import com.ail.optile.jobservice.history.JobHistoryPurger;
+import com.ail.optile.jobservice.it.JavaJobIntegrationTest.JavaJobRequestImpl;
+import com.ail.optile.jobservice.pdo.JobExecutionHistory;
+import com.ail.optile.jobservice.pdo.JobExecutionRollup;
+import com.ail.optile.jobservice.pdo.JobTombstone;
+import com.ail.optile.jobservice.repository.JobExecutionHistoryRepository;
+import com.ail.optile.jobservice.repository.JobExecutionRollupRepository;
+import com.ail.optile.jobservice.repository.JobTombstoneRepository;
+import com.ail.optile.jobservice.state.JobStateIndex;
+import com.ail.optile.jobservice.statistics.DurationSketch;
+import com.ail.optile.jobservice.statistics.JobStatisticsIndex;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@TestPropertySource("classpath:application_test.properties")
+public class JobHistoryPurgerIntegrationTest {
+
+    @Autowired
+    private JobExecutionHistoryRepository historyRepository;
+
+    @Autowired
+    private JobExecutionRollupRepository rollupRepository;
+
+    @Autowired
+    private JobTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private JobHistoryPurger purger;
+
+    @Autowired
+    private JobService jobService;
+
+    @Test
+    public void testPurge() {
+        final String jobName = "purgedJob";
+        long now = System.currentTimeMillis();
+        Date deletionDate = new Date(now - TimeUnit.HOURS.toMillis(1));
+
+        for (int i = 1; i <= 5; i++) {
+            historyRepository.save(history(jobName, new Date(deletionDate.getTime() - TimeUnit.MINUTES.toMillis(i))));
+        }
+        JobExecutionRollup rollup = new JobExecutionRollup(
+                jobName,
+                JobExecutionRollup.Granularity.DAY,
+                JobExecutionRollup.Granularity.DAY.getPeriodStart(new Date(now - TimeUnit.DAYS.toMillis(10))));
+        rollup.merge(1, 0, 0, new DurationSketch());
+        rollupRepository.save(rollup);
+        // the job isn't created again, so the period of the deletion is its own
+        JobExecutionRollup lastHour = rollup(jobName, JobExecutionRollup.Granularity.HOUR.getPeriodStart(deletionDate));
+        // the job was created again after it was deleted
+        historyRepository.save(history(jobName, new Date(now)));
+        // ad-hoc results have a retention of their own
+        historyRepository.save(JobExecutionHistory.builder()
+                .jobName(jobName)
+                .ticketId(-4L)
+                .startDate(new Date(deletionDate.getTime() - 100))
+                .completionDate(new Date(deletionDate.getTime() - 1))
+                .result(JobExecutionHistory.Result.SUCCESS)
+                .build());
+
+        tombstoneRepository.save(new JobTombstone(jobName, deletionDate));
+        purger.purge();
+
+        assertThat(countHistory(jobName), is(2L));
+        assertThat(historyRepository.findTopByJobNameOrderByCompletionDateDesc(jobName).getCompletionDate().getTime(),
+                is(now));
+        assertThat(historyRepository.findByTicketId(-4L).isPresent(), is(true));
+        assertThat(rollupRepository.findByJobNameAndGranularityAndPeriodStart(
+                jobName, rollup.getGranularity(), rollup.getPeriodStart()).isPresent(), is(false));
+        assertThat(rollupRepository.findById(lastHour.getId()).isPresent(), is(false));
+        assertThat(tombstoneRepository.count(), is(0L));
+    }
+
+    @Test
+    public void testPurgeOfJobCreatedAgain() throws Exception {
+        final String jobName = "recreatedJob";
+        jobService.create(JavaJobRequestImpl.builder()
+                .name(jobName)
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .build());
+
+        long hour = TimeUnit.HOURS.toMillis(1);
+        Date deletionDate = new Date(
+                JobExecutionRollup.Granularity.HOUR.getPeriodStart(new Date()).getTime() - 2 * hour + hour / 2);
+
+        JobExecutionRollup before = rollup(jobName,
+                JobExecutionRollup.Granularity.HOUR.getPeriodStart(new Date(deletionDate.getTime() - hour)));
+        JobExecutionRollup straddling = rollup(jobName,
+                JobExecutionRollup.Granularity.HOUR.getPeriodStart(deletionDate));
+        historyRepository.save(history(jobName, new Date(deletionDate.getTime() - 1)));
+        JobExecutionHistory recreated = historyRepository.save(history(jobName, new Date(deletionDate.getTime() + 1)));
+        tombstoneRepository.save(new JobTombstone(jobName, deletionDate));
+
+        // the warm-ups skip what is going to be purged
+        JobStateIndex stateIndex = new JobStateIndex(historyRepository);
+        stateIndex.warmUp();
+        assertThat(stateIndex.getState(jobName), is(JobInfo.State.SUCCESS));
+        JobStatisticsIndex statisticsIndex = new JobStatisticsIndex(
+                historyRepository, rollupRepository, tombstoneRepository);
+        statisticsIndex.warmUp();
+        // the recreated execution and the executions of the period of the deletion
+        assertThat(statisticsIndex.getStatistics(jobName).getWindows().get(1).getExecutions(), is(2L));
+
+        purger.purge();
+
+        assertThat(countHistory(jobName), is(1L));
+        assertThat(historyRepository.findById(recreated.getId()).isPresent(), is(true));
+        assertThat(rollupRepository.findById(before.getId()).isPresent(), is(false));
+        assertThat(rollupRepository.findById(straddling.getId()).isPresent(), is(true));
+        assertThat(tombstoneRepository.count(), is(0L));
+    }
+
+    @Test
+    public void testWarmUpSkipsDeletedJob() {
+        final String jobName = "tombstonedJob";
+        Date deletionDate = new Date();
+        historyRepository.save(history(jobName, new Date(deletionDate.getTime() - 1)));
+        tombstoneRepository.save(new JobTombstone(jobName, deletionDate));
+
+        JobStateIndex stateIndex = new JobStateIndex(historyRepository);
+        stateIndex.warmUp();
+        assertThat(stateIndex.getState(jobName), is(JobInfo.State.QUEUED));
+        JobStatisticsIndex statisticsIndex = new JobStatisticsIndex(
+                historyRepository, rollupRepository, tombstoneRepository);
+        statisticsIndex.warmUp();
+        assertThat(statisticsIndex.getStatistics(jobName).getWindows().get(1).getExecutions(), is(0L));
+    }
+
+    private JobExecutionRollup rollup(String jobName, Date periodStart) {
+        JobExecutionRollup rollup = new JobExecutionRollup(jobName, JobExecutionRollup.Granularity.HOUR, periodStart);
+        rollup.merge(1, 0, 0, new DurationSketch());
+        return rollupRepository.save(rollup);
+    }
+
+    private long countHistory(String jobName) {
+        return StreamSupport.stream(historyRepository.findAll().spliterator(), false)
+                .filter(jobExecutionHistory -> jobExecutionHistory.getJobName().equals(jobName))
+                .count();
+    }
+
+    private static JobExecutionHistory history(String jobName, Date completionDate) {
+        return JobExecutionHistory.builder()
+                .jobName(jobName)
+                .startDate(new Date(completionDate.getTime() - 100))
+                .completionDate(completionDate)
+                .result(JobExecutionHistory.Result.SUCCESS)
+                .build();
+    }
+}
@@ -6,8 +6,15 @@ import com.ail.optile.jobservice.api.exception.IncorrectJobRequestException;
 import com.ail.optile.jobservice.api.exception.JobAlreadyExistsException;
 import com.ail.optile.jobservice.api.exception.JobIsCurrentlyRunningException;
 import com.ail.optile.jobservice.api.exception.JobIsNotFoundException;
+import com.ail.optile.jobservice.api.exception.TaskResultIsNotFoundException;
 import com.ail.optile.jobservice.domain.NativeJobInfo;
 import com.ail.optile.jobservice.domain.NativeJobRequest;
+import com.ail.optile.jobservice.domain.TaskResult;
+import com.ail.optile.jobservice.domain.WindowStatistics;
+import com.ail.optile.jobservice.output.ExecutionOutput;
+import com.ail.optile.jobservice.output.ExecutionOutputStore;
+import com.ail.optile.jobservice.pdo.JobExecutionHistory;
+import com.ail.optile.jobservice.repository.JobExecutionHistoryRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -18,15 +25,28 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 import static com.ail.optile.jobservice.Utils.pingLocalhostCommand;
 import static junit.framework.TestCase.fail;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.isOneOf;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assume.assumeTrue;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
@@ -37,6 +57,12 @@ public class NativeJobIntegrationTest {
     @Autowired
     private JobService jobService;
 
+    @Autowired
+    private JobExecutionHistoryRepository historyRepository;
+
+    @Autowired
+    private ExecutionOutputStore outputStore;
+
     @Before
     public void init() {
         jobService.getAllJobs().forEach(job -> {
@@ -278,6 +304,316 @@ public class NativeJobIntegrationTest {
         assertThat(allJobs.size(), is(0));
     }
 
+    @Test
+    public void testReleaseWorker() throws Exception {
+        // test thread pool has a single worker thread, both jobs release it right after the launch
+        NativeJobRequest job1 = NativeJobRequest.builder()
+                .name("job1")
+                .command(pingLocalhostCommand(3))
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .releaseWorker(true)
+                .build();
+
+        NativeJobRequest job2 = NativeJobRequest.builder()
+                .name("job2")
+                .command(pingLocalhostCommand(3))
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .releaseWorker(true)
+                .build();
+
+        jobService.create(job1);
+        jobService.create(job2);
+        jobService.execute("job1");
+        jobService.execute("job2");
+
+        Thread.sleep(1000);
+
+        assertThat(jobService.getJobInfo("job1").getState(), is(NativeJobInfo.State.RUNNING));
+        assertThat(jobService.getJobInfo("job2").getState(), is(NativeJobInfo.State.RUNNING));
+
+        Thread.sleep(3000);
+
+        assertThat(jobService.getJobInfo("job1").getState(), is(NativeJobInfo.State.SUCCESS));
+        assertThat(jobService.getJobInfo("job2").getState(), is(NativeJobInfo.State.SUCCESS));
+
+        jobService.delete("job1");
+        jobService.delete("job2");
+    }
+
+    @Test
+    public void testExecutionOutputCapture() throws Exception {
+        NativeJobRequest jobRequest = NativeJobRequest.builder()
+                .name("job1")
+                .command("echo hello; echo oops 1>&2")
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .build();
+
+        jobService.create(jobRequest);
+        jobService.execute("job1");
+
+        Thread.sleep(1000);
+
+        JobExecutionHistory jobExecutionHistory = historyRepository.findTopByJobNameOrderByCompletionDateDesc("job1");
+        long executionId = jobExecutionHistory.getId();
+
+        assertThat(new String(Files.readAllBytes(outputStore.getOutputPath(executionId, ExecutionOutput.Stream.STDOUT)),
+                StandardCharsets.UTF_8), is("hello\n"));
+        assertThat(new String(Files.readAllBytes(outputStore.getOutputPath(executionId, ExecutionOutput.Stream.STDERR)),
+                StandardCharsets.UTF_8), is("oops\n"));
+
+        assertThat(jobExecutionHistory.getExitCode(), is(0));
+        assertThat(jobExecutionHistory.getStartDate(), is(notNullValue()));
+        assertThat(jobExecutionHistory.getDuration(),
+                is(jobExecutionHistory.getCompletionDate().getTime() - jobExecutionHistory.getStartDate().getTime()));
+        assertThat(jobExecutionHistory.getNode(), is(notNullValue()));
+        assertThat(jobExecutionHistory.getThread(), is(notNullValue()));
+
+        WindowStatistics lastHour = jobService.getJobStatistics("job1").getWindows().get(0);
+        assertThat(lastHour.getWindow(), is("1h"));
+        assertThat(lastHour.getExecutions(), is(1L));
+        assertThat(lastHour.getSuccessRate(), is(1.0));
+        assertThat(lastHour.getP50(), is(notNullValue()));
+
+        jobService.delete("job1");
+    }
+
+    @Test
+    public void testArgvExecution() throws Exception {
+        NativeJobRequest jobRequest = NativeJobRequest.builder()
+                .name("job1")
+                .argv(Arrays.asList("echo", "hello; not a shell"))
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .build();
+
+        jobService.create(jobRequest);
+
+        NativeJobInfo jobInfo = (NativeJobInfo) jobService.getJobInfo("job1");
+        assertThat(jobInfo.getArgv(), is(Arrays.asList("echo", "hello; not a shell")));
+
+        jobService.execute("job1");
+
+        Thread.sleep(1000);
+
+        assertThat(jobService.getJobInfo("job1").getState(), is(NativeJobInfo.State.SUCCESS));
+
+        JobExecutionHistory jobExecutionHistory = historyRepository.findTopByJobNameOrderByCompletionDateDesc("job1");
+        assertThat(new String(Files.readAllBytes(
+                outputStore.getOutputPath(jobExecutionHistory.getId(), ExecutionOutput.Stream.STDOUT)),
+                StandardCharsets.UTF_8), is("hello; not a shell\n"));
+
+        try {
+            jobService.create(NativeJobRequest.builder()
+                    .name("job2")
+                    .argv(Collections.emptyList())
+                    .cron("0 0 0 1 JAN ? 2099-2099")
+                    .build());
+            fail("Should throw " + IncorrectJobRequestException.class + " exception");
+        } catch (Exception e) {
+            assertThat(e.getClass(), equalTo(IncorrectJobRequestException.class));
+        }
+
+        jobService.delete("job1");
+    }
+
+    @Test
+    public void testAdHocTasks() throws Exception {
+        assumeTrue(!System.getProperty("os.name").startsWith("Windows"));
+
+        long succeeded = jobService.submit(NativeJobRequest.builder()
+                .name("adhocTask")
+                .argv(Arrays.asList("echo", "ad-hoc"))
+                .build());
+        long failed = jobService.submit(NativeJobRequest.builder()
+                .name("adhocTask")
+                .argv(Collections.singletonList("false"))
+                .build());
+        assertThat(failed, greaterThan(succeeded));
+        long sleeping = jobService.submit(NativeJobRequest.builder()
+                .name("adhocTask")
+                .argv(Arrays.asList("sleep", "1"))
+                .build());
+        // the task is reported before its result is written
+        assertThat(jobService.getTaskResult(sleeping).getStatus(),
+                isOneOf(TaskResult.Status.PENDING, TaskResult.Status.RUNNING));
+
+        TaskResult result = waitForTaskResult(succeeded);
+        assertThat(result.getName(), is("adhocTask"));
+        assertThat(result.getResult(), is("SUCCESS"));
+        assertThat(result.getExitCode(), is(0));
+        JobExecutionHistory jobExecutionHistory = waitForHistory(succeeded);
+        assertThat(new String(Files.readAllBytes(
+                outputStore.getOutputPath(jobExecutionHistory.getId(), ExecutionOutput.Stream.STDOUT)),
+                StandardCharsets.UTF_8), is("ad-hoc\n"));
+
+        result = waitForTaskResult(failed);
+        assertThat(result.getResult(), is("FAILED"));
+        assertThat(result.getExitCode(), is(1));
+        assertThat(waitForTaskResult(sleeping).getResult(), is("SUCCESS"));
+
+        // tasks aren't registered as jobs
+        try {
+            jobService.getJobInfo("adhocTask");
+            fail("Should throw " + JobIsNotFoundException.class + " exception");
+        } catch (Exception e) {
+            assertThat(e.getClass(), equalTo(JobIsNotFoundException.class));
+        }
+
+        try {
+            jobService.submit(NativeJobRequest.builder()
+                    .name("adhocTask")
+                    .argv(Collections.emptyList())
+                    .build());
+            fail("Should throw " + IncorrectJobRequestException.class + " exception");
+        } catch (Exception e) {
+            assertThat(e.getClass(), equalTo(IncorrectJobRequestException.class));
+        }
+        try {
+            jobService.getTaskResult(-1);
+            fail("Should throw " + TaskResultIsNotFoundException.class + " exception");
+        } catch (Exception e) {
+            assertThat(e.getClass(), equalTo(TaskResultIsNotFoundException.class));
+        }
+    }
+
+    private TaskResult waitForTaskResult(long ticketId) throws Exception {
+        for (int i = 0; i < 50; i++) {
+            TaskResult result = jobService.getTaskResult(ticketId);
+            if (result.getStatus() == TaskResult.Status.COMPLETED) {
+                return result;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Task " + ticketId + " is not completed");
+    }
+
+    private JobExecutionHistory waitForHistory(long ticketId) throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            Optional<JobExecutionHistory> jobExecutionHistory = historyRepository.findByTicketId(ticketId);
+            if (jobExecutionHistory.isPresent()) {
+                return jobExecutionHistory.get();
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Result of task " + ticketId + " is not written");
+    }
+
+    @Test
+    public void testCoprocessExecution() throws Exception {
+        assumeTrue(!System.getProperty("os.name").startsWith("Windows"));
+
+        NativeJobRequest jobRequest = NativeJobRequest.builder()
+                .name("job1")
+                .command("echo hello; echo error >&2")
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .coprocess(true)
+                .build();
+
+        jobService.create(jobRequest);
+
+        jobService.execute("job1");
+
+        Thread.sleep(1000);
+
+        assertThat(jobService.getJobInfo("job1").getState(), is(NativeJobInfo.State.SUCCESS));
+
+        JobExecutionHistory jobExecutionHistory = historyRepository.findTopByJobNameOrderByCompletionDateDesc("job1");
+        assertThat(new String(Files.readAllBytes(
+                outputStore.getOutputPath(jobExecutionHistory.getId(), ExecutionOutput.Stream.STDOUT)),
+                StandardCharsets.UTF_8), is("hello\nerror\n"));
+
+        try {
+            jobService.create(NativeJobRequest.builder()
+                    .name("job2")
+                    .argv(Collections.singletonList("true"))
+                    .cron("0 0 0 1 JAN ? 2099-2099")
+                    .coprocess(true)
+                    .build());
+            fail("Should throw " + IncorrectJobRequestException.class + " exception");
+        } catch (Exception e) {
+            assertThat(e.getClass(), equalTo(IncorrectJobRequestException.class));
+        }
+
+        jobService.delete("job1");
+    }
+
+    @Test
+    public void testTimeoutKillsProcessTree() throws Exception {
+        assumeTrue(new File("/proc").isDirectory());
+
+        Path childPidFile = Paths.get("target", "timeout-child.pid");
+        Files.deleteIfExists(childPidFile);
+
+        NativeJobRequest jobRequest = NativeJobRequest.builder()
+                .name("job1")
+                .command("sleep 60 & echo $! > " + childPidFile + "; wait")
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .timeoutSeconds(1L)
+                .build();
+
+        jobService.create(jobRequest);
+
+        jobService.execute("job1");
+
+        Thread.sleep(2500);
+
+        assertThat(jobService.getJobInfo("job1").getState(), is(NativeJobInfo.State.TIMED_OUT));
+        assertThat(historyRepository.findTopByJobNameOrderByCompletionDateDesc("job1").getResult(),
+                is(JobExecutionHistory.Result.TIMED_OUT));
+
+        String childPid = new String(Files.readAllBytes(childPidFile), StandardCharsets.US_ASCII).trim();
+        assertThat(isProcessRunning(childPid), is(false));
+
+        jobService.delete("job1");
+    }
+
+    @Test
+    public void testCoprocessTimeout() throws Exception {
+        assumeTrue(new File("/proc").isDirectory());
+
+        NativeJobRequest jobRequest = NativeJobRequest.builder()
+                .name("job1")
+                .command("sleep 60")
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .coprocess(true)
+                .timeoutSeconds(1L)
+                .build();
+
+        jobService.create(jobRequest);
+
+        jobService.execute("job1");
+
+        Thread.sleep(2500);
+
+        assertThat(jobService.getJobInfo("job1").getState(), is(NativeJobInfo.State.TIMED_OUT));
+
+        jobService.update(NativeJobRequest.builder()
+                .name("job1")
+                .command("true")
+                .cron("0 0 0 1 JAN ? 2099-2099")
+                .coprocess(true)
+                .build());
+
+        jobService.execute("job1");
+
+        Thread.sleep(1000);
+
+        assertThat(jobService.getJobInfo("job1").getState(), is(NativeJobInfo.State.SUCCESS));
+
+        jobService.delete("job1");
+    }
+
+    /**
+     * A killed process may remain a zombie until its new parent reaps it.
+     */
+    private static boolean isProcessRunning(String pid) throws IOException {
+        Path stat = Paths.get("/proc", pid, "stat");
+        if (!Files.exists(stat)) {
+            return false;
+        }
+        String content = new String(Files.readAllBytes(stat), StandardCharsets.US_ASCII);
+        return content.charAt(content.lastIndexOf(')') + 2) != 'Z';
+    }
+
     // TODO test via REST with full application up
     @Ignore
     @Test
@@ -0,0 +1,109 @@
+package com.ail.optile.jobservice.journal;
+
+import com.ail.optile.jobservice.pdo.JobChange;
+import com.ail.optile.jobservice.repository.JobChangeRepository;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+
+public class JobChangeJournalTest {
+
+    @Test
+    public void testReadersCantContinueAfterLostChanges() {
+        JobChangeRepository changeRepository = mock(JobChangeRepository.class);
+        given(changeRepository.existsById(anyLong())).willReturn(true);
+        AtomicLong lastId = new AtomicLong();
+        Answer<Iterable<JobChange>> assignIds = invocation -> {
+            Iterable<JobChange> changes = invocation.getArgument(0);
+            changes.forEach(change -> ReflectionTestUtils.setField(change, "id", lastId.incrementAndGet()));
+            return changes;
+        };
+        willAnswer(assignIds).given(changeRepository).saveAll(anyIterable());
+        // the journal isn't started, so the changes are written synchronously
+        JobChangeJournal journal = new JobChangeJournal(changeRepository, null, 10, 10, 10, 30, 10);
+
+        journal.record(change("job1"));
+        assertThat(journal.isContinuousSince(1), is(true));
+
+        willThrow(new IllegalStateException("database is down")).given(changeRepository).saveAll(anyIterable());
+        journal.record(change("job2"));
+        assertThat(journal.getFailedCount(), is(1L));
+
+        willAnswer(assignIds).given(changeRepository).saveAll(anyIterable());
+        journal.record(change("job3"));
+
+        // reading from the beginning would miss the lost change too
+        assertThat(journal.isContinuousSince(0), is(false));
+        assertThat(journal.isContinuousSince(1), is(false));
+        assertThat(journal.isContinuousSince(2), is(true));
+    }
+
+    @Test
+    public void testReadersCantContinueBelowPurgedChanges() {
+        JobChangeRepository changeRepository = mock(JobChangeRepository.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        willAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null))
+                .given(transactionTemplate).execute(any());
+        JobChangeJournal journal = new JobChangeJournal(changeRepository, transactionTemplate, 10, 10, 10, 30, 10);
+        assertThat(journal.isContinuousSince(0), is(true));
+        assertThat(journal.getHead(), is(0L));
+
+        // all three changes are old, but the latest one is kept
+        given(changeRepository.findByDateBeforeOrderByDateAsc(any(), any()))
+                .willReturn(Lists.newArrayList(change(1L), change(2L), change(3L)));
+        given(changeRepository.findTopByOrderByIdDesc()).willReturn(change(3L));
+        journal.purge();
+        then(changeRepository).should().deleteByIds(ImmutableList.of(1L, 2L));
+
+        given(changeRepository.existsById(3L)).willReturn(true);
+        assertThat(journal.isContinuousSince(0), is(false));
+        assertThat(journal.isContinuousSince(1), is(false));
+        assertThat(journal.isContinuousSince(2), is(true));
+        assertThat(journal.isContinuousSince(3), is(true));
+        assertThat(journal.getHead(), is(3L));
+
+        // after a restart the oldest retained change tells where the purged ones end
+        given(changeRepository.findTopByOrderByIdAsc()).willReturn(change(3L));
+        JobChangeJournal restarted = new JobChangeJournal(changeRepository, transactionTemplate, 10, 10, 10, 30, 10);
+        restarted.start();
+        try {
+            assertThat(restarted.isContinuousSince(0), is(false));
+            assertThat(restarted.isContinuousSince(2), is(true));
+            assertThat(restarted.isContinuousSince(3), is(true));
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    private static JobChange change(long id) {
+        JobChange change = change("job" + id);
+        ReflectionTestUtils.setField(change, "id", id);
+        return change;
+    }
+
+    private static JobChange change(String jobName) {
+        return JobChange.builder()
+                .type(JobChange.Type.EXECUTED)
+                .jobName(jobName)
+                .date(new Date())
+                .build();
+    }
+}
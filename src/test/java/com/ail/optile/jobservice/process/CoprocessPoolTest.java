@@ -0,0 +1,137 @@
+package com.ail.optile.jobservice.process;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+public class CoprocessPoolTest {
+
+    private CoprocessPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new CoprocessPool("/bin/sh", 1);
+        assumeTrue(pool.isSupported());
+    }
+
+    @After
+    public void tearDown() {
+        pool.stop();
+    }
+
+    @Test
+    public void testOutputAndExitCodeAreFramed() throws Exception {
+        CapturingSink sink = new CapturingSink();
+        assertThat(pool.execute("echo hello; echo error >&2; exit 3", sink), is(3));
+        assertThat(sink.toString(), is("hello\nerror\n"));
+
+        sink = new CapturingSink();
+        assertThat(pool.execute("printf 'no newline'", sink), is(0));
+        assertThat(sink.toString(), is("no newline"));
+
+        sink = new CapturingSink();
+        assertThat(pool.execute("printf '\\n\\n'", sink), is(0));
+        assertThat(sink.toString(), is("\n\n"));
+    }
+
+    @Test
+    public void testCommandsDontAffectWorker() throws Exception {
+        pool.execute("cd /; FOO=bar; export FOO", new CapturingSink());
+
+        CapturingSink sink = new CapturingSink();
+        assertThat(pool.execute("echo \"'$FOO'\"", sink), is(0));
+        assertThat(sink.toString(), is("''\n"));
+
+        // unbalanced quotes fail the command only
+        assertThat(pool.execute("echo 'unbalanced", new CapturingSink()) != 0, is(true));
+
+        sink = new CapturingSink();
+        assertThat(pool.execute("echo ok", sink), is(0));
+        assertThat(sink.toString(), is("ok\n"));
+    }
+
+    @Test
+    public void testWorkerIsReplacedAfterExit() throws Exception {
+        // $$ is the worker's shell, not the subshell running the command
+        try {
+            pool.execute("kill -9 $$", new CapturingSink());
+            fail("Should throw " + IOException.class + " exception");
+        } catch (IOException e) {
+            // expected
+        }
+
+        CapturingSink sink = new CapturingSink();
+        assertThat(pool.execute("echo alive", sink), is(0));
+        assertThat(sink.toString(), is("alive\n"));
+    }
+
+    @Test
+    public void testWorkerIsReplacedAfterTooLongLine() throws Exception {
+        CapturingSink sink = new CapturingSink();
+        pool.execute("echo $$", sink);
+        String pid = sink.toString();
+
+        // the buffer of a line is limited, the command fails instead
+        try {
+            pool.execute("head -c 100000 /dev/zero | tr '\\0' a", new CapturingSink());
+            fail("Should throw " + IOException.class + " exception");
+        } catch (IOException e) {
+            // expected
+        }
+
+        sink = new CapturingSink();
+        assertThat(pool.execute("echo $$", sink), is(0));
+        assertThat(sink.toString(), is(not(pid)));
+    }
+
+    @Test
+    public void testWorkerIsReplacedWhenGuardInterfered() throws Exception {
+        AtomicInteger releases = new AtomicInteger();
+        CapturingSink sink = new CapturingSink();
+        pool.execute("echo $$", sink, worker -> () -> releases.incrementAndGet() > 0);
+        String pid = sink.toString();
+        assertThat(releases.get(), is(1));
+
+        // an intact worker is reused
+        sink = new CapturingSink();
+        pool.execute("echo $$", sink);
+        assertThat(sink.toString(), is(pid));
+
+        // e.g. the timeout has expired after the command completed
+        pool.execute("true", new CapturingSink(), worker -> () -> false);
+
+        sink = new CapturingSink();
+        pool.execute("echo $$", sink);
+        assertThat(sink.toString(), is(not(pid)));
+    }
+
+    private static final class CapturingSink implements OutputSink {
+
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            output.write(buffer, offset, length);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
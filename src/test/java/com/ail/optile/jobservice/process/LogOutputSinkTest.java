@@ -0,0 +1,32 @@
+package com.ail.optile.jobservice.process;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.slf4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+
+public class LogOutputSinkTest {
+
+    @Test
+    public void testLongLineIsLoggedInParts() {
+        Logger log = mock(Logger.class);
+        given(log.isInfoEnabled()).willReturn(true);
+        LogOutputSink sink = new LogOutputSink(log, "stdout", false, 4);
+
+        byte[] output = "0123456789\nab\r\ncd".getBytes(StandardCharsets.UTF_8);
+        sink.write(output, 0, output.length);
+        sink.close();
+
+        InOrder inOrder = inOrder(log);
+        inOrder.verify(log).info("{}>{}", "stdout", "0123");
+        inOrder.verify(log).info("{}>{}", "stdout", "4567");
+        inOrder.verify(log).info("{}>{}", "stdout", "89");
+        inOrder.verify(log).info("{}>{}", "stdout", "ab");
+        inOrder.verify(log).info("{}>{}", "stdout", "cd");
+    }
+}
@@ -0,0 +1,121 @@
+package com.ail.optile.jobservice.rest;
+
+import com.ail.optile.jobservice.api.exception.ExecutionOutputIsNotFoundException;
+import com.ail.optile.jobservice.output.ExecutionOutput;
+import com.ail.optile.jobservice.output.ExecutionOutputStore;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(ExecutionOutputRestController.class)
+public class ExecutionOutputRestControllerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private ExecutionOutputStore outputStore;
+
+    @Before
+    public void init() throws Exception {
+        Path output = temporaryFolder.newFile("output.stdout").toPath();
+        Files.write(output, "0123456789".getBytes(StandardCharsets.UTF_8));
+
+        given(outputStore.getOutputPath(1L, ExecutionOutput.Stream.STDOUT)).willReturn(output);
+        given(outputStore.getOutputPath(2L, ExecutionOutput.Stream.STDOUT))
+                .willThrow(new ExecutionOutputIsNotFoundException());
+
+        Path compressedOutput = temporaryFolder.newFile("output.stdout" + ExecutionOutputStore.GZIP_EXTENSION).toPath();
+        Files.write(compressedOutput, new byte[]{31, -117, 8, 0});
+        given(outputStore.getOutputPath(3L, ExecutionOutput.Stream.STDOUT)).willReturn(compressedOutput);
+    }
+
+    @Test
+    public void testGetOutput() throws Exception {
+        mvc.perform(get("/job-service/executions/1/output"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"));
+
+        mvc.perform(get("/job-service/executions/2/output"))
+                .andExpect(status().isNotFound());
+
+        mvc.perform(get("/job-service/executions/1/output").param("stream", "unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testGetOutputRange() throws Exception {
+        mvc.perform(get("/job-service/executions/1/output").header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(content().string("2345"));
+
+        mvc.perform(get("/job-service/executions/1/output").header(HttpHeaders.RANGE, "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("789"));
+
+        mvc.perform(get("/job-service/executions/1/output").header(HttpHeaders.RANGE, "bytes=20-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+    }
+
+    @Test
+    public void testGetOutputTail() throws Exception {
+        mvc.perform(get("/job-service/executions/1/output").param("tail", "4"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("6789"));
+
+        mvc.perform(get("/job-service/executions/1/output").param("tail", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetOutputWithSendfile() throws Exception {
+        // the connector sends the file region after the request, nothing is written to the response
+        mvc.perform(get("/job-service/executions/1/output")
+                .header(HttpHeaders.RANGE, "bytes=2-5")
+                .requestAttr("org.apache.tomcat.sendfile.support", true))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.start", 2L))
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.end", 6L))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void testGetCompressedOutput() throws Exception {
+        mvc.perform(get("/job-service/executions/3/output"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/gzip"))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "none"));
+
+        // offsets of the compressed file aren't offsets of the text
+        mvc.perform(get("/job-service/executions/3/output").header(HttpHeaders.RANGE, "bytes=0-1"))
+                .andExpect(status().isRequestedRangeNotSatisfiable());
+        mvc.perform(get("/job-service/executions/3/output").param("tail", "2"))
+                .andExpect(status().isRequestedRangeNotSatisfiable());
+    }
+}
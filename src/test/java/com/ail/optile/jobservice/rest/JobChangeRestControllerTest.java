@@ -0,0 +1,100 @@
+package com.ail.optile.jobservice.rest;
+
+import com.ail.optile.jobservice.journal.JobChangeJournal;
+import com.ail.optile.jobservice.pdo.JobChange;
+import com.ail.optile.jobservice.pdo.JobExecutionHistory;
+import com.ail.optile.jobservice.rest.mapper.JobDtoMapperImpl;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(JobChangeRestController.class)
+@Import(JobDtoMapperImpl.class)
+public class JobChangeRestControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private JobChangeJournal jobChangeJournal;
+
+    @Test
+    public void testGetChanges() throws Exception {
+        JobChange created = JobChange.builder()
+                .type(JobChange.Type.CREATED)
+                .jobName("job1")
+                .date(new Date())
+                .cron("0/20 * * * * ?")
+                .priority(5)
+                .argv(ImmutableList.of("ping", "localhost"))
+                .build();
+        ReflectionTestUtils.setField(created, "id", 11L);
+        JobChange executed = JobChange.builder()
+                .type(JobChange.Type.EXECUTED)
+                .jobName("job1")
+                .date(new Date())
+                .result(JobExecutionHistory.Result.FAILED)
+                .build();
+        ReflectionTestUtils.setField(executed, "id", 12L);
+
+        given(jobChangeJournal.isContinuousSince(10)).willReturn(true);
+        given(jobChangeJournal.isContinuousSince(12)).willReturn(true);
+        given(jobChangeJournal.getChanges(10, 2)).willReturn(ImmutableList.of(created, executed));
+        given(jobChangeJournal.getChanges(12, 2)).willReturn(Collections.emptyList());
+
+        mvc.perform(get("/job-service/changes")
+                .param("since", "10")
+                .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes", hasSize(2)))
+                .andExpect(jsonPath("$.changes[0].id", is(11)))
+                .andExpect(jsonPath("$.changes[0].type", is("CREATED")))
+                .andExpect(jsonPath("$.changes[0].cron", is("0/20 * * * * ?")))
+                .andExpect(jsonPath("$.changes[0].argv[1]", is("localhost")))
+                .andExpect(jsonPath("$.changes[0].result", is(nullValue())))
+                .andExpect(jsonPath("$.changes[1].type", is("EXECUTED")))
+                .andExpect(jsonPath("$.changes[1].result", is("FAILED")))
+                .andExpect(jsonPath("$.next", is(12)));
+
+        mvc.perform(get("/job-service/changes")
+                .param("since", "12")
+                .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes", hasSize(0)))
+                .andExpect(jsonPath("$.next", is(12)));
+
+        // purged
+        mvc.perform(get("/job-service/changes")
+                .param("since", "5"))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    public void testGetHead() throws Exception {
+        given(jobChangeJournal.getHead()).willReturn(12L);
+
+        mvc.perform(get("/job-service/changes/head"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes", hasSize(0)))
+                .andExpect(jsonPath("$.next", is(12)));
+    }
+}
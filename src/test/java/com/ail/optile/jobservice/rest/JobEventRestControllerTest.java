@@ -0,0 +1,55 @@
+package com.ail.optile.jobservice.rest;
+
+import com.ail.optile.jobservice.events.JobEvent;
+import com.ail.optile.jobservice.events.JobEventBroker;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(JobEventRestController.class)
+@Import(JobEventBroker.class)
+public class JobEventRestControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JobEventBroker jobEventBroker;
+
+    @Test
+    public void testSubscribe() throws Exception {
+        MvcResult result = mvc.perform(get("/job-service/job-events")
+                .param("jobName", "job1")
+                .param("type", "SUCCEEDED", "FAILED"))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(jobEventBroker.getSubscriptionCount(), is(1));
+
+        jobEventBroker.publish(JobEvent.Type.STARTED, "job1");
+        jobEventBroker.publish(JobEvent.Type.FAILED, "job2");
+        jobEventBroker.publish(JobEvent.Type.SUCCEEDED, "job1");
+
+        Thread.sleep(500);
+
+        String content = result.getResponse().getContentAsString();
+        assertThat(content, containsString("event:SUCCEEDED"));
+        assertThat(content, containsString("\"jobName\":\"job1\""));
+        assertThat(content, not(containsString("STARTED")));
+        assertThat(content, not(containsString("job2")));
+    }
+}
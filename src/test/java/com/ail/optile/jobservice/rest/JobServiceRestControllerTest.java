@@ -3,39 +3,60 @@ package com.ail.optile.jobservice.rest;
 import com.ail.optile.jobservice.api.JobInfo;
 import com.ail.optile.jobservice.api.JobRequest;
 import com.ail.optile.jobservice.api.JobService;
+import com.ail.optile.jobservice.api.exception.DelayedExecutionIsNotFoundException;
 import com.ail.optile.jobservice.api.exception.IncorrectJobRequestException;
 import com.ail.optile.jobservice.api.exception.JobAlreadyExistsException;
 import com.ail.optile.jobservice.api.exception.JobIsCurrentlyRunningException;
 import com.ail.optile.jobservice.api.exception.JobIsNotFoundException;
+import com.ail.optile.jobservice.api.exception.TaskQueueIsFullException;
+import com.ail.optile.jobservice.api.exception.TaskResultIsNotFoundException;
+import com.ail.optile.jobservice.domain.BulkJobResult;
+import com.ail.optile.jobservice.domain.DelayedExecution;
+import com.ail.optile.jobservice.domain.JobFilter;
+import com.ail.optile.jobservice.domain.JobPage;
+import com.ail.optile.jobservice.domain.JobStatistics;
+import com.ail.optile.jobservice.domain.JobVersion;
 import com.ail.optile.jobservice.domain.NativeJobInfo;
+import com.ail.optile.jobservice.domain.TaskResult;
+import com.ail.optile.jobservice.domain.WindowStatistics;
+import com.ail.optile.jobservice.rest.mapper.JobDtoMapperImpl;
 import com.google.common.collect.ImmutableList;
-import org.dozer.DozerBeanMapper;
-import org.dozer.Mapper;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
-import static org.hamcrest.Matchers.hasSize;
-import static org.hamcrest.Matchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @RunWith(SpringRunner.class)
 @WebMvcTest(JobServiceRestController.class)
+@Import(JobDtoMapperImpl.class)
 public class JobServiceRestControllerTest {
 
     @Autowired
@@ -44,23 +65,9 @@ public class JobServiceRestControllerTest {
     @MockBean
     private JobService jobService;
 
-    @MockBean
-    private Mapper mapper;
-
     @Before
     public void init() {
-        DozerBeanMapper dozerBeanMapper = new DozerBeanMapper();
-
-        given(mapper.map(any(), any())).willAnswer(invocationOnMock -> {
-            Object from = invocationOnMock.getArgument(0);
-            Object to = invocationOnMock.getArgument(1);
-            if (to instanceof Class<?>) {
-                return dozerBeanMapper.map(from, (Class<?>) to);
-            } else {
-                dozerBeanMapper.map(from, to);
-                return null;
-            }
-        });
+        given(jobService.getJobsVersion()).willReturn(new JobVersion(1L, 1L, 0L));
     }
 
     @Test
@@ -164,6 +171,89 @@ public class JobServiceRestControllerTest {
                 .andExpect(status().isImUsed());
     }
 
+    @Test
+    public void testBulkJobs() throws Exception {
+        given(jobService.createAll(any())).willReturn(ImmutableList.of(
+                BulkJobResult.done("job1"),
+                BulkJobResult.failed("job2", BulkJobResult.Status.ALREADY_EXISTS, "Job 'job2' already exists")));
+        mvc.perform(post("/job-service/bulk/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"name\": \"job1\", \"command\": \"echo 1\", \"cron\": \"0 * * * * ?\"}, " +
+                        "{\"name\": \"job2\", \"command\": \"echo 2\", \"cron\": \"0 * * * * ?\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name", is("job1")))
+                .andExpect(jsonPath("$[0].status", is("DONE")))
+                .andExpect(jsonPath("$[1].status", is("ALREADY_EXISTS")))
+                .andExpect(jsonPath("$[1].message", is("Job 'job2' already exists")));
+
+        given(jobService.deleteAll(ImmutableList.of("job1", "job3"))).willReturn(ImmutableList.of(
+                BulkJobResult.done("job1"),
+                BulkJobResult.failed("job3", BulkJobResult.Status.CURRENTLY_RUNNING, null)));
+        mvc.perform(post("/job-service/bulk/delete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[\"job1\", \"job3\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].name", is("job3")))
+                .andExpect(jsonPath("$[1].status", is("CURRENTLY_RUNNING")));
+    }
+
+    @Test
+    public void testDelayedExecution() throws Exception {
+        given(jobService.executeLater("job1", 5000L))
+                .willReturn(new DelayedExecution(42L, "job1", new Date(1_000_000L)));
+        mvc.perform(post("/job-service/execute-later/job1").param("delayMs", "5000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(42)))
+                .andExpect(jsonPath("$.jobName", is("job1")));
+
+        doThrow(new IncorrectJobRequestException(new IllegalArgumentException()))
+                .when(jobService).executeLater("job1", -1L);
+        mvc.perform(post("/job-service/execute-later/job1").param("delayMs", "-1"))
+                .andExpect(status().isUnprocessableEntity());
+
+        mvc.perform(post("/job-service/cancel/42"))
+                .andExpect(status().isOk());
+        verify(jobService).cancelDelayedExecution(42L);
+
+        doThrow(new DelayedExecutionIsNotFoundException()).when(jobService).cancelDelayedExecution(43L);
+        mvc.perform(post("/job-service/cancel/43"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testAdHocTasks() throws Exception {
+        given(jobService.submit(any(JobRequest.class))).willReturn(1001L);
+        mvc.perform(post("/job-service/submit")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"task1\", \"command\": \"echo 1\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ticketId", is(1001)));
+
+        doThrow(new TaskQueueIsFullException()).when(jobService).submit(any(JobRequest.class));
+        mvc.perform(post("/job-service/submit")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"task1\", \"command\": \"echo 1\"}"))
+                .andExpect(status().isTooManyRequests());
+
+        given(jobService.getTaskResult(1001L)).willReturn(TaskResult.builder()
+                .ticketId(1001L)
+                .name("task1")
+                .status(TaskResult.Status.COMPLETED)
+                .result("SUCCESS")
+                .exitCode(0)
+                .build());
+        mvc.perform(get("/job-service/task-result/1001"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is("task1")))
+                .andExpect(jsonPath("$.status", is("COMPLETED")))
+                .andExpect(jsonPath("$.result", is("SUCCESS")))
+                .andExpect(jsonPath("$.exitCode", is(0)));
+
+        doThrow(new TaskResultIsNotFoundException()).when(jobService).getTaskResult(1002L);
+        mvc.perform(get("/job-service/task-result/1002"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void testGetJobInfo() throws Exception {
         NativeJobInfo job = NativeJobInfo.builder()
@@ -186,6 +276,47 @@ public class JobServiceRestControllerTest {
                 .andExpect(jsonPath("$.priority", is(10)));
     }
 
+    @Test
+    public void testGetJobInfoNotModified() throws Exception {
+        given(jobService.getJobVersion("job1")).willReturn(null, new JobVersion(100L, 7L, 1_000_000L));
+        given(jobService.getJobInfo("job1")).willReturn(NativeJobInfo.builder()
+                .name("job1")
+                .command("ping localhost -c 5")
+                .state(NativeJobInfo.State.QUEUED)
+                .build());
+
+        // the version is unknown before the job is loaded for the first time
+        mvc.perform(get("/job-service/job-info/job1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"100-7\""))
+                .andExpect(jsonPath("$.name", is("job1")));
+        verify(jobService, times(1)).getJobInfo("job1");
+
+        mvc.perform(get("/job-service/job-info/job1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"100-7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(jobService, times(1)).getJobInfo("job1");
+
+        mvc.perform(get("/job-service/job-info/job1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"100-6\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"100-7\""));
+        verify(jobService, times(2)).getJobInfo("job1");
+    }
+
+    @Test
+    public void testGetJobsNotModified() throws Exception {
+        mvc.perform(get("/job-service/jobs")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1-1\""))
+                .andExpect(status().isNotModified());
+        mvc.perform(get("/job-service/jobs/page")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1-1\""))
+                .andExpect(status().isNotModified());
+        verify(jobService, never()).getAllJobs();
+        verify(jobService, never()).getJobs(any(), any(), anyInt());
+    }
+
     @Test
     public void testGetJobs() throws Exception {
         List<JobInfo> jobs = ImmutableList.of(
@@ -224,4 +355,113 @@ public class JobServiceRestControllerTest {
                 .andExpect(jsonPath("$[1].state", is("RUNNING")))
                 .andExpect(jsonPath("$[1].priority", is(10)));
     }
+
+    @Test
+    public void testGetJobPage() throws Exception {
+        JobPage page = JobPage.builder()
+                .jobs(ImmutableList.of(
+                        NativeJobInfo.builder()
+                                .name("job2")
+                                .command("echo 'hello' >> test")
+                                .cron("0/30 * * * * ?")
+                                .state(NativeJobInfo.State.SUCCESS)
+                                .priority(10)
+                                .build()))
+                .next("job2")
+                .build();
+
+        given(jobService.getJobs(any(JobFilter.class), eq("job1"), eq(1))).willAnswer(invocationOnMock -> {
+            JobFilter filter = invocationOnMock.getArgument(0);
+            assertThat(filter.getState(), is(JobInfo.State.SUCCESS));
+            assertThat(filter.getPriority(), is(10));
+            assertThat(filter.getNamePrefix(), is("job"));
+            assertThat(filter.getCron(), is(nullValue()));
+            return page;
+        });
+
+        mvc.perform(get("/job-service/jobs/page")
+                .param("state", "SUCCESS")
+                .param("priority", "10")
+                .param("namePrefix", "job")
+                .param("after", "job1")
+                .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.jobs", hasSize(1)))
+                .andExpect(jsonPath("$.jobs[0].name", is("job2")))
+                .andExpect(jsonPath("$.jobs[0].state", is("SUCCESS")))
+                .andExpect(jsonPath("$.next", is("job2")));
+
+        mvc.perform(get("/job-service/jobs/page")
+                .param("limit", "0"))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    public void testStreamJobs() throws Exception {
+        given(jobService.streamJobs(any(JobFilter.class))).willAnswer(invocationOnMock -> Stream.of(
+                NativeJobInfo.builder()
+                        .name("job1")
+                        .command("ping localhost -c 5")
+                        .state(NativeJobInfo.State.QUEUED)
+                        .build(),
+                NativeJobInfo.builder()
+                        .name("job2")
+                        .command("echo 'hello' >> test")
+                        .state(NativeJobInfo.State.FAILED)
+                        .build()));
+
+        MvcResult result = mvc.perform(get("/job-service/jobs/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lines = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString()
+                .split("\n");
+        assertThat(lines.length, is(2));
+        assertThat(lines[0], containsString("\"name\":\"job1\""));
+        assertThat(lines[1], containsString("\"state\":\"FAILED\""));
+    }
+
+    @Test
+    public void testGetJobStatistics() throws Exception {
+        JobStatistics statistics = JobStatistics.builder()
+                .name("job1")
+                .windows(ImmutableList.of(
+                        WindowStatistics.builder()
+                                .window("1h")
+                                .executions(4)
+                                .successes(3)
+                                .failures(1)
+                                .successRate(0.75)
+                                .p50(120L)
+                                .p95(480L)
+                                .p99(480L)
+                                .build(),
+                        WindowStatistics.builder()
+                                .window("24h")
+                                .build()))
+                .build();
+
+        given(jobService.getJobStatistics("job1")).willReturn(statistics);
+
+        mvc.perform(get("/job-service/job-statistics/job1")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is("job1")))
+                .andExpect(jsonPath("$.windows", hasSize(2)))
+                .andExpect(jsonPath("$.windows[0].window", is("1h")))
+                .andExpect(jsonPath("$.windows[0].executions", is(4)))
+                .andExpect(jsonPath("$.windows[0].successRate", is(0.75)))
+                .andExpect(jsonPath("$.windows[0].p95", is(480)))
+                .andExpect(jsonPath("$.windows[1].window", is("24h")))
+                .andExpect(jsonPath("$.windows[1].executions", is(0)));
+
+        given(jobService.getJobStatistics("job2")).willThrow(new JobIsNotFoundException());
+        mvc.perform(get("/job-service/job-statistics/job2"))
+                .andExpect(status().isNotFound());
+    }
 }
@@ -0,0 +1,83 @@
+package com.ail.optile.jobservice.state;
+
+import com.ail.optile.jobservice.api.JobInfo;
+import com.ail.optile.jobservice.pdo.JobExecutionHistory;
+import com.ail.optile.jobservice.repository.JobExecutionHistoryRepository;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class JobStateIndexTest {
+
+    @Test
+    public void testStatesAreWarmedUpAndFollowExecutions() {
+        JobExecutionHistoryRepository historyRepository = mock(JobExecutionHistoryRepository.class);
+        given(historyRepository.findLatestOfEachJob()).willReturn(ImmutableList.of(
+                history("job1", 1000, JobExecutionHistory.Result.SUCCESS),
+                history("job2", 1000, JobExecutionHistory.Result.TIMED_OUT)));
+        JobStateIndex index = new JobStateIndex(historyRepository);
+        index.warmUp();
+
+        assertThat(index.getState("job1"), is(JobInfo.State.SUCCESS));
+        assertThat(index.getState("job2"), is(JobInfo.State.TIMED_OUT));
+        assertThat(index.getState("job3"), is(JobInfo.State.QUEUED));
+
+        index.jobStarted("job1");
+        assertThat(index.getState("job1"), is(JobInfo.State.RUNNING));
+        assertThat(index.getRunState("job1"), is(JobRunState.RUNNING));
+
+        index.jobCompleted("job1", JobExecutionHistory.Result.FAILED, new Date(2000));
+        assertThat(index.getState("job1"), is(JobInfo.State.FAILED));
+        assertThat(index.getRunState("job1"), is(JobRunState.IDLE));
+
+        index.remove("job2");
+        assertThat(index.getState("job2"), is(JobInfo.State.QUEUED));
+
+        // a late completion or unlock of the removed job doesn't track it again
+        index.jobCompleted("job2", JobExecutionHistory.Result.SUCCESS, new Date(2000));
+        index.fireFailed("job2");
+        index.unlock("job2");
+        assertThat(index.findVersion("job2"), is(nullValue()));
+    }
+
+    @Test
+    public void testFiringJobIsCounted() {
+        JobStateIndex index = new JobStateIndex(mock(JobExecutionHistoryRepository.class));
+
+        assertThat(index.tryFire("job1"), is(true));
+        assertThat(index.tryFire("job1"), is(false));
+        assertThat(index.tryLock("job1"), is(false));
+        assertThat(index.getFiringCount(), is(1));
+
+        // the manual trigger is accepted, a scheduled one isn't
+        assertThat(index.tryAcceptTrigger("job1", false), is(false));
+        assertThat(index.tryAcceptTrigger("job1", true), is(true));
+
+        index.jobStarted("job1");
+        assertThat(index.getFiringCount(), is(0));
+        index.jobCompleted("job1", JobExecutionHistory.Result.SUCCESS, new Date());
+        assertThat(index.tryLock("job1"), is(true));
+        assertThat(index.tryFire("job1"), is(false));
+        index.unlock("job1");
+        assertThat(index.tryFire("job1"), is(true));
+        index.fireFailed("job1");
+        assertThat(index.getRunState("job1"), is(JobRunState.IDLE));
+        assertThat(index.getFiringCount(), is(0));
+    }
+
+    private static JobExecutionHistory history(String jobName, long completionDate, JobExecutionHistory.Result result) {
+        return JobExecutionHistory.builder()
+                .jobName(jobName)
+                .startDate(new Date(completionDate - 100))
+                .completionDate(new Date(completionDate))
+                .result(result)
+                .build();
+    }
+}
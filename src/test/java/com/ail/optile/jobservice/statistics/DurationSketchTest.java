@@ -0,0 +1,51 @@
+package com.ail.optile.jobservice.statistics;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class DurationSketchTest {
+
+    @Test
+    public void testQuantilesAreWithinRelativeAccuracy() {
+        DurationSketch sketch = new DurationSketch();
+        for (long duration = 1; duration <= 10_000; duration++) {
+            sketch.record(duration);
+        }
+
+        assertThat(sketch.getCount(), is(10_000L));
+        assertThat((double) sketch.getQuantile(0.5), closeTo(5_000, 5_000 * DurationSketch.RELATIVE_ACCURACY));
+        assertThat((double) sketch.getQuantile(0.95), closeTo(9_500, 9_500 * DurationSketch.RELATIVE_ACCURACY));
+        assertThat((double) sketch.getQuantile(0.99), closeTo(9_900, 9_900 * DurationSketch.RELATIVE_ACCURACY));
+        assertThat(sketch.getQuantile(1.0), is(10_000L));
+    }
+
+    @Test
+    public void testMergedSketchEqualsSingleSketch() {
+        Random random = new Random(42);
+        DurationSketch single = new DurationSketch();
+        DurationSketch first = new DurationSketch();
+        DurationSketch second = new DurationSketch();
+
+        for (int i = 0; i < 1000; i++) {
+            long duration = (long) Math.abs(random.nextGaussian() * 1000);
+            single.record(duration);
+            (i % 2 == 0 ? first : second).record(duration);
+        }
+        first.merge(second);
+
+        assertThat(first.getCount(), is(single.getCount()));
+        assertThat(first.getQuantile(0.5), is(single.getQuantile(0.5)));
+        assertThat(first.getQuantile(0.99), is(single.getQuantile(0.99)));
+    }
+
+    @Test
+    public void testEmptySketch() {
+        assertThat(new DurationSketch().getQuantile(0.5), is(nullValue()));
+    }
+}
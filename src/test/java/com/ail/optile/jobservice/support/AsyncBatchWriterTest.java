@@ -0,0 +1,171 @@
+package com.ail.optile.jobservice.support;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class AsyncBatchWriterTest {
+
+    @Test
+    public void testItemsAreWrittenInBatches() throws Exception {
+        RecordingWriter writer = new RecordingWriter(1000, 10, 50);
+        writer.start();
+
+        for (int i = 0; i < 95; i++) {
+            writer.submit(i);
+        }
+
+        Thread.sleep(500);
+
+        assertThat(writer.writtenItems(), is(95));
+        assertThat(writer.batchSizes, everyItem(lessThanOrEqualTo(10)));
+
+        writer.shutdown();
+    }
+
+    @Test
+    public void testQueueIsFlushedOnShutdown() {
+        RecordingWriter writer = new RecordingWriter(1000, 10, 10_000);
+        writer.start();
+
+        for (int i = 0; i < 500; i++) {
+            writer.submit(i);
+        }
+        writer.shutdown();
+
+        assertThat(writer.writtenItems(), is(500));
+        assertThat(writer.getQueueSize(), is(0));
+
+        // written synchronously after shutdown
+        writer.submit(500);
+        assertThat(writer.writtenItems(), is(501));
+    }
+
+    @Test
+    public void testNoItemIsLostWhenProducersRaceWithShutdown() throws Exception {
+        RecordingWriter writer = new RecordingWriter(10, 5, 10_000);
+        writer.writeDelayMillis = 1;
+        writer.start();
+
+        int producers = 4;
+        int itemsPerProducer = 200;
+        CountDownLatch started = new CountDownLatch(producers);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < producers; i++) {
+            Thread thread = new Thread(() -> {
+                started.countDown();
+                for (int j = 0; j < itemsPerProducer; j++) {
+                    writer.submit(j);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        // the producers are blocked on the full queue while the writer is slowly draining it
+        started.await();
+        Thread.sleep(20);
+        writer.shutdown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(writer.writtenItems(), is(producers * itemsPerProducer));
+        assertThat(writer.getQueueSize(), is(0));
+    }
+
+    @Test
+    public void testFailedBatchIsRetried() {
+        RecordingWriter writer = new RecordingWriter(1000, 10, 10);
+        writer.failures.set(2);
+        writer.start();
+
+        writer.submit(1);
+        writer.shutdown();
+
+        assertThat(writer.writtenItems(), is(1));
+        assertThat(writer.getFailedCount(), is(0L));
+    }
+
+    @Test
+    public void testBatchIsReportedAfterLastAttempt() {
+        RecordingWriter writer = new RecordingWriter(1000, 10, 10);
+        writer.failures.set(Integer.MAX_VALUE);
+        writer.start();
+
+        writer.submit(1);
+        writer.submit(2);
+        writer.shutdown();
+
+        assertThat(writer.writtenItems(), is(0));
+        assertThat(writer.getFailedCount(), is(2L));
+        assertThat(writer.failedItems, is(2));
+    }
+
+    @Test
+    public void testOfferRejectsWhenQueueIsFull() {
+        RecordingWriter writer = new RecordingWriter(2, 1, 10);
+        writer.writeDelayMillis = 300;
+        writer.start();
+
+        int accepted = 0;
+        for (int i = 0; i < 5; i++) {
+            if (writer.offer(i)) {
+                accepted++;
+            }
+        }
+        assertThat(accepted, lessThanOrEqualTo(3));
+
+        writer.shutdown();
+        assertThat(writer.writtenItems(), is(accepted));
+
+        // written synchronously after shutdown
+        assertThat(writer.offer(5), is(true));
+        assertThat(writer.writtenItems(), is(accepted + 1));
+    }
+
+    private static final class RecordingWriter extends AsyncBatchWriter<Integer> {
+
+        private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile long writeDelayMillis;
+        private volatile int failedItems;
+
+        RecordingWriter(int queueCapacity, int batchSize, long lingerMillis) {
+            super("test-writer", queueCapacity, batchSize, lingerMillis);
+        }
+
+        @Override
+        protected void write(List<Integer> batch) {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Write failed");
+            }
+            if (writeDelayMillis > 0) {
+                try {
+                    Thread.sleep(writeDelayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            batchSizes.add(batch.size());
+        }
+
+        @Override
+        protected void writeFailed(List<Integer> batch, Exception e) {
+            failedItems += batch.size();
+        }
+
+        int writtenItems() {
+            return batchSizes.stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+}